@@ -1,5 +1,6 @@
 package com.example.dts.controller;
 
+import com.example.dts.model.ClockCodec;
 import com.example.dts.model.TimestampEvent;
 import com.example.dts.service.TimestampService;
 import io.swagger.annotations.Api;
@@ -8,10 +9,13 @@ import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
@@ -70,6 +74,30 @@ public class TimestampController {
         }
     }
     
+    /**
+     * 批量分配时间戳区间
+     */
+    @PostMapping("/range")
+    @ApiOperation("批量分配时间戳区间")
+    public ResponseEntity<Map<String, Object>> allocateRange(
+            @ApiParam("区间分配请求") @Valid @RequestBody AllocateRangeRequest request) {
+        
+        try {
+            Map<String, Object> response = new HashMap<>(
+                    timestampService.allocateTimestampRange(request.getCount()));
+            response.put("success", true);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error allocating timestamp range: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
     /**
      * 同步接收到的时间戳事件
      */
@@ -83,7 +111,9 @@ public class TimestampController {
                     request.getSourceNodeId(),
                     request.getLamportTimestamp(),
                     request.getVectorClock(),
+                    request.getVectorClockBase(),
                     request.getVersionVector(),
+                    request.getVersionVectorBase(),
                     request.getEventType(),
                     request.getEventData()
             );
@@ -92,9 +122,19 @@ public class TimestampController {
             response.put("success", true);
             response.put("eventId", event.getId());
             response.put("syncedAt", System.currentTimeMillis());
+            // 下一次增量同步的基准
+            response.put("vectorClockBase", ClockCodec.digest(ClockCodec.decodeVectorClock(event.getVectorClock())));
+            response.put("versionVectorBase", ClockCodec.digest(ClockCodec.decodeVersionVector(event.getVersionVector())));
             
             return ResponseEntity.ok(response);
             
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected delta sync from {}: {}", request.getSourceNodeId(), e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("deltaRejected", true);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
         } catch (Exception e) {
             logger.error("Error syncing timestamp event: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
@@ -204,6 +244,38 @@ public class TimestampController {
         }
     }
     
+    /**
+     * 按全局全序获取事件
+     */
+    @GetMapping("/events/ordered")
+    @ApiOperation("按全局全序获取事件")
+    public ResponseEntity<Map<String, Object>> getEventsInTotalOrder(
+            @ApiParam("起始全序时间戳（不含）") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("限制数量") @RequestParam(defaultValue = "100") int limit) {
+        
+        try {
+            List<TimestampEvent> events = timestampService.getEventsInTotalOrder(after, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("after", after);
+            response.put("events", events);
+            response.put("count", events.size());
+            if (!events.isEmpty()) {
+                response.put("next", events.get(events.size() - 1).getTotalOrder());
+            }
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error getting events in total order: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
     /**
      * 检测冲突
      */
@@ -232,6 +304,23 @@ public class TimestampController {
         }
     }
     
+    /**
+     * 获取矩阵时钟的因果稳定前沿
+     */
+    @GetMapping("/stable-frontier")
+    @ApiOperation("获取因果稳定前沿")
+    public ResponseEntity<Map<String, Object>> getStableFrontier() {
+        try {
+            return ResponseEntity.ok(timestampService.getStableFrontier());
+        } catch (Exception e) {
+            logger.error("Error getting stable frontier: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
     /**
      * 同步所有时间戳
      */
@@ -276,6 +365,24 @@ public class TimestampController {
         }
     }
     
+    /**
+     * 区间分配请求DTO
+     */
+    public static class AllocateRangeRequest {
+        @NotNull(message = "分配数量不能为空")
+        @Min(value = 1, message = "分配数量至少为1")
+        @Max(value = 100000, message = "分配数量不能超过100000")
+        private Integer count;
+        
+        public Integer getCount() {
+            return count;
+        }
+        
+        public void setCount(Integer count) {
+            this.count = count;
+        }
+    }
+    
     /**
      * 同步事件请求DTO
      */
@@ -289,6 +396,12 @@ public class TimestampController {
         private Map<String, Long> vectorClock = new HashMap<>();
         private Map<String, Long> versionVector = new HashMap<>();
         
+        /**
+         * 增量基准摘要，为空时 vectorClock / versionVector 是完整时钟
+         */
+        private Long vectorClockBase;
+        private Long versionVectorBase;
+        
         @NotBlank(message = "事件类型不能为空")
         private String eventType;
         
@@ -326,6 +439,22 @@ public class TimestampController {
             this.versionVector = versionVector;
         }
         
+        public Long getVectorClockBase() {
+            return vectorClockBase;
+        }
+        
+        public void setVectorClockBase(Long vectorClockBase) {
+            this.vectorClockBase = vectorClockBase;
+        }
+        
+        public Long getVersionVectorBase() {
+            return versionVectorBase;
+        }
+        
+        public void setVersionVectorBase(Long versionVectorBase) {
+            this.versionVectorBase = versionVectorBase;
+        }
+        
         public String getEventType() {
             return eventType;
         }
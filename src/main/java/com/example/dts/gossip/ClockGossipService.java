@@ -0,0 +1,407 @@
+package com.example.dts.gossip;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.model.VersionVector;
+import com.example.dts.timestamp.LogicalClock;
+import com.example.dts.timestamp.TotalOrderTimestamp;
+import com.example.dts.timestamp.VectorClockManager;
+import com.example.dts.timestamp.VersionVectorManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 时钟Gossip服务
+ * 节点之间通过UDP直接推拉Lamport时间、向量时钟和版本向量，不经过Redis
+ *
+ * 每个周期随机选取 fanout 个成员推送本节点状态（PUSH），接收方合并后回复自身状态（REPLY），
+ * 一次往返完成双向传播。成员列表由种子节点和收到的PUSH来源地址组成（最多 max-members 个），
+ * 只回复成员，成员列表已满时新的来源地址只被合并、不被回复，
+ * 同一台机器上用不同端口即可运行多个实例
+ *
+ * 配置 secret 时每条消息末尾附加 HMAC-SHA256，签名不符的消息被丢弃，发送方也不会加入成员列表；
+ * 时间超出全序时间戳范围、条目过多或节点ID过长的消息同样被丢弃。
+ * 未配置 secret 时只允许绑定回环地址，否则拒绝启动：伪造来源的小包会换来完整状态的回复（反射放大）
+ *
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.gossip.enabled", havingValue = "true")
+public class ClockGossipService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClockGossipService.class);
+
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 32;
+    private static final int MAX_NODE_ID_LENGTH = 256;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<InetSocketAddress> members = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sentMessages = new AtomicLong(0);
+    private final AtomicLong receivedMessages = new AtomicLong(0);
+    private final AtomicLong rejectedMessages = new AtomicLong(0);
+    private final ExecutorService receiverExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "clock-gossip-receiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LogicalClock logicalClock;
+    private final VectorClockManager vectorClockManager;
+    private final VersionVectorManager versionVectorManager;
+
+    private volatile DatagramSocket socket;
+
+    @Value("${dts.gossip.port:7946}")
+    private int port;
+
+    @Value("${dts.gossip.bind-address:}")
+    private String bindAddress = "";
+
+    @Value("${dts.gossip.seeds:}")
+    private String seeds;
+
+    @Value("${dts.gossip.fanout:3}")
+    private int fanout;
+
+    @Value("${dts.gossip.max-members:64}")
+    private int maxMembers = 64;
+
+    @Value("${dts.gossip.max-entries:4096}")
+    private int maxEntries = 4096;
+
+    @Value("${dts.gossip.secret:}")
+    private String secret = "";
+
+    public ClockGossipService(LogicalClock logicalClock,
+                              VectorClockManager vectorClockManager,
+                              VersionVectorManager versionVectorManager) {
+        this.logicalClock = logicalClock;
+        this.vectorClockManager = vectorClockManager;
+        this.versionVectorManager = versionVectorManager;
+    }
+
+    /**
+     * @throws IllegalStateException 未配置 secret 且绑定的不是回环地址
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        InetAddress bind = bindAddress == null || bindAddress.isEmpty() ? null : InetAddress.getByName(bindAddress);
+        if (!isSigned() && (bind == null || !bind.isLoopbackAddress())) {
+            throw new IllegalStateException("dts.gossip.secret is required unless dts.gossip.bind-address "
+                                            + "is a loopback address");
+        }
+        socket = bind == null ? new DatagramSocket(port) : new DatagramSocket(new InetSocketAddress(bind, port));
+        members.addAll(parseSeeds(seeds));
+        receiverExecutor.execute(this::receiveLoop);
+
+        logger.info("Clock gossip started for node {} on port {}, seeds: {}, fanout: {}, authenticated: {}",
+                   logicalClock.getNodeId(), socket.getLocalPort(), members, fanout, isSigned());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (socket != null) {
+            socket.close();
+        }
+        receiverExecutor.shutdownNow();
+    }
+
+    /**
+     * 执行一轮Gossip：向随机选取的 fanout 个成员推送本节点状态
+     */
+    @Scheduled(fixedDelayString = "${dts.gossip.interval:1000}")
+    public void gossipRound() {
+        List<InetSocketAddress> targets = new ArrayList<>(members);
+        if (targets.isEmpty()) {
+            return;
+        }
+        Collections.shuffle(targets, ThreadLocalRandom.current());
+
+        byte[] payload = encode(GossipMessage.Type.PUSH);
+        if (payload == null) {
+            return;
+        }
+        for (InetSocketAddress target : targets.subList(0, Math.min(fanout, targets.size()))) {
+            send(payload, target);
+        }
+    }
+
+    /**
+     * 合并对端状态
+     * 只在对端携带新信息时调用管理器，避免推拉往返本身不断推进时钟
+     */
+    void mergeState(GossipMessage message) {
+        vectorClockManager.markAlive(message.getNodeId());
+        long peerTime = message.getLamportTime();
+        logicalClock.onPeerClockAdvance(message.getNodeId(), peerTime);
+        if (peerTime > logicalClock.getCurrentTime()) {
+            try {
+                logicalClock.sync(peerTime);
+            } catch (IllegalArgumentException e) {
+                // HLC漂移超限，向量时钟和版本向量仍然合并
+                logger.warn("Ignoring gossip clock {} from {}: {}", peerTime, message.getNodeId(), e.getMessage());
+            }
+        }
+
+        if (message.getVectorClock() != null) {
+            VectorClock peerClock = new VectorClock(message.getVectorClock());
+            if (hasNewEntries(message.getVectorClock(), vectorClockManager.getCurrentClock().getClock())) {
+                vectorClockManager.merge(peerClock);
+            }
+            vectorClockManager.notifyPeerClock(message.getNodeId(), peerClock);
+        }
+
+        if (message.getVersionVector() != null) {
+            VersionVector peerVector = new VersionVector(message.getVersionVector());
+            if (hasNewEntries(message.getVersionVector(), versionVectorManager.getCurrentVector().getVector())) {
+                versionVectorManager.merge(peerVector);
+            }
+            versionVectorManager.notifyPeerVector(message.getNodeId(), peerVector);
+        }
+    }
+
+    /**
+     * 获取当前成员列表
+     */
+    public Set<InetSocketAddress> getMembers() {
+        return Collections.unmodifiableSet(members);
+    }
+
+    /**
+     * 获取实际监听的端口（配置为0时由系统分配）
+     */
+    public int getLocalPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * 获取Gossip统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("port", getLocalPort());
+        statistics.put("fanout", fanout);
+        statistics.put("members", members.size());
+        statistics.put("sentMessages", sentMessages.get());
+        statistics.put("receivedMessages", receivedMessages.get());
+        statistics.put("rejectedMessages", rejectedMessages.get());
+        return statistics;
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                handlePacket(packet);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    logger.error("Error receiving gossip message: {}", e.getMessage());
+                }
+            } catch (Exception e) {
+                logger.error("Error handling gossip message: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handlePacket(DatagramPacket packet) {
+        InetSocketAddress sender = (InetSocketAddress) packet.getSocketAddress();
+        int length = packet.getLength();
+        if (isSigned()) {
+            length -= MAC_LENGTH;
+            if (length <= 0 || !verify(packet.getData(), packet.getOffset(), length)) {
+                rejectedMessages.incrementAndGet();
+                logger.warn("Unauthenticated gossip message from {} dropped", sender);
+                return;
+            }
+        }
+
+        GossipMessage message;
+        try {
+            message = objectMapper.readValue(packet.getData(), packet.getOffset(), length, GossipMessage.class);
+        } catch (IOException e) {
+            rejectedMessages.incrementAndGet();
+            logger.warn("Malformed gossip message from {}: {}", sender, e.getMessage());
+            return;
+        }
+        if (!isValid(message)) {
+            rejectedMessages.incrementAndGet();
+            logger.warn("Invalid gossip message from {} dropped", sender);
+            return;
+        }
+
+        if (logicalClock.getNodeId().equals(message.getNodeId())) {
+            // 种子列表中包含自身地址
+            members.remove(sender);
+            return;
+        }
+
+        receivedMessages.incrementAndGet();
+        mergeState(message);
+
+        if (message.getType() == GossipMessage.Type.PUSH && addMember(sender)) {
+            byte[] reply = encode(GossipMessage.Type.REPLY);
+            if (reply != null) {
+                send(reply, sender);
+            }
+        }
+        logger.debug("Gossip {} from {} ({}) merged", message.getType(), message.getNodeId(), sender);
+    }
+
+    private byte[] encode(GossipMessage.Type type) {
+        GossipMessage message = new GossipMessage(type, logicalClock.getNodeId(),
+                logicalClock.getCurrentTime(),
+                vectorClockManager.getCurrentClock().getClock(),
+                versionVectorManager.getCurrentVector().getVector());
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(message);
+            if (isSigned()) {
+                byte[] mac = sign(payload, 0, payload.length);
+                payload = Arrays.copyOf(payload, payload.length + MAC_LENGTH);
+                System.arraycopy(mac, 0, payload, payload.length - MAC_LENGTH, MAC_LENGTH);
+            }
+            if (payload.length > MAX_DATAGRAM_SIZE) {
+                logger.warn("Gossip message too large ({} bytes), skipped", payload.length);
+                return null;
+            }
+            return payload;
+        } catch (IOException | GeneralSecurityException e) {
+            logger.error("Error encoding gossip message: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 加入成员列表，达到上限后不再接纳新的来源地址
+     *
+     * @return 来源地址是否为成员
+     */
+    private boolean addMember(InetSocketAddress sender) {
+        if (members.contains(sender)) {
+            return true;
+        }
+        if (members.size() >= maxMembers) {
+            logger.debug("Gossip member limit {} reached, {} not added", maxMembers, sender);
+            return false;
+        }
+        members.add(sender);
+        return true;
+    }
+
+    private boolean isValid(GossipMessage message) {
+        String peerNodeId = message.getNodeId();
+        return message.getType() != null
+                && peerNodeId != null && !peerNodeId.isEmpty() && peerNodeId.length() <= MAX_NODE_ID_LENGTH
+                && message.getLamportTime() >= 0 && message.getLamportTime() <= TotalOrderTimestamp.MAX_LAMPORT
+                && isValidEntries(message.getVectorClock())
+                && isValidEntries(message.getVersionVector());
+    }
+
+    private boolean isValidEntries(Map<String, Long> entries) {
+        if (entries == null) {
+            return true;
+        }
+        if (entries.size() > maxEntries) {
+            return false;
+        }
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().length() > MAX_NODE_ID_LENGTH
+                    || entry.getValue() == null || entry.getValue() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSigned() {
+        return secret != null && !secret.isEmpty();
+    }
+
+    private byte[] sign(byte[] data, int offset, int length) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+        mac.update(data, offset, length);
+        return mac.doFinal();
+    }
+
+    private boolean verify(byte[] data, int offset, int length) {
+        try {
+            byte[] expected = sign(data, offset, length);
+            byte[] actual = Arrays.copyOfRange(data, offset + length, offset + length + MAC_LENGTH);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (GeneralSecurityException e) {
+            logger.error("Error verifying gossip message: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void send(byte[] payload, InetSocketAddress target) {
+        try {
+            socket.send(new DatagramPacket(payload, payload.length, target));
+            sentMessages.incrementAndGet();
+        } catch (IOException e) {
+            logger.error("Error sending gossip message to {}: {}", target, e.getMessage());
+        }
+    }
+
+    private static boolean hasNewEntries(Map<String, Long> received, Map<String, Long> current) {
+        if (received == null) {
+            return false;
+        }
+        for (Map.Entry<String, Long> entry : received.entrySet()) {
+            if (entry.getValue() > current.getOrDefault(entry.getKey(), 0L)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<InetSocketAddress> parseSeeds(String seeds) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        if (seeds == null || seeds.trim().isEmpty()) {
+            return addresses;
+        }
+        for (String seed : seeds.split(",")) {
+            String trimmed = seed.trim();
+            int separator = trimmed.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid gossip seed (expected host:port): " + trimmed);
+            }
+            addresses.add(new InetSocketAddress(trimmed.substring(0, separator),
+                                                Integer.parseInt(trimmed.substring(separator + 1))));
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.dts.gossip;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gossip消息
+ * 携带发送节点的Lamport时间、向量时钟和版本向量
+ *
+ * @author DTS Team
+ */
+public class GossipMessage {
+
+    private Type type;
+    private String nodeId;
+    private long lamportTime;
+    private Map<String, Long> vectorClock = new HashMap<>();
+    private Map<String, Long> versionVector = new HashMap<>();
+
+    public GossipMessage() {
+    }
+
+    public GossipMessage(Type type, String nodeId, long lamportTime,
+                         Map<String, Long> vectorClock, Map<String, Long> versionVector) {
+        this.type = type;
+        this.nodeId = nodeId;
+        this.lamportTime = lamportTime;
+        this.vectorClock = vectorClock;
+        this.versionVector = versionVector;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public long getLamportTime() {
+        return lamportTime;
+    }
+
+    public void setLamportTime(long lamportTime) {
+        this.lamportTime = lamportTime;
+    }
+
+    public Map<String, Long> getVectorClock() {
+        return vectorClock;
+    }
+
+    public void setVectorClock(Map<String, Long> vectorClock) {
+        this.vectorClock = vectorClock;
+    }
+
+    public Map<String, Long> getVersionVector() {
+        return versionVector;
+    }
+
+    public void setVersionVector(Map<String, Long> versionVector) {
+        this.versionVector = versionVector;
+    }
+
+    @Override
+    public String toString() {
+        return "GossipMessage{" +
+                "type=" + type +
+                ", nodeId='" + nodeId + '\'' +
+                ", lamportTime=" + lamportTime +
+                ", vectorClock=" + vectorClock +
+                ", versionVector=" + versionVector +
+                '}';
+    }
+
+    /**
+     * 消息类型
+     */
+    public enum Type {
+        PUSH,   // 主动推送，接收方合并后回复自身状态
+        REPLY   // 推拉中的回复，接收方只合并不再回复
+    }
+}
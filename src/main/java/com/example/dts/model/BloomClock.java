@@ -0,0 +1,263 @@
+package com.example.dts.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 布隆时钟（Bloom Clock）
+ * 固定大小的计数过滤器：每个事件按 (节点ID, 序号) 哈希到 hashes 个单元并各加一，合并为逐单元取最大值。
+ * 内存与节点数无关，比较为 O(单元数)
+ *
+ * 比较结果是概率性的：
+ * <ul>
+ *   <li>存在 A 的单元大于 B 时，A 确定不在 B 之前，没有误判</li>
+ *   <li>A 的所有单元都不大于 B 时判定为 BEFORE，可能是误判，误判概率由 compareWithProbability 给出</li>
+ * </ul>
+ * 适合只需要快速排除因果关系的分析节点；需要精确结果时使用 VectorClock
+ *
+ * @author DTS Team
+ */
+public final class BloomClock implements CausalityTracker<BloomClock> {
+
+    private final long[] cells;
+    private final int hashes;
+
+    private BloomClock(long[] cells, int hashes) {
+        this.cells = cells;
+        this.hashes = hashes;
+    }
+
+    /**
+     * 创建空的布隆时钟
+     *
+     * @param cellCount 单元数
+     * @param hashes 每个事件更新的单元数
+     */
+    public static BloomClock create(int cellCount, int hashes) {
+        if (cellCount <= 0 || hashes <= 0 || hashes > cellCount) {
+            throw new IllegalArgumentException("Invalid bloom clock size: cells=" + cellCount + ", hashes=" + hashes);
+        }
+        return new BloomClock(new long[cellCount], hashes);
+    }
+
+    /**
+     * 按期望的事件数和误判率确定大小（标准布隆过滤器公式）
+     *
+     * @param expectedEvents 比较窗口内预计的事件数
+     * @param falsePositiveRate 期望的误判率，0 到 1 之间
+     */
+    public static BloomClock withFalsePositiveRate(long expectedEvents, double falsePositiveRate) {
+        if (expectedEvents <= 0 || falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0) {
+            throw new IllegalArgumentException("Invalid bloom clock parameters: events=" + expectedEvents
+                    + ", falsePositiveRate=" + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        int cellCount = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.ceil(-expectedEvents * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        int hashes = (int) Math.max(1, Math.round((double) cellCount / expectedEvents * ln2));
+        return create(cellCount, Math.min(hashes, cellCount));
+    }
+
+    /**
+     * 由单元数组构造（供同包的编解码使用，数组不得再被修改）
+     */
+    static BloomClock fromCells(long[] cells, int hashes) {
+        if (cells.length == 0 || hashes <= 0 || hashes > cells.length) {
+            throw new IllegalArgumentException("Invalid bloom clock size: cells=" + cells.length + ", hashes=" + hashes);
+        }
+        return new BloomClock(cells, hashes);
+    }
+
+    /**
+     * 记录节点的一个事件
+     *
+     * @param sequence 该节点的事件序号（如本节点的向量时钟值），同一事件必须使用相同序号
+     */
+    public BloomClock event(String nodeId, long sequence) {
+        long[] updated = cells.clone();
+        long hash = mix(fnv1a(nodeId) ^ mix(sequence));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            updated[Math.floorMod(h1 + i * h2, updated.length)]++;
+        }
+        return new BloomClock(updated, hashes);
+    }
+
+    /**
+     * 逐单元取最大值
+     */
+    @Override
+    public BloomClock merge(BloomClock other) {
+        checkCompatible(other);
+        long[] merged = new long[cells.length];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = Math.max(cells[i], other.cells[i]);
+        }
+        return new BloomClock(merged, hashes);
+    }
+
+    @Override
+    public VectorClock.ClockRelation compareTo(BloomClock other) {
+        checkCompatible(other);
+        boolean less = false;
+        boolean greater = false;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] < other.cells[i]) {
+                less = true;
+            } else if (cells[i] > other.cells[i]) {
+                greater = true;
+            }
+            if (less && greater) {
+                return VectorClock.ClockRelation.CONCURRENT;
+            }
+        }
+        if (less) {
+            return VectorClock.ClockRelation.BEFORE;
+        }
+        return greater ? VectorClock.ClockRelation.AFTER : VectorClock.ClockRelation.EQUAL;
+    }
+
+    /**
+     * 比较并给出结果为误判的估计概率
+     * CONCURRENT 是确定的，概率为0；BEFORE/AFTER/EQUAL 的概率按 (1 - (1 - 1/m)^ΣB)^ΣA 估计，
+     * 即 A 的各次单元更新都恰好落在 B 已计数的单元中的概率（A 为较小一方）
+     */
+    public Comparison compareWithProbability(BloomClock other) {
+        VectorClock.ClockRelation relation = compareTo(other);
+        double probability;
+        switch (relation) {
+            case BEFORE:
+            case EQUAL:
+                probability = falsePositiveProbability(this, other);
+                break;
+            case AFTER:
+                probability = falsePositiveProbability(other, this);
+                break;
+            default:
+                probability = 0.0;
+        }
+        return new Comparison(relation, probability);
+    }
+
+    /**
+     * 检查是否确定不在另一个时钟之前（没有误判）
+     */
+    public boolean definitelyNotBefore(BloomClock other) {
+        VectorClock.ClockRelation relation = compareTo(other);
+        return relation != VectorClock.ClockRelation.BEFORE && relation != VectorClock.ClockRelation.EQUAL;
+    }
+
+    @Override
+    public byte[] encode() {
+        return ClockCodec.encode(this);
+    }
+
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    /**
+     * 已记录的事件数（单元计数之和除以每个事件更新的单元数）
+     */
+    public long getEventCount() {
+        return sum() / hashes;
+    }
+
+    long[] cells() {
+        return cells;
+    }
+
+    private long sum() {
+        long sum = 0L;
+        for (long cell : cells) {
+            sum += cell;
+        }
+        return sum;
+    }
+
+    private static double falsePositiveProbability(BloomClock smaller, BloomClock larger) {
+        long smallerSum = smaller.sum();
+        if (smallerSum == 0L) {
+            return 0.0;
+        }
+        double occupied = 1.0 - Math.pow(1.0 - 1.0 / larger.cells.length, larger.sum());
+        return Math.pow(occupied, smallerSum);
+    }
+
+    private void checkCompatible(BloomClock other) {
+        if (cells.length != other.cells.length || hashes != other.hashes) {
+            throw new IllegalArgumentException("Bloom clocks have different sizes: "
+                    + cells.length + "/" + hashes + " vs " + other.cells.length + "/" + other.hashes);
+        }
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        BloomClock that = (BloomClock) obj;
+        return hashes == that.hashes && Arrays.equals(cells, that.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * hashes + Arrays.hashCode(cells);
+    }
+
+    @Override
+    public String toString() {
+        return "BloomClock{cells=" + cells.length + ", hashes=" + hashes + ", events=" + getEventCount() + "}";
+    }
+
+    /**
+     * 带误判概率的比较结果
+     */
+    public static final class Comparison {
+        private final VectorClock.ClockRelation relation;
+        private final double falsePositiveProbability;
+
+        Comparison(VectorClock.ClockRelation relation, double falsePositiveProbability) {
+            this.relation = relation;
+            this.falsePositiveProbability = falsePositiveProbability;
+        }
+
+        public VectorClock.ClockRelation getRelation() {
+            return relation;
+        }
+
+        /**
+         * 结果为误判的估计概率，CONCURRENT 时为0
+         */
+        public double getFalsePositiveProbability() {
+            return falsePositiveProbability;
+        }
+
+        @Override
+        public String toString() {
+            return relation + "(p_fp=" + falsePositiveProbability + ")";
+        }
+    }
+}
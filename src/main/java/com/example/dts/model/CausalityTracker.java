@@ -0,0 +1,49 @@
+package com.example.dts.model;
+
+/**
+ * 因果关系追踪器
+ * 向量时钟、区间树时钟等实现共用的比较与合并接口，调用方可以按部署规模选择实现
+ *
+ * 实现必须是不可变的：merge 返回新对象
+ *
+ * @param <T> 具体的追踪器类型，只与同类型比较和合并
+ * @author DTS Team
+ */
+public interface CausalityTracker<T extends CausalityTracker<T>> {
+
+    /**
+     * 比较与另一个追踪器的因果关系
+     */
+    VectorClock.ClockRelation compareTo(T other);
+
+    /**
+     * 合并另一个追踪器已知的事件（不产生新事件）
+     */
+    T merge(T other);
+
+    /**
+     * 紧凑二进制编码，见 ClockCodec
+     */
+    byte[] encode();
+
+    /**
+     * 检查是否发生在另一个追踪器之前
+     */
+    default boolean happensBefore(T other) {
+        return compareTo(other) == VectorClock.ClockRelation.BEFORE;
+    }
+
+    /**
+     * 检查是否发生在另一个追踪器之后
+     */
+    default boolean happensAfter(T other) {
+        return compareTo(other) == VectorClock.ClockRelation.AFTER;
+    }
+
+    /**
+     * 检查是否与另一个追踪器并发
+     */
+    default boolean isConcurrent(T other) {
+        return compareTo(other) == VectorClock.ClockRelation.CONCURRENT;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.dts.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 向量时钟和版本向量的二进制编解码
+ *
+ * 格式（版本1）：
+ * <pre>
+ * [版本号:1字节][标志:1字节][条目数:varint]
+ * 每个条目：[节点ID长度:varint][节点ID:UTF-8][值:varint]
+ * </pre>
+ * 节点ID在每个载荷内只出现一次，条目按节点ID升序写出。
+ * 解码直接填充有序的条目数组，不经过 Map 和装箱
+ *
+ * 区间树时钟（标志 FLAG_ITC）：
+ * <pre>
+ * [版本号:1字节][标志:1字节][身份树][事件树]
+ * 身份树前序遍历，每个节点1字节：0、1为叶子，2为内部节点
+ * 事件树前序遍历，每个节点一个varint：值左移一位，最低位为1表示内部节点
+ * </pre>
+ *
+ * 布隆时钟（标志 FLAG_BLOOM）：
+ * <pre>
+ * [版本号:1字节][标志:1字节][单元数:varint][哈希数:varint][每个单元的计数:varint]
+ * </pre>
+ *
+ * 兼容读取：首个非空白字节为 '{' 的载荷按历史JSON格式解析。
+ * 对端之间的增量同步在 PeerDeltaTracker 中以变化条目的形式传输，不使用二进制增量格式；
+ * 核对增量基准的摘要为本编码的 SHA-256 前64位（见 digest）
+ *
+ * @author DTS Team
+ */
+public final class ClockCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte FLAG_ITC = 2;
+    public static final byte FLAG_BLOOM = 4;
+
+    private static final TypeReference<Map<String, Long>> JSON_MAP_TYPE = new TypeReference<Map<String, Long>>() {};
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final int HEADER_SIZE = 2;
+    private static final int MAX_TREE_DEPTH = 256;
+
+    private ClockCodec() {
+    }
+
+    public static byte[] encode(VectorClock clock) {
+        return encode(clock.entries());
+    }
+
+    public static byte[] encode(VersionVector vector) {
+        return encode(vector.entries());
+    }
+
+    /**
+     * 向量时钟的摘要：编码（条目按节点ID升序）的 SHA-256 前64位，用于核对增量同步的基准
+     */
+    public static long digest(VectorClock clock) {
+        return digest(encode(clock));
+    }
+
+    public static long digest(VersionVector vector) {
+        return digest(encode(vector));
+    }
+
+    public static byte[] encode(IntervalTreeClock clock) {
+        Output output = new Output(HEADER_SIZE + clock.size() * 2);
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte(FLAG_ITC);
+        writeId(output, clock.id());
+        writeEvent(output, clock.eventTree());
+        return output.toByteArray();
+    }
+
+    public static byte[] encode(BloomClock clock) {
+        long[] cells = clock.cells();
+        Output output = new Output(HEADER_SIZE + 10 + cells.length);
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte(FLAG_BLOOM);
+        output.writeVarint(cells.length);
+        output.writeVarint(clock.getHashes());
+        for (long cell : cells) {
+            output.writeVarint(cell);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * 解码载荷，兼容历史JSON格式
+     *
+     * @throws IllegalArgumentException 载荷格式错误时
+     */
+    public static VectorClock decodeVectorClock(byte[] data) {
+        return VectorClock.fromEntries(decode(data));
+    }
+
+    public static VersionVector decodeVersionVector(byte[] data) {
+        return VersionVector.fromEntries(decode(data));
+    }
+
+    /**
+     * 解码区间树时钟
+     *
+     * @throws IllegalArgumentException 载荷格式错误或不是区间树时钟
+     */
+    public static IntervalTreeClock decodeIntervalTreeClock(byte[] data) {
+        Input input = new Input(data);
+        int version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported clock format version: " + version);
+        }
+        if ((input.readByte() & FLAG_ITC) == 0) {
+            throw new IllegalArgumentException("Payload is not an interval tree clock");
+        }
+        IntervalTreeClock.Id id = readId(input, 0);
+        IntervalTreeClock.Event event = readEvent(input, 0);
+        if (input.remaining() != 0) {
+            throw new IllegalArgumentException("Trailing bytes in clock payload");
+        }
+        return new IntervalTreeClock(id, event);
+    }
+
+    /**
+     * 解码布隆时钟
+     *
+     * @throws IllegalArgumentException 载荷格式错误或不是布隆时钟
+     */
+    public static BloomClock decodeBloomClock(byte[] data) {
+        Input input = new Input(data);
+        int version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported clock format version: " + version);
+        }
+        if ((input.readByte() & FLAG_BLOOM) == 0) {
+            throw new IllegalArgumentException("Payload is not a bloom clock");
+        }
+        long cellCount = input.readVarint();
+        long hashes = input.readVarint();
+        if (cellCount <= 0 || cellCount > input.remaining() || hashes > cellCount) {
+            throw new IllegalArgumentException("Truncated clock payload");
+        }
+        long[] cells = new long[(int) cellCount];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = input.readVarint();
+        }
+        if (input.remaining() != 0) {
+            throw new IllegalArgumentException("Trailing bytes in clock payload");
+        }
+        return BloomClock.fromCells(cells, (int) hashes);
+    }
+
+    /**
+     * 解码事件记录中存储的文本（历史JSON）
+     */
+    public static VectorClock decodeVectorClock(String text) {
+        return decodeVectorClock(textToBytes(text));
+    }
+
+    public static VersionVector decodeVersionVector(String text) {
+        return decodeVersionVector(textToBytes(text));
+    }
+
+    private static long digest(byte[] encoded) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(encoded);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        long digest = 0L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            digest = (digest << 8) | (hash[i] & 0xFFL);
+        }
+        return digest;
+    }
+
+    private static byte[] textToBytes(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static byte[] encode(ClockEntries entries) {
+        int count = entries.size();
+        Output output = new Output(HEADER_SIZE + 5 + count * 16);
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte(0);
+        output.writeVarint(count);
+
+        for (int i = 0; i < count; i++) {
+            byte[] nodeId = entries.nodeIds[i].getBytes(StandardCharsets.UTF_8);
+            output.writeVarint(nodeId.length);
+            output.writeBytes(nodeId);
+            output.writeVarint(entries.values[i]);
+        }
+        return output.toByteArray();
+    }
+
+    private static ClockEntries decode(byte[] data) {
+        if (data.length == 0) {
+            return ClockEntries.EMPTY;
+        }
+        if (isJson(data)) {
+            return decodeJson(data);
+        }
+
+        Input input = new Input(data);
+        int version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported clock format version: " + version);
+        }
+        if (input.readByte() != 0) {
+            throw new IllegalArgumentException("Payload is not a vector clock");
+        }
+
+        long count = input.readVarint();
+        if (count < 0 || count > input.remaining()) {
+            throw new IllegalArgumentException("Truncated clock payload");
+        }
+        String[] nodeIds = new String[(int) count];
+        long[] entries = new long[(int) count];
+        for (int i = 0; i < nodeIds.length; i++) {
+            int length = (int) input.readVarint();
+            nodeIds[i] = input.readString(length);
+            entries[i] = input.readVarint();
+        }
+        if (input.remaining() != 0) {
+            throw new IllegalArgumentException("Trailing bytes in clock payload");
+        }
+        // 本编码器按节点ID升序写出，其他来源的载荷在这里排序
+        return ClockEntries.of(nodeIds, entries);
+    }
+
+    private static boolean isJson(byte[] data) {
+        for (byte b : data) {
+            if (b == '{') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static ClockEntries decodeJson(byte[] data) {
+        try {
+            return ClockEntries.fromMap(JSON_MAPPER.readValue(data, JSON_MAP_TYPE));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON clock payload: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeId(Output output, IntervalTreeClock.Id id) {
+        if (id == IntervalTreeClock.Id.ZERO) {
+            output.writeByte(0);
+        } else if (id == IntervalTreeClock.Id.ONE) {
+            output.writeByte(1);
+        } else {
+            output.writeByte(2);
+            writeId(output, id.left);
+            writeId(output, id.right);
+        }
+    }
+
+    private static IntervalTreeClock.Id readId(Input input, int depth) {
+        checkDepth(depth);
+        int tag = input.readByte();
+        switch (tag) {
+            case 0:
+                return IntervalTreeClock.Id.ZERO;
+            case 1:
+                return IntervalTreeClock.Id.ONE;
+            case 2:
+                IntervalTreeClock.Id left = readId(input, depth + 1);
+                return IntervalTreeClock.Id.of(left, readId(input, depth + 1));
+            default:
+                throw new IllegalArgumentException("Malformed interval tree clock id");
+        }
+    }
+
+    private static void writeEvent(Output output, IntervalTreeClock.Event event) {
+        output.writeVarint(event.value << 1 | (event.isLeaf() ? 0 : 1));
+        if (!event.isLeaf()) {
+            writeEvent(output, event.left);
+            writeEvent(output, event.right);
+        }
+    }
+
+    private static IntervalTreeClock.Event readEvent(Input input, int depth) {
+        checkDepth(depth);
+        long raw = input.readVarint();
+        long value = raw >>> 1;
+        if ((raw & 1) == 0) {
+            return IntervalTreeClock.Event.leaf(value);
+        }
+        IntervalTreeClock.Event left = readEvent(input, depth + 1);
+        return IntervalTreeClock.Event.node(value, left, readEvent(input, depth + 1));
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth > MAX_TREE_DEPTH) {
+            throw new IllegalArgumentException("Interval tree clock too deep");
+        }
+    }
+
+    /**
+     * 可增长的字节输出
+     */
+    private static final class Output {
+        private byte[] buffer;
+        private int position;
+
+        Output(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    /**
+     * 带边界检查的字节输入
+     */
+    private static final class Input {
+        private final byte[] data;
+        private int position;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            require(1);
+            return data[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in clock payload");
+        }
+
+        String readString(int length) {
+            require(length);
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        int remaining() {
+            return data.length - position;
+        }
+
+        private void require(int length) {
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalArgumentException("Truncated clock payload");
+            }
+        }
+    }
+}
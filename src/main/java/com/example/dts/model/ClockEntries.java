@@ -0,0 +1,356 @@
+package com.example.dts.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 向量的条目：按节点ID升序排列的节点ID数组与对应的值数组
+ * 比较和合并都是两个有序数组的归并循环，不经过 Map 和装箱；不存在的条目按0处理，
+ * 值为0的条目与不存在的条目区分，保持 size/getNodeIds/equals 的原有语义
+ *
+ * 节点ID只由持有它的向量引用，向量不可达后随之回收，条目数只与向量自身的大小有关，
+ * 不受进程内出现过的节点ID总数影响（Pod滚动更新不会让长期存活的时钟变大）。
+ * 值发生变化而节点集合不变时新旧条目共享同一个节点ID数组，比较时可以跳过节点ID的比对
+ *
+ * 数组一经发布即不再修改，所有写操作都返回新对象
+ *
+ * @author DTS Team
+ */
+final class ClockEntries {
+
+    static final ClockEntries EMPTY = new ClockEntries(new String[0], new long[0]);
+
+    static final int LESS = 1;
+    static final int GREATER = 2;
+    static final int BOTH = LESS | GREATER;
+
+    final String[] nodeIds;
+    final long[] values;
+
+    ClockEntries(String[] nodeIds, long[] values) {
+        this.nodeIds = nodeIds;
+        this.values = values;
+    }
+
+    /**
+     * 由未排序的条目构造，节点ID重复时取最大值
+     */
+    static ClockEntries of(String[] nodeIds, long[] values) {
+        int length = nodeIds.length;
+        boolean sorted = true;
+        for (int i = 0; i < length; i++) {
+            if (nodeIds[i] == null) {
+                throw new IllegalArgumentException("Node id must not be null");
+            }
+            if (i > 0 && nodeIds[i - 1].compareTo(nodeIds[i]) >= 0) {
+                sorted = false;
+            }
+        }
+        if (sorted) {
+            return length == 0 ? EMPTY : new ClockEntries(nodeIds, values);
+        }
+
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < length; i++) {
+            map.merge(nodeIds[i], values[i], Math::max);
+        }
+        return fromMap(map);
+    }
+
+    /**
+     * 值按 Number 读取：未指定类型反序列化的JSON中较小的值是 Integer
+     */
+    static ClockEntries fromMap(Map<String, ? extends Number> map) {
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+        String[] nodeIds = map.keySet().toArray(new String[0]);
+        for (String nodeId : nodeIds) {
+            if (nodeId == null) {
+                throw new IllegalArgumentException("Node id must not be null");
+            }
+        }
+        Arrays.sort(nodeIds);
+        long[] values = new long[nodeIds.length];
+        for (int i = 0; i < nodeIds.length; i++) {
+            Number value = map.get(nodeIds[i]);
+            values[i] = value != null ? value.longValue() : 0L;
+        }
+        return new ClockEntries(nodeIds, values);
+    }
+
+    /**
+     * 读取节点的值，不存在时为0
+     */
+    long get(String nodeId) {
+        int index = indexOf(nodeId);
+        return index >= 0 ? values[index] : 0L;
+    }
+
+    int size() {
+        return nodeIds.length;
+    }
+
+    Map<String, Long> toMap() {
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < nodeIds.length; i++) {
+            map.put(nodeIds[i], values[i]);
+        }
+        return map;
+    }
+
+    Set<String> nodeIdSet() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(nodeIds)));
+    }
+
+    /**
+     * 返回设置了节点的值的新条目
+     */
+    ClockEntries with(String nodeId, long value) {
+        if (nodeId == null) {
+            throw new IllegalArgumentException("Node id must not be null");
+        }
+        int index = indexOf(nodeId);
+        if (index >= 0) {
+            long[] copy = values.clone();
+            copy[index] = value;
+            return new ClockEntries(nodeIds, copy);
+        }
+
+        int insertAt = -index - 1;
+        String[] ids = new String[nodeIds.length + 1];
+        long[] copy = new long[values.length + 1];
+        System.arraycopy(nodeIds, 0, ids, 0, insertAt);
+        System.arraycopy(values, 0, copy, 0, insertAt);
+        ids[insertAt] = nodeId;
+        copy[insertAt] = value;
+        System.arraycopy(nodeIds, insertAt, ids, insertAt + 1, nodeIds.length - insertAt);
+        System.arraycopy(values, insertAt, copy, insertAt + 1, values.length - insertAt);
+        return new ClockEntries(ids, copy);
+    }
+
+    /**
+     * 返回节点的值加一后的新条目
+     */
+    ClockEntries increment(String nodeId) {
+        return with(nodeId, get(nodeId) + 1);
+    }
+
+    /**
+     * 逐项取最大值，任一方存在的条目在结果中存在
+     */
+    static ClockEntries mergeMax(ClockEntries a, ClockEntries b) {
+        if (a.nodeIds == b.nodeIds) {
+            long[] merged = new long[a.values.length];
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] = Math.max(a.values[i], b.values[i]);
+            }
+            return new ClockEntries(a.nodeIds, merged);
+        }
+
+        int union = unionSize(a.nodeIds, b.nodeIds);
+        // 一方已包含全部节点时沿用它的节点ID数组（已发布的数组不再写入）
+        String[] shared = union == a.nodeIds.length ? a.nodeIds
+                : union == b.nodeIds.length ? b.nodeIds : null;
+        String[] ids = shared != null ? shared : new String[union];
+        long[] merged = new long[union];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.nodeIds.length || j < b.nodeIds.length) {
+            int order = order(a.nodeIds, i, b.nodeIds, j);
+            String nodeId = order <= 0 ? a.nodeIds[i] : b.nodeIds[j];
+            if (order < 0) {
+                merged[k] = a.values[i++];
+            } else if (order > 0) {
+                merged[k] = b.values[j++];
+            } else {
+                merged[k] = Math.max(a.values[i++], b.values[j++]);
+            }
+            if (shared == null) {
+                ids[k] = nodeId;
+            }
+            k++;
+        }
+        return new ClockEntries(ids, merged);
+    }
+
+    /**
+     * 逐项取最小值，不存在的条目按0处理，结果只保留大于0的条目
+     */
+    static ClockEntries mergeMin(ClockEntries a, ClockEntries b) {
+        int length = Math.min(a.nodeIds.length, b.nodeIds.length);
+        String[] ids = new String[length];
+        long[] merged = new long[length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.nodeIds.length && j < b.nodeIds.length) {
+            int order = compareIds(a.nodeIds[i], b.nodeIds[j]);
+            if (order < 0) {
+                i++;
+            } else if (order > 0) {
+                j++;
+            } else {
+                long min = Math.min(a.values[i], b.values[j]);
+                if (min > 0L) {
+                    ids[k] = a.nodeIds[i];
+                    merged[k++] = min;
+                }
+                i++;
+                j++;
+            }
+        }
+        return truncate(ids, merged, k);
+    }
+
+    /**
+     * 返回 a 中相对 base 有变化的条目（base 中不存在或值不同），用于增量同步
+     */
+    static ClockEntries diff(ClockEntries a, ClockEntries base) {
+        String[] ids = new String[a.nodeIds.length];
+        long[] changed = new long[a.nodeIds.length];
+        int j = 0;
+        int k = 0;
+        for (int i = 0; i < a.nodeIds.length; i++) {
+            String nodeId = a.nodeIds[i];
+            while (j < base.nodeIds.length && compareIds(base.nodeIds[j], nodeId) < 0) {
+                j++;
+            }
+            boolean same = j < base.nodeIds.length && compareIds(base.nodeIds[j], nodeId) == 0
+                    && base.values[j] == a.values[i];
+            if (!same) {
+                ids[k] = nodeId;
+                changed[k++] = a.values[i];
+            }
+        }
+        return truncate(ids, changed, k);
+    }
+
+    /**
+     * 比较两个向量，返回 LESS（a有条目小于b）和 GREATER（a有条目大于b）的组合
+     * 单次归并、不分配对象，结果确定为 BOTH（并发/冲突）时立即返回
+     */
+    static int compare(ClockEntries a, ClockEntries b) {
+        int flags = 0;
+        if (a.nodeIds == b.nodeIds) {
+            for (int i = 0; i < a.values.length; i++) {
+                flags |= flag(a.values[i], b.values[i]);
+                if (flags == BOTH) {
+                    return BOTH;
+                }
+            }
+            return flags;
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i < a.nodeIds.length || j < b.nodeIds.length) {
+            int order = order(a.nodeIds, i, b.nodeIds, j);
+            if (order < 0) {
+                flags |= flag(a.values[i++], 0L);
+            } else if (order > 0) {
+                flags |= flag(0L, b.values[j++]);
+            } else {
+                flags |= flag(a.values[i++], b.values[j++]);
+            }
+            if (flags == BOTH) {
+                return BOTH;
+            }
+        }
+        return flags;
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    long max() {
+        long max = 0L;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] > max) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 条目完全相同（包括值为0的条目是否存在）
+     */
+    static boolean equals(ClockEntries a, ClockEntries b) {
+        return Arrays.equals(a.values, b.values)
+                && (a.nodeIds == b.nodeIds || Arrays.equals(a.nodeIds, b.nodeIds));
+    }
+
+    /**
+     * 与 Map.hashCode 相同的计算方式
+     */
+    int mapHashCode() {
+        int hash = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            hash += nodeIds[i].hashCode() ^ Long.hashCode(values[i]);
+        }
+        return hash;
+    }
+
+    private int indexOf(String nodeId) {
+        if (nodeId == null) {
+            return -1;
+        }
+        return Arrays.binarySearch(nodeIds, nodeId);
+    }
+
+    private static int flag(long x, long y) {
+        return x < y ? LESS : x > y ? GREATER : 0;
+    }
+
+    private static int order(String[] a, int i, String[] b, int j) {
+        if (i >= a.length) {
+            return 1;
+        }
+        if (j >= b.length) {
+            return -1;
+        }
+        return compareIds(a[i], b[j]);
+    }
+
+    private static int compareIds(String x, String y) {
+        return x == y ? 0 : x.compareTo(y);
+    }
+
+    private static int unionSize(String[] a, String[] b) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length || j < b.length) {
+            int order = order(a, i, b, j);
+            if (order <= 0) {
+                i++;
+            }
+            if (order >= 0) {
+                j++;
+            }
+            size++;
+        }
+        return size;
+    }
+
+    private static ClockEntries truncate(String[] ids, long[] values, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (length == ids.length) {
+            return new ClockEntries(ids, values);
+        }
+        return new ClockEntries(Arrays.copyOf(ids, length), Arrays.copyOf(values, length));
+    }
+}
@@ -0,0 +1,437 @@
+package com.example.dts.model;
+
+/**
+ * 区间树时钟（Interval Tree Clock）
+ * 不依赖全局节点ID的因果关系追踪器，时钟大小随活跃副本数而不是历史节点数变化，适合副本频繁扩缩容的部署
+ *
+ * 时钟由身份树（本副本拥有的区间）和事件树（已知事件的区间计数）组成：
+ * <ul>
+ *   <li>seed：第一个副本持有整个区间</li>
+ *   <li>fork：新副本加入时从已有副本分出一半区间</li>
+ *   <li>event：在本副本拥有的区间上记录事件</li>
+ *   <li>join：副本退出时把区间和事件交还给另一个副本，身份树随之收缩</li>
+ *   <li>peek/merge：消息只携带事件树（匿名时钟），接收方合并后保留自身身份</li>
+ * </ul>
+ * 两棵树都保持规范化形式，结构相同即时钟相同。实现不可变，所有操作返回新时钟
+ *
+ * @author DTS Team
+ */
+public final class IntervalTreeClock implements CausalityTracker<IntervalTreeClock> {
+
+    /**
+     * grow 时把事件树叶子展开为内部节点的代价，大于任何可能的树深，优先在已有节点上增长
+     */
+    private static final long EXPAND_COST = 1000L;
+
+    private final Id id;
+    private final Event event;
+
+    IntervalTreeClock(Id id, Event event) {
+        this.id = id;
+        this.event = event;
+    }
+
+    /**
+     * 创建持有整个区间的初始时钟，整个集群只应调用一次，其余副本通过 fork 获得身份
+     */
+    public static IntervalTreeClock seed() {
+        return new IntervalTreeClock(Id.ONE, Event.ZERO);
+    }
+
+    /**
+     * 分裂身份，返回两个事件相同、区间互不相交的时钟
+     * 第一个留给当前副本，第二个交给新加入的副本
+     */
+    public IntervalTreeClock[] fork() {
+        Id[] halves = id.split();
+        return new IntervalTreeClock[] {
+                new IntervalTreeClock(halves[0], event),
+                new IntervalTreeClock(halves[1], event)
+        };
+    }
+
+    /**
+     * 记录一个本地事件
+     *
+     * @throws IllegalStateException 匿名时钟不拥有区间，不能记录事件
+     */
+    public IntervalTreeClock event() {
+        if (id == Id.ZERO) {
+            throw new IllegalStateException("Anonymous interval tree clock cannot record events");
+        }
+        Event filled = fill(id, event);
+        if (!filled.equals(event)) {
+            return new IntervalTreeClock(id, filled);
+        }
+        return new IntervalTreeClock(id, grow(id, event).event);
+    }
+
+    /**
+     * 合并另一个时钟的身份和事件，用于副本退出时交还区间
+     *
+     * @throws IllegalArgumentException 两个时钟的区间重叠
+     */
+    public IntervalTreeClock join(IntervalTreeClock other) {
+        return new IntervalTreeClock(Id.sum(id, other.id), Event.join(event, other.event));
+    }
+
+    /**
+     * 只合并事件，保留本时钟的身份；接收消息时使用
+     */
+    @Override
+    public IntervalTreeClock merge(IntervalTreeClock other) {
+        return new IntervalTreeClock(id, Event.join(event, other.event));
+    }
+
+    /**
+     * 返回只包含事件树的匿名时钟，作为消息携带的时间戳
+     */
+    public IntervalTreeClock peek() {
+        return new IntervalTreeClock(Id.ZERO, event);
+    }
+
+    /**
+     * 接收消息：合并消息时钟后记录一个接收事件
+     */
+    public IntervalTreeClock receive(IntervalTreeClock message) {
+        return merge(message).event();
+    }
+
+    @Override
+    public VectorClock.ClockRelation compareTo(IntervalTreeClock other) {
+        boolean lessOrEqual = Event.leq(event, other.event);
+        boolean greaterOrEqual = Event.leq(other.event, event);
+        if (lessOrEqual && greaterOrEqual) {
+            return VectorClock.ClockRelation.EQUAL;
+        }
+        if (lessOrEqual) {
+            return VectorClock.ClockRelation.BEFORE;
+        }
+        if (greaterOrEqual) {
+            return VectorClock.ClockRelation.AFTER;
+        }
+        return VectorClock.ClockRelation.CONCURRENT;
+    }
+
+    @Override
+    public byte[] encode() {
+        return ClockCodec.encode(this);
+    }
+
+    /**
+     * 是否为匿名时钟（不拥有任何区间）
+     */
+    public boolean isAnonymous() {
+        return id == Id.ZERO;
+    }
+
+    /**
+     * 两棵树的节点总数，衡量时钟大小
+     */
+    public int size() {
+        return id.nodeCount() + event.nodeCount();
+    }
+
+    Id id() {
+        return id;
+    }
+
+    Event eventTree() {
+        return event;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        IntervalTreeClock that = (IntervalTreeClock) obj;
+        return id.equals(that.id) && event.equals(that.event);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id.hashCode() + event.hashCode();
+    }
+
+    /**
+     * 论文记法，例如 ((1,0), (0,1,0))
+     */
+    @Override
+    public String toString() {
+        return "IntervalTreeClock{(" + id + ", " + event + ")}";
+    }
+
+    /**
+     * 在拥有的区间上把事件树填平到相邻的最大值，能填平时不增加树的大小
+     */
+    private static Event fill(Id id, Event event) {
+        if (id == Id.ZERO) {
+            return event;
+        }
+        if (id == Id.ONE) {
+            return Event.leaf(event.max());
+        }
+        if (event.isLeaf()) {
+            return event;
+        }
+        if (id.left == Id.ONE) {
+            Event right = fill(id.right, event.right);
+            return Event.node(event.value, Event.leaf(Math.max(event.left.max(), right.min())), right);
+        }
+        if (id.right == Id.ONE) {
+            Event left = fill(id.left, event.left);
+            return Event.node(event.value, left, Event.leaf(Math.max(event.right.max(), left.min())));
+        }
+        return Event.node(event.value, fill(id.left, event.left), fill(id.right, event.right));
+    }
+
+    /**
+     * 无法填平时在拥有的区间上增加计数，选择代价（树的增长）最小的位置
+     */
+    private static Grown grow(Id id, Event event) {
+        if (event.isLeaf()) {
+            if (id == Id.ONE) {
+                return new Grown(Event.leaf(event.value + 1), 0L);
+            }
+            Grown expanded = grow(id, new Event(event.value, Event.ZERO, Event.ZERO));
+            return new Grown(expanded.event, expanded.cost + EXPAND_COST);
+        }
+        if (id.left == Id.ZERO) {
+            Grown right = grow(id.right, event.right);
+            return new Grown(Event.node(event.value, event.left, right.event), right.cost + 1);
+        }
+        if (id.right == Id.ZERO) {
+            Grown left = grow(id.left, event.left);
+            return new Grown(Event.node(event.value, left.event, event.right), left.cost + 1);
+        }
+        Grown left = grow(id.left, event.left);
+        Grown right = grow(id.right, event.right);
+        if (left.cost < right.cost) {
+            return new Grown(Event.node(event.value, left.event, event.right), left.cost + 1);
+        }
+        return new Grown(Event.node(event.value, event.left, right.event), right.cost + 1);
+    }
+
+    private static final class Grown {
+        final Event event;
+        final long cost;
+
+        Grown(Event event, long cost) {
+            this.event = event;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * 身份树：叶子为0（不拥有）或1（拥有），内部节点把区间等分为左右两半
+     * 叶子只有 ZERO 和 ONE 两个实例
+     */
+    static final class Id {
+
+        static final Id ZERO = new Id(null, null);
+        static final Id ONE = new Id(null, null);
+
+        final Id left;
+        final Id right;
+
+        private Id(Id left, Id right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * 规范化构造：(0,0) 为 0，(1,1) 为 1
+         */
+        static Id of(Id left, Id right) {
+            if (left == ZERO && right == ZERO) {
+                return ZERO;
+            }
+            if (left == ONE && right == ONE) {
+                return ONE;
+            }
+            return new Id(left, right);
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+
+        Id[] split() {
+            if (this == ZERO) {
+                return new Id[] {ZERO, ZERO};
+            }
+            if (this == ONE) {
+                return new Id[] {of(ONE, ZERO), of(ZERO, ONE)};
+            }
+            if (left == ZERO) {
+                Id[] halves = right.split();
+                return new Id[] {of(ZERO, halves[0]), of(ZERO, halves[1])};
+            }
+            if (right == ZERO) {
+                Id[] halves = left.split();
+                return new Id[] {of(halves[0], ZERO), of(halves[1], ZERO)};
+            }
+            return new Id[] {of(left, ZERO), of(ZERO, right)};
+        }
+
+        static Id sum(Id a, Id b) {
+            if (a == ZERO) {
+                return b;
+            }
+            if (b == ZERO) {
+                return a;
+            }
+            if (a.isLeaf() || b.isLeaf()) {
+                throw new IllegalArgumentException("Interval tree clock ids overlap");
+            }
+            return of(sum(a.left, b.left), sum(a.right, b.right));
+        }
+
+        int nodeCount() {
+            return isLeaf() ? 1 : 1 + left.nodeCount() + right.nodeCount();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Id)) return false;
+            Id that = (Id) obj;
+            return !isLeaf() && !that.isLeaf() && left.equals(that.left) && right.equals(that.right);
+        }
+
+        @Override
+        public int hashCode() {
+            if (this == ZERO) {
+                return 0;
+            }
+            if (this == ONE) {
+                return 1;
+            }
+            return 31 * left.hashCode() + right.hashCode() + 2;
+        }
+
+        @Override
+        public String toString() {
+            if (this == ZERO) {
+                return "0";
+            }
+            if (this == ONE) {
+                return "1";
+            }
+            return "(" + left + "," + right + ")";
+        }
+    }
+
+    /**
+     * 事件树：节点值是相对父节点的增量，叶子的区间计数为路径上的值之和
+     * 规范化形式下内部节点的两个子树中至少有一个最小值为0
+     */
+    static final class Event {
+
+        static final Event ZERO = new Event(0L, null, null);
+
+        final long value;
+        final Event left;
+        final Event right;
+
+        Event(long value, Event left, Event right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Event leaf(long value) {
+            return value == 0L ? ZERO : new Event(value, null, null);
+        }
+
+        /**
+         * 规范化构造：两个值相同的叶子合并为一个叶子，子树的公共最小值上提到父节点
+         */
+        static Event node(long value, Event left, Event right) {
+            if (left.isLeaf() && right.isLeaf() && left.value == right.value) {
+                return leaf(value + left.value);
+            }
+            long shared = Math.min(left.min(), right.min());
+            return new Event(value + shared, left.lift(-shared), right.lift(-shared));
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+
+        long min() {
+            return isLeaf() ? value : value + Math.min(left.min(), right.min());
+        }
+
+        long max() {
+            return isLeaf() ? value : value + Math.max(left.max(), right.max());
+        }
+
+        Event lift(long delta) {
+            if (delta == 0L) {
+                return this;
+            }
+            return isLeaf() ? leaf(value + delta) : new Event(value + delta, left, right);
+        }
+
+        static Event join(Event a, Event b) {
+            if (a.isLeaf() && b.isLeaf()) {
+                return leaf(Math.max(a.value, b.value));
+            }
+            if (a.isLeaf()) {
+                a = new Event(a.value, ZERO, ZERO);
+            }
+            if (b.isLeaf()) {
+                b = new Event(b.value, ZERO, ZERO);
+            }
+            if (a.value > b.value) {
+                return join(b, a);
+            }
+            long delta = b.value - a.value;
+            return node(a.value, join(a.left, b.left.lift(delta)), join(a.right, b.right.lift(delta)));
+        }
+
+        /**
+         * a 的每个区间计数都不大于 b
+         */
+        static boolean leq(Event a, Event b) {
+            if (a.isLeaf()) {
+                return a.value <= b.value;
+            }
+            if (a.value > b.value) {
+                return false;
+            }
+            if (b.isLeaf()) {
+                return leq(a.left.lift(a.value), b) && leq(a.right.lift(a.value), b);
+            }
+            return leq(a.left.lift(a.value), b.left.lift(b.value))
+                    && leq(a.right.lift(a.value), b.right.lift(b.value));
+        }
+
+        int nodeCount() {
+            return isLeaf() ? 1 : 1 + left.nodeCount() + right.nodeCount();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Event)) return false;
+            Event that = (Event) obj;
+            if (value != that.value || isLeaf() != that.isLeaf()) {
+                return false;
+            }
+            return isLeaf() || (left.equals(that.left) && right.equals(that.right));
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Long.hashCode(value);
+            return isLeaf() ? hash : 31 * (31 * hash + left.hashCode()) + right.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return isLeaf() ? String.valueOf(value) : "(" + value + "," + left + "," + right + ")";
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dts.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 矩阵时钟
+ * 每一行是本节点已知的某个节点的向量时钟，即"该节点至少已经看到了什么"
+ *
+ * 所有成员行的逐项最小值是因果稳定前沿：前沿覆盖的事件已被每个成员看到，
+ * 之后不会再有与之并发的新事件，可以安全地截断历史或删除记录。
+ * 行只由直接观察到的时钟更新，是各节点实际知识的下界，因此前沿是保守的
+ *
+ * @author DTS Team
+ */
+public class MatrixClock {
+
+    private final Map<String, VectorClock> rows = new ConcurrentHashMap<>();
+
+    /**
+     * 记录观察到的节点时钟，与已知的行合并
+     */
+    public void observe(String nodeId, VectorClock knownClock) {
+        rows.merge(nodeId, knownClock, VectorClock::merge);
+    }
+
+    /**
+     * 获取节点的行，未观察过时为空时钟
+     */
+    public VectorClock getRow(String nodeId) {
+        return rows.getOrDefault(nodeId, new VectorClock());
+    }
+
+    /**
+     * 只保留成员的行，退出的节点不再参与前沿计算
+     */
+    public void retainRows(Collection<String> members) {
+        rows.keySet().retainAll(members);
+    }
+
+    public Set<String> getNodeIds() {
+        return Collections.unmodifiableSet(rows.keySet());
+    }
+
+    /**
+     * 计算成员的因果稳定前沿
+     * 任一成员没有行时无法确认它看到了什么，前沿为空
+     */
+    public VectorClock stableFrontier(Collection<String> members) {
+        ClockEntries frontier = null;
+        for (String member : members) {
+            VectorClock row = rows.get(member);
+            if (row == null) {
+                return new VectorClock();
+            }
+            frontier = frontier == null ? row.entries() : ClockEntries.mergeMin(frontier, row.entries());
+        }
+        return frontier != null ? VectorClock.fromEntries(frontier) : new VectorClock();
+    }
+
+    /**
+     * 检查来源节点的事件是否已因果稳定
+     * 事件时钟中来源节点自身的计数被前沿覆盖即已稳定：每个成员合并过来源节点当时或之后的时钟
+     */
+    public static boolean isStable(String originNodeId, VectorClock eventClock, VectorClock frontier) {
+        return eventClock.getValue(originNodeId) <= frontier.getValue(originNodeId);
+    }
+}
@@ -16,7 +16,8 @@ import java.util.Map;
 @Entity
 @Table(name = "timestamp_events", indexes = {
     @Index(name = "idx_node_timestamp", columnList = "nodeId,lamportTimestamp"),
-    @Index(name = "idx_created_at", columnList = "createdAt")
+    @Index(name = "idx_created_at", columnList = "createdAt"),
+    @Index(name = "idx_total_order", columnList = "totalOrder")
 })
 public class TimestampEvent {
     
@@ -30,6 +31,12 @@ public class TimestampEvent {
     @Column(name = "lamport_timestamp", nullable = false)
     private Long lamportTimestamp;
     
+    /**
+     * 全序时间戳：(lamport, nodeIndex) 打包后的long，见 TotalOrderTimestamp
+     */
+    @Column(name = "total_order")
+    private Long totalOrder;
+    
     @Column(name = "vector_clock", columnDefinition = "JSON")
     private String vectorClock;
     
@@ -88,6 +95,14 @@ public class TimestampEvent {
         this.lamportTimestamp = lamportTimestamp;
     }
     
+    public Long getTotalOrder() {
+        return totalOrder;
+    }
+    
+    public void setTotalOrder(Long totalOrder) {
+        this.totalOrder = totalOrder;
+    }
+    
     public String getVectorClock() {
         return vectorClock;
     }
@@ -184,6 +199,7 @@ public class TimestampEvent {
                 "id=" + id +
                 ", nodeId='" + nodeId + '\'' +
                 ", lamportTimestamp=" + lamportTimestamp +
+                ", totalOrder=" + totalOrder +
                 ", eventType='" + eventType + '\'' +
                 ", createdAt=" + createdAt +
                 '}';
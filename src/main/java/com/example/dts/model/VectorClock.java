@@ -3,181 +3,174 @@ package com.example.dts.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 向量时钟实现
  * 用于追踪分布式系统中事件的因果关系
  * 
+ * 时钟值按节点ID排序存放在数组中（见 ClockEntries），比较与合并都是数组循环；
+ * 条目发布后不再修改，读操作无需加锁
+ * 
  * @author DTS Team
  */
-public class VectorClock {
+public class VectorClock implements CausalityTracker<VectorClock> {
     
-    private final Map<String, Long> clock;
+    private volatile ClockEntries values;
     
     public VectorClock() {
-        this.clock = new ConcurrentHashMap<>();
+        this.values = ClockEntries.EMPTY;
     }
     
     @JsonCreator
     public VectorClock(@JsonProperty("clock") Map<String, Long> clock) {
-        this.clock = new ConcurrentHashMap<>(clock != null ? clock : new HashMap<>());
+        this.values = ClockEntries.fromMap(clock);
     }
     
     /**
      * 复制构造函数
      */
     public VectorClock(VectorClock other) {
-        this.clock = new ConcurrentHashMap<>(other.clock);
+        this.values = other.values;
+    }
+    
+    private VectorClock(ClockEntries values) {
+        this.values = values;
+    }
+    
+    /**
+     * 由条目构造（供同包的编解码使用，条目不得再被修改）
+     */
+    static VectorClock fromEntries(ClockEntries values) {
+        return new VectorClock(values);
+    }
+    
+    /**
+     * 获取条目（供同包的编解码使用，只读）
+     */
+    ClockEntries entries() {
+        return values;
     }
     
     /**
      * 增加指定节点的时钟值
      */
-    public synchronized VectorClock tick(String nodeId) {
-        VectorClock newClock = new VectorClock(this);
-        newClock.clock.merge(nodeId, 1L, Long::sum);
-        return newClock;
+    public VectorClock tick(String nodeId) {
+        return new VectorClock(values.increment(nodeId));
     }
     
     /**
      * 与另一个向量时钟同步
      * 取每个节点的最大值，然后增加当前节点的时钟
      */
-    public synchronized VectorClock sync(VectorClock other, String currentNodeId) {
-        VectorClock newClock = new VectorClock();
-        
-        // 合并所有节点的时钟值，取最大值
-        for (String nodeId : this.clock.keySet()) {
-            long thisValue = this.clock.get(nodeId);
-            long otherValue = other.clock.getOrDefault(nodeId, 0L);
-            newClock.clock.put(nodeId, Math.max(thisValue, otherValue));
-        }
-        
-        for (String nodeId : other.clock.keySet()) {
-            if (!newClock.clock.containsKey(nodeId)) {
-                newClock.clock.put(nodeId, other.clock.get(nodeId));
-            }
-        }
-        
-        // 增加当前节点的时钟
-        newClock.clock.merge(currentNodeId, 1L, Long::sum);
-        
-        return newClock;
+    public VectorClock sync(VectorClock other, String currentNodeId) {
+        return new VectorClock(ClockEntries.mergeMax(values, other.values).increment(currentNodeId));
     }
     
     /**
-     * 比较两个向量时钟的关系
+     * 与另一个向量时钟合并
+     * 取每个节点的最大值，不增加任何节点的时钟
      */
-    public ClockRelation compareTo(VectorClock other) {
-        if (this.equals(other)) {
-            return ClockRelation.EQUAL;
-        }
-        
-        boolean thisLessOrEqual = true;
-        boolean otherLessOrEqual = true;
-        boolean hasStrictLess = false;
-        boolean hasStrictGreater = false;
-        
-        // 获取所有节点ID
-        Map<String, Long> allNodes = new HashMap<>(this.clock);
-        other.clock.forEach((k, v) -> allNodes.putIfAbsent(k, 0L));
-        
-        for (String nodeId : allNodes.keySet()) {
-            long thisValue = this.clock.getOrDefault(nodeId, 0L);
-            long otherValue = other.clock.getOrDefault(nodeId, 0L);
-            
-            if (thisValue < otherValue) {
-                thisLessOrEqual = true;
-                otherLessOrEqual = false;
-                hasStrictLess = true;
-            } else if (thisValue > otherValue) {
-                thisLessOrEqual = false;
-                otherLessOrEqual = true;
-                hasStrictGreater = true;
-            }
-        }
-        
-        if (thisLessOrEqual && hasStrictLess) {
-            return ClockRelation.BEFORE;
-        } else if (otherLessOrEqual && hasStrictGreater) {
-            return ClockRelation.AFTER;
-        } else {
-            return ClockRelation.CONCURRENT;
-        }
+    @Override
+    public VectorClock merge(VectorClock other) {
+        return new VectorClock(ClockEntries.mergeMax(values, other.values));
     }
     
     /**
-     * 检查是否发生在另一个时钟之前
+     * 计算相对基准变化的条目（增量），base.merge(diff) 与当前向量时钟相同
      */
-    public boolean happensBefore(VectorClock other) {
-        return this.compareTo(other) == ClockRelation.BEFORE;
+    public VectorClock diff(VectorClock base) {
+        return new VectorClock(ClockEntries.diff(values, base.values));
     }
     
     /**
-     * 检查是否发生在另一个时钟之后
+     * 比较两个向量时钟的关系
+     * 不存在的条目按0处理
      */
-    public boolean happensAfter(VectorClock other) {
-        return this.compareTo(other) == ClockRelation.AFTER;
+    @Override
+    public ClockRelation compareTo(VectorClock other) {
+        return relationOf(ClockEntries.compare(this.values, other.values));
     }
     
     /**
-     * 检查是否与另一个时钟并发
+     * 批量比较：一个时钟与多个时钟的关系，结果与 others 一一对应
+     * 冲突扫描等 O(n²) 场景下每对比较只读取一次本时钟的条目
      */
-    public boolean isConcurrent(VectorClock other) {
-        return this.compareTo(other) == ClockRelation.CONCURRENT;
+    public static ClockRelation[] compareAll(VectorClock clock, List<VectorClock> others) {
+        ClockEntries base = clock.values;
+        ClockRelation[] relations = new ClockRelation[others.size()];
+        for (int i = 0; i < relations.length; i++) {
+            relations[i] = relationOf(ClockEntries.compare(base, others.get(i).values));
+        }
+        return relations;
+    }
+    
+    private static ClockRelation relationOf(int flags) {
+        switch (flags) {
+            case 0:
+                return ClockRelation.EQUAL;
+            case ClockEntries.LESS:
+                return ClockRelation.BEFORE;
+            case ClockEntries.GREATER:
+                return ClockRelation.AFTER;
+            default:
+                return ClockRelation.CONCURRENT;
+        }
+    }
+    
+    @Override
+    public byte[] encode() {
+        return ClockCodec.encode(this);
     }
     
     /**
      * 获取指定节点的时钟值
      */
     public long getValue(String nodeId) {
-        return clock.getOrDefault(nodeId, 0L);
+        return values.get(nodeId);
     }
     
     /**
      * 设置指定节点的时钟值
      */
     public synchronized void setValue(String nodeId, long value) {
-        clock.put(nodeId, value);
+        values = values.with(nodeId, value);
     }
     
     /**
      * 获取时钟的副本
      */
     public Map<String, Long> getClock() {
-        return new HashMap<>(clock);
+        return values.toMap();
     }
     
     /**
      * 获取所有节点ID
      */
     public java.util.Set<String> getNodeIds() {
-        return clock.keySet();
+        return values.nodeIdSet();
     }
     
     /**
      * 检查是否为空
      */
     public boolean isEmpty() {
-        return clock.isEmpty();
+        return values.size() == 0;
     }
     
     /**
      * 获取时钟大小（节点数量）
      */
     public int size() {
-        return clock.size();
+        return values.size();
     }
     
     /**
      * 清空时钟
      */
     public synchronized void clear() {
-        clock.clear();
+        values = ClockEntries.EMPTY;
     }
     
     @Override
@@ -185,17 +178,17 @@ public class VectorClock {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         VectorClock that = (VectorClock) obj;
-        return Objects.equals(clock, that.clock);
+        return ClockEntries.equals(values, that.values);
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(clock);
+        return values.mapHashCode();
     }
     
     @Override
     public String toString() {
-        return "VectorClock{" + clock + "}";
+        return "VectorClock{" + getClock() + "}";
     }
     
     /**
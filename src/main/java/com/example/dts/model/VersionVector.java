@@ -3,79 +3,83 @@ package com.example.dts.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 版本向量实现
  * 用于多版本并发控制和冲突检测
  * 
+ * 版本号按节点ID排序存放在数组中（见 ClockEntries），比较、合并与冲突检测都是数组循环；
+ * 条目发布后不再修改，读操作无需加锁
+ * 
  * @author DTS Team
  */
 public class VersionVector {
     
-    private final Map<String, Long> vector;
+    private volatile ClockEntries values;
     
     public VersionVector() {
-        this.vector = new ConcurrentHashMap<>();
+        this.values = ClockEntries.EMPTY;
     }
     
     @JsonCreator
     public VersionVector(@JsonProperty("vector") Map<String, Long> vector) {
-        this.vector = new ConcurrentHashMap<>(vector != null ? vector : new HashMap<>());
+        this.values = ClockEntries.fromMap(vector);
     }
     
     /**
      * 复制构造函数
      */
     public VersionVector(VersionVector other) {
-        this.vector = new ConcurrentHashMap<>(other.vector);
+        this.values = other.values;
+    }
+    
+    private VersionVector(ClockEntries values) {
+        this.values = values;
+    }
+    
+    /**
+     * 由条目构造（供同包的编解码使用，条目不得再被修改）
+     */
+    static VersionVector fromEntries(ClockEntries values) {
+        return new VersionVector(values);
+    }
+    
+    /**
+     * 获取条目（供同包的编解码使用，只读）
+     */
+    ClockEntries entries() {
+        return values;
     }
     
     /**
      * 增加指定节点的版本号
      */
-    public synchronized VersionVector increment(String nodeId) {
-        VersionVector newVector = new VersionVector(this);
-        newVector.vector.merge(nodeId, 1L, Long::sum);
-        return newVector;
+    public VersionVector increment(String nodeId) {
+        return new VersionVector(values.increment(nodeId));
     }
     
     /**
      * 设置指定节点的版本号
      */
-    public synchronized VersionVector set(String nodeId, long version) {
-        VersionVector newVector = new VersionVector(this);
-        newVector.vector.put(nodeId, version);
-        return newVector;
+    public VersionVector set(String nodeId, long version) {
+        return new VersionVector(values.with(nodeId, version));
     }
     
     /**
      * 与另一个版本向量合并
      * 对每个节点取最大版本号
      */
-    public synchronized VersionVector merge(VersionVector other) {
-        VersionVector merged = new VersionVector();
-        
-        // 合并当前向量
-        for (Map.Entry<String, Long> entry : this.vector.entrySet()) {
-            String nodeId = entry.getKey();
-            long thisVersion = entry.getValue();
-            long otherVersion = other.vector.getOrDefault(nodeId, 0L);
-            merged.vector.put(nodeId, Math.max(thisVersion, otherVersion));
-        }
-        
-        // 添加其他向量中的新节点
-        for (Map.Entry<String, Long> entry : other.vector.entrySet()) {
-            String nodeId = entry.getKey();
-            if (!merged.vector.containsKey(nodeId)) {
-                merged.vector.put(nodeId, entry.getValue());
-            }
-        }
-        
-        return merged;
+    public VersionVector merge(VersionVector other) {
+        return new VersionVector(ClockEntries.mergeMax(values, other.values));
+    }
+    
+    /**
+     * 计算相对基准变化的条目（增量），base.merge(diff) 与当前版本向量相同
+     */
+    public VersionVector diff(VersionVector base) {
+        return new VersionVector(ClockEntries.diff(values, base.values));
     }
     
     /**
@@ -83,66 +87,39 @@ public class VersionVector {
      * 如果两个向量都有对方没有的更新，则存在冲突
      */
     public boolean hasConflict(VersionVector other) {
-        boolean thisHasNewer = false;
-        boolean otherHasNewer = false;
-        
-        // 获取所有节点ID
-        Map<String, Long> allNodes = new HashMap<>(this.vector);
-        other.vector.forEach((k, v) -> allNodes.putIfAbsent(k, 0L));
-        
-        for (String nodeId : allNodes.keySet()) {
-            long thisVersion = this.vector.getOrDefault(nodeId, 0L);
-            long otherVersion = other.vector.getOrDefault(nodeId, 0L);
-            
-            if (thisVersion > otherVersion) {
-                thisHasNewer = true;
-            } else if (otherVersion > thisVersion) {
-                otherHasNewer = true;
-            }
-            
-            // 如果双方都有更新，则存在冲突
-            if (thisHasNewer && otherHasNewer) {
-                return true;
-            }
-        }
-        
-        return false;
+        return ClockEntries.compare(this.values, other.values) == ClockEntries.BOTH;
     }
     
     /**
      * 比较两个版本向量的关系
+     * 不存在的条目按0处理
      */
     public VectorRelation compareTo(VersionVector other) {
-        if (this.equals(other)) {
-            return VectorRelation.EQUAL;
-        }
-        
-        boolean thisIsNewer = false;
-        boolean otherIsNewer = false;
-        
-        // 获取所有节点ID
-        Map<String, Long> allNodes = new HashMap<>(this.vector);
-        other.vector.forEach((k, v) -> allNodes.putIfAbsent(k, 0L));
-        
-        for (String nodeId : allNodes.keySet()) {
-            long thisVersion = this.vector.getOrDefault(nodeId, 0L);
-            long otherVersion = other.vector.getOrDefault(nodeId, 0L);
-            
-            if (thisVersion > otherVersion) {
-                thisIsNewer = true;
-            } else if (otherVersion > thisVersion) {
-                otherIsNewer = true;
-            }
+        return relationOf(ClockEntries.compare(this.values, other.values));
+    }
+    
+    /**
+     * 批量比较：一个版本向量与多个版本向量的关系，结果与 others 一一对应
+     */
+    public static VectorRelation[] compareAll(VersionVector vector, List<VersionVector> others) {
+        ClockEntries base = vector.values;
+        VectorRelation[] relations = new VectorRelation[others.size()];
+        for (int i = 0; i < relations.length; i++) {
+            relations[i] = relationOf(ClockEntries.compare(base, others.get(i).values));
         }
-        
-        if (thisIsNewer && !otherIsNewer) {
-            return VectorRelation.NEWER;
-        } else if (otherIsNewer && !thisIsNewer) {
-            return VectorRelation.OLDER;
-        } else if (thisIsNewer && otherIsNewer) {
-            return VectorRelation.CONFLICT;
-        } else {
-            return VectorRelation.EQUAL;
+        return relations;
+    }
+    
+    private static VectorRelation relationOf(int flags) {
+        switch (flags) {
+            case 0:
+                return VectorRelation.EQUAL;
+            case ClockEntries.GREATER:
+                return VectorRelation.NEWER;
+            case ClockEntries.LESS:
+                return VectorRelation.OLDER;
+            default:
+                return VectorRelation.CONFLICT;
         }
     }
     
@@ -171,56 +148,56 @@ public class VersionVector {
      * 获取指定节点的版本号
      */
     public long getVersion(String nodeId) {
-        return vector.getOrDefault(nodeId, 0L);
+        return values.get(nodeId);
     }
     
     /**
      * 获取向量的副本
      */
     public Map<String, Long> getVector() {
-        return new HashMap<>(vector);
+        return values.toMap();
     }
     
     /**
      * 获取所有节点ID
      */
     public java.util.Set<String> getNodeIds() {
-        return vector.keySet();
+        return values.nodeIdSet();
     }
     
     /**
      * 检查是否为空
      */
     public boolean isEmpty() {
-        return vector.isEmpty();
+        return values.size() == 0;
     }
     
     /**
      * 获取向量大小（节点数量）
      */
     public int size() {
-        return vector.size();
+        return values.size();
     }
     
     /**
      * 清空向量
      */
     public synchronized void clear() {
-        vector.clear();
+        values = ClockEntries.EMPTY;
     }
     
     /**
      * 获取向量的总和（所有版本号之和）
      */
     public long getSum() {
-        return vector.values().stream().mapToLong(Long::longValue).sum();
+        return values.sum();
     }
     
     /**
      * 获取最大版本号
      */
     public long getMaxVersion() {
-        return vector.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+        return values.max();
     }
     
     @Override
@@ -228,17 +205,17 @@ public class VersionVector {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         VersionVector that = (VersionVector) obj;
-        return Objects.equals(vector, that.vector);
+        return ClockEntries.equals(values, that.values);
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(vector);
+        return values.mapHashCode();
     }
     
     @Override
     public String toString() {
-        return "VersionVector{" + vector + "}";
+        return "VersionVector{" + getVector() + "}";
     }
     
     /**
@@ -0,0 +1,106 @@
+package com.example.dts.propagation;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.timestamp.TotalOrderTimestamp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 时钟传播的HTTP头
+ * 
+ * X-DTS-Clock:  逻辑时钟值（Lamport或HLC），十进制
+ * X-DTS-Vector: 向量时钟的紧凑编码 nodeId=value,nodeId=value
+ * 
+ * 头部来自网络，解析时拒绝超出全序时间戳Lamport范围的值（同步时 +1 会溢出为负数）、
+ * 过多的条目和过长的节点ID
+ * 
+ * @author DTS Team
+ */
+public final class ClockHeaders {
+    
+    public static final String LOGICAL_CLOCK = "X-DTS-Clock";
+    public static final String VECTOR_CLOCK = "X-DTS-Vector";
+    
+    public static final int MAX_VECTOR_ENTRIES = 256;
+    public static final int MAX_NODE_ID_LENGTH = 128;
+    
+    private static final char ENTRY_SEPARATOR = ',';
+    private static final char VALUE_SEPARATOR = '=';
+    
+    private ClockHeaders() {
+    }
+    
+    /**
+     * 将向量时钟编码为头部值，省略值为0的条目
+     */
+    public static String formatVector(VectorClock clock) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : clock.getClock().entrySet()) {
+            if (entry.getValue() == 0L) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(ENTRY_SEPARATOR);
+            }
+            builder.append(entry.getKey()).append(VALUE_SEPARATOR).append(entry.getValue());
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * 解析逻辑时钟头
+     * 
+     * @throws IllegalArgumentException 格式错误或超出范围时
+     */
+    public static long parseClock(String header) {
+        long value = Long.parseLong(header.trim());
+        checkRange(value, header);
+        return value;
+    }
+    
+    /**
+     * 解析头部值为向量时钟
+     * 
+     * @throws IllegalArgumentException 格式错误、超出范围或超出大小限制时
+     */
+    public static VectorClock parseVector(String header) {
+        Map<String, Long> clock = new HashMap<>();
+        if (header == null || header.isEmpty()) {
+            return new VectorClock(clock);
+        }
+        if (header.length() > MAX_VECTOR_ENTRIES * (MAX_NODE_ID_LENGTH + 21)) {
+            throw new IllegalArgumentException("Vector clock header too long: " + header.length() + " chars");
+        }
+        
+        int start = 0;
+        while (start < header.length()) {
+            int end = header.indexOf(ENTRY_SEPARATOR, start);
+            if (end < 0) {
+                end = header.length();
+            }
+            int separator = header.lastIndexOf(VALUE_SEPARATOR, end - 1);
+            if (separator <= start) {
+                throw new IllegalArgumentException("Malformed vector clock header: " + header);
+            }
+            String nodeId = header.substring(start, separator).trim();
+            if (nodeId.isEmpty() || nodeId.length() > MAX_NODE_ID_LENGTH) {
+                throw new IllegalArgumentException("Invalid node id in vector clock header: " + header);
+            }
+            long value = Long.parseLong(header.substring(separator + 1, end).trim());
+            checkRange(value, header);
+            clock.merge(nodeId, value, Math::max);
+            if (clock.size() > MAX_VECTOR_ENTRIES) {
+                throw new IllegalArgumentException("Vector clock header exceeds " + MAX_VECTOR_ENTRIES + " entries");
+            }
+            start = end + 1;
+        }
+        return new VectorClock(clock);
+    }
+    
+    private static void checkRange(long value, String header) {
+        if (value < 0 || value > TotalOrderTimestamp.MAX_LAMPORT) {
+            throw new IllegalArgumentException("Clock value out of range: " + header);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.dts.propagation;
+
+import com.example.dts.timestamp.LogicalClock;
+import com.example.dts.timestamp.VectorClockManager;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feign调用的时钟传播拦截器
+ * 每次出站调用视为一次发送事件：推进逻辑时钟和向量时钟，并写入请求头，
+ * 对端的 ClockPropagationFilter 收到后自动同步
+ * 
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.propagation.enabled", havingValue = "true", matchIfMissing = true)
+public class ClockPropagationFeignInterceptor implements RequestInterceptor {
+    
+    private final LogicalClock logicalClock;
+    private final VectorClockManager vectorClockManager;
+    
+    public ClockPropagationFeignInterceptor(LogicalClock logicalClock, VectorClockManager vectorClockManager) {
+        this.logicalClock = logicalClock;
+        this.vectorClockManager = vectorClockManager;
+    }
+    
+    @Override
+    public void apply(RequestTemplate template) {
+        template.header(ClockHeaders.LOGICAL_CLOCK, Long.toString(logicalClock.tick()));
+        template.header(ClockHeaders.VECTOR_CLOCK, ClockHeaders.formatVector(vectorClockManager.tick()));
+    }
+}
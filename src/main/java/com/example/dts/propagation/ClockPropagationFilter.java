@@ -0,0 +1,200 @@
+package com.example.dts.propagation;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.timestamp.LogicalClock;
+import com.example.dts.timestamp.VectorClockManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 时钟传播过滤器
+ * 收到携带时钟头的请求时自动同步逻辑时钟和向量时钟（接收事件），
+ * 并在响应头中带回本节点的当前时钟，业务请求本身即完成因果传播，无需单独调用同步接口
+ * 
+ * 只同步来自 trusted-peers（IP或CIDR，逗号分隔）的时钟头，其他客户端的时钟头被忽略，
+ * 无法推进本节点的时钟；未配置时不从任何来源同步，只在响应中带回本节点的时钟。
+ * 可信对端的一个头部最多把时钟向前推进 max-forward-jump，超出时整条头部被忽略，
+ * 单个异常请求不会把时钟推到全序时间戳的上限附近
+ * 
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.propagation.enabled", havingValue = "true", matchIfMissing = true)
+public class ClockPropagationFilter extends OncePerRequestFilter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ClockPropagationFilter.class);
+    
+    private final LogicalClock logicalClock;
+    private final VectorClockManager vectorClockManager;
+    
+    private volatile List<TrustedNetwork> trustedNetworks = Collections.emptyList();
+    
+    @Value("${dts.timestamp.propagation.max-forward-jump:10000000}")
+    private long maxForwardJump = 10000000L;
+    
+    public ClockPropagationFilter(LogicalClock logicalClock, VectorClockManager vectorClockManager) {
+        this.logicalClock = logicalClock;
+        this.vectorClockManager = vectorClockManager;
+    }
+    
+    /**
+     * 设置可信对端，为空时不接受任何来源的时钟头
+     * 
+     * @throws IllegalArgumentException 地址不是IP或CIDR时
+     */
+    @Value("${dts.timestamp.propagation.trusted-peers:}")
+    public void setTrustedPeers(String trustedPeers) {
+        List<TrustedNetwork> networks = new ArrayList<>();
+        if (trustedPeers != null) {
+            for (String peer : trustedPeers.split(",")) {
+                if (!peer.trim().isEmpty()) {
+                    networks.add(TrustedNetwork.parse(peer.trim()));
+                }
+            }
+        }
+        this.trustedNetworks = networks;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        syncFromHeaders(request);
+        
+        // 响应头需在响应提交前写入，这里带回的是同步之后、处理请求之前的时钟
+        response.setHeader(ClockHeaders.LOGICAL_CLOCK, Long.toString(logicalClock.getCurrentTime()));
+        String vectorHeader = ClockHeaders.formatVector(vectorClockManager.getCurrentClock());
+        if (!vectorHeader.isEmpty()) {
+            response.setHeader(ClockHeaders.VECTOR_CLOCK, vectorHeader);
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+    
+    private void syncFromHeaders(HttpServletRequest request) {
+        String clockHeader = request.getHeader(ClockHeaders.LOGICAL_CLOCK);
+        String vectorHeader = request.getHeader(ClockHeaders.VECTOR_CLOCK);
+        if ((clockHeader != null || vectorHeader != null) && !isTrusted(request.getRemoteAddr())) {
+            logger.debug("Ignoring clock headers from untrusted peer {}", request.getRemoteAddr());
+            return;
+        }
+        
+        if (clockHeader != null) {
+            try {
+                long received = ClockHeaders.parseClock(clockHeader);
+                checkForwardJump(received, logicalClock.getCurrentTime(), clockHeader);
+                logicalClock.sync(received);
+            } catch (IllegalArgumentException e) {
+                // 包括格式错误和HLC漂移超限，不影响业务请求本身
+                logger.warn("Ignoring clock header {}: {}", clockHeader, e.getMessage());
+            }
+        }
+        
+        if (vectorHeader != null && !vectorHeader.isEmpty()) {
+            try {
+                VectorClock received = ClockHeaders.parseVector(vectorHeader);
+                VectorClock current = vectorClockManager.getCurrentClock();
+                for (Map.Entry<String, Long> entry : received.getClock().entrySet()) {
+                    checkForwardJump(entry.getValue(), current.getValue(entry.getKey()), vectorHeader);
+                }
+                vectorClockManager.sync(received);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring vector clock header {}: {}", vectorHeader, e.getMessage());
+            }
+        }
+    }
+    
+    private void checkForwardJump(long received, long current, String header) {
+        if (received - current > maxForwardJump) {
+            throw new IllegalArgumentException("Clock header moves clock forward by more than "
+                                               + maxForwardJump + ": " + header);
+        }
+    }
+    
+    private boolean isTrusted(String remoteAddr) {
+        List<TrustedNetwork> networks = trustedNetworks;
+        if (networks.isEmpty() || remoteAddr == null) {
+            return false;
+        }
+        byte[] address;
+        try {
+            // getRemoteAddr 返回IP字面量，不会触发DNS查询
+            address = InetAddress.getByName(remoteAddr).getAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+        for (TrustedNetwork network : networks) {
+            if (network.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 可信网段：地址加前缀长度，单个IP视为全长前缀
+     */
+    private static final class TrustedNetwork {
+        
+        private final byte[] address;
+        private final int prefixLength;
+        
+        private TrustedNetwork(byte[] address, int prefixLength) {
+            this.address = address;
+            this.prefixLength = prefixLength;
+        }
+        
+        static TrustedNetwork parse(String peer) {
+            int slash = peer.indexOf('/');
+            String host = slash < 0 ? peer : peer.substring(0, slash);
+            // 只接受IP字面量，主机名会在启动时触发DNS查询且解析结果可能变化
+            if (host.isEmpty() || !host.matches("[0-9a-fA-F:.]+")) {
+                throw new IllegalArgumentException("Trusted peer must be an IP or CIDR: " + peer);
+            }
+            byte[] address;
+            try {
+                address = InetAddress.getByName(host).getAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Trusted peer must be an IP or CIDR: " + peer, e);
+            }
+            int prefixLength = slash < 0 ? address.length * 8 : Integer.parseInt(peer.substring(slash + 1));
+            if (prefixLength < 0 || prefixLength > address.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length: " + peer);
+            }
+            return new TrustedNetwork(address, prefixLength);
+        }
+        
+        boolean contains(byte[] candidate) {
+            if (candidate.length != address.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (candidate[i] != address[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (candidate[fullBytes] & mask) == (address[fullBytes] & mask);
+        }
+    }
+}
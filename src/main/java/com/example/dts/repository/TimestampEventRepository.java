@@ -33,6 +33,16 @@ public interface TimestampEventRepository extends JpaRepository<TimestampEvent,
      */
     List<TimestampEvent> findByLamportTimestampBetweenOrderByLamportTimestamp(Long startTime, Long endTime);
     
+    /**
+     * 根据全序时间戳范围查找事件，按全序时间戳排序（单列索引范围扫描）
+     */
+    List<TimestampEvent> findByTotalOrderBetweenOrderByTotalOrder(Long startOrder, Long endOrder);
+    
+    /**
+     * 查找全序时间戳之后的事件，按全序时间戳排序
+     */
+    List<TimestampEvent> findByTotalOrderGreaterThanOrderByTotalOrder(Long afterOrder, Pageable pageable);
+    
     /**
      * 根据创建时间范围查找事件，按Lamport时间戳排序
      */
@@ -81,6 +91,11 @@ public interface TimestampEventRepository extends JpaRepository<TimestampEvent,
     Long countByCreatedAtBetween(@Param("startTime") LocalDateTime startTime, 
                                 @Param("endTime") LocalDateTime endTime);
     
+    /**
+     * 查找指定节点在某时间之前创建的事件，按创建时间升序（用于按因果稳定前沿清理）
+     */
+    List<TimestampEvent> findByNodeIdAndCreatedAtBeforeOrderByCreatedAt(String nodeId, LocalDateTime cutoffTime, Pageable pageable);
+    
     /**
      * 删除指定时间之前的事件（用于数据清理）
      */
@@ -1,18 +1,28 @@
 package com.example.dts.service;
 
+import com.example.dts.model.ClockCodec;
+import com.example.dts.model.MatrixClock;
 import com.example.dts.model.TimestampEvent;
 import com.example.dts.model.VectorClock;
 import com.example.dts.model.VersionVector;
 import com.example.dts.repository.TimestampEventRepository;
-import com.example.dts.timestamp.LamportClockManager;
+import com.example.dts.timestamp.ClockEngine;
+import com.example.dts.timestamp.LogicalClock;
+import com.example.dts.timestamp.MatrixClockManager;
+import com.example.dts.timestamp.NodeIndexRegistry;
+import com.example.dts.timestamp.TotalOrderTimestamp;
 import com.example.dts.timestamp.VectorClockManager;
 import com.example.dts.timestamp.VersionVectorManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,35 +39,52 @@ public class TimestampService {
     
     private static final Logger logger = LoggerFactory.getLogger(TimestampService.class);
     
-    private final LamportClockManager lamportClockManager;
+    private final LogicalClock logicalClock;
     private final VectorClockManager vectorClockManager;
     private final VersionVectorManager versionVectorManager;
     private final TimestampEventRepository timestampEventRepository;
+    private final NodeIndexRegistry nodeIndexRegistry;
+    private final MatrixClockManager matrixClockManager;
+    private final ClockEngine clockEngine;
     
     @Value("${dts.node.id}")
     private String nodeId;
     
-    public TimestampService(LamportClockManager lamportClockManager,
+    @Value("${dts.timestamp.matrix-clock.event-retention:604800000}")
+    private long eventRetention;
+    
+    @Value("${dts.timestamp.matrix-clock.purge-batch-size:1000}")
+    private int purgeBatchSize;
+    
+    public TimestampService(LogicalClock logicalClock,
                            VectorClockManager vectorClockManager,
                            VersionVectorManager versionVectorManager,
-                           TimestampEventRepository timestampEventRepository) {
-        this.lamportClockManager = lamportClockManager;
+                           TimestampEventRepository timestampEventRepository,
+                           NodeIndexRegistry nodeIndexRegistry,
+                           MatrixClockManager matrixClockManager,
+                           ClockEngine clockEngine) {
+        this.logicalClock = logicalClock;
         this.vectorClockManager = vectorClockManager;
         this.versionVectorManager = versionVectorManager;
         this.timestampEventRepository = timestampEventRepository;
+        this.nodeIndexRegistry = nodeIndexRegistry;
+        this.matrixClockManager = matrixClockManager;
+        this.clockEngine = clockEngine;
     }
     
     /**
      * 创建新的时间戳事件
      */
     public TimestampEvent createEvent(String eventType, Map<String, Object> eventData) {
-        // 生成各种时间戳
-        long lamportTime = lamportClockManager.tick();
-        VectorClock vectorClock = vectorClockManager.tick();
-        VersionVector versionVector = versionVectorManager.increment();
+        // 生成各种时间戳，三个时钟取自同一个切面
+        ClockEngine.Snapshot snapshot = clockEngine.tick();
+        long lamportTime = snapshot.getLamportTime();
+        VectorClock vectorClock = snapshot.getVectorClock();
+        VersionVector versionVector = snapshot.getVersionVector();
         
         // 创建事件记录
         TimestampEvent event = new TimestampEvent(nodeId, lamportTime, eventType);
+        event.setTotalOrder(resolveTotalOrder(nodeId, lamportTime));
         event.setVectorClockMap(vectorClock.getClock());
         event.setVersionVectorMap(versionVector.getVector());
         event.setEventDataMap(eventData);
@@ -71,6 +98,33 @@ public class TimestampService {
         return event;
     }
     
+    /**
+     * 批量分配连续的Lamport时间戳区间
+     * 向量时钟与版本向量对整个批次只推进一次
+     *
+     * @throws IllegalArgumentException 数量超过逻辑时钟一次能分配的上限（HLC受漂移上界限制）
+     */
+    public Map<String, Object> allocateTimestampRange(int count) {
+        if (count > logicalClock.getMaxTickCount()) {
+            throw new IllegalArgumentException("Range count " + count + " exceeds the "
+                    + logicalClock.getClockMode() + " limit of " + logicalClock.getMaxTickCount());
+        }
+        ClockEngine.Snapshot snapshot = clockEngine.tickN(count);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("nodeId", nodeId);
+        result.put("start", snapshot.getLamportStart());
+        result.put("end", snapshot.getLamportTime());
+        result.put("count", count);
+        result.put("vectorClock", snapshot.getVectorClock().getClock());
+        result.put("versionVector", snapshot.getVersionVector().getVector());
+        
+        logger.info("Allocated timestamp range: [{}, {}], count={}, node={}", 
+                   snapshot.getLamportStart(), snapshot.getLamportTime(), count, nodeId);
+        
+        return result;
+    }
+    
     /**
      * 生成时间戳事件 - 为了兼容性添加的方法
      */
@@ -85,16 +139,36 @@ public class TimestampService {
                                    Map<String, Long> receivedVectorClock,
                                    Map<String, Long> receivedVersionVector,
                                    String eventType, Map<String, Object> eventData) {
+        return syncEvent(sourceNodeId, receivedLamportTime, receivedVectorClock, null,
+                         receivedVersionVector, null, eventType, eventData);
+    }
+    
+    /**
+     * 同步接收到的时间戳事件，向量时钟和版本向量可以是相对基准的增量
+     * 事件记录保存还原后的来源节点完整时钟
+     *
+     * @param vectorClockBase 向量时钟增量的基准摘要，null表示完整时钟
+     * @param versionVectorBase 版本向量增量的基准摘要，null表示完整版本向量
+     * @throws IllegalStateException 增量基准与本地记录不一致，来源节点需要改发完整时钟
+     */
+    public TimestampEvent syncEvent(String sourceNodeId, long receivedLamportTime,
+                                   Map<String, Long> receivedVectorClock, Long vectorClockBase,
+                                   Map<String, Long> receivedVersionVector, Long versionVectorBase,
+                                   String eventType, Map<String, Object> eventData) {
         
-        // 同步各种时间戳
-        long syncedLamportTime = lamportClockManager.sync(receivedLamportTime);
-        VectorClock syncedVectorClock = vectorClockManager.sync(new VectorClock(receivedVectorClock));
-        VersionVector syncedVersionVector = versionVectorManager.merge(new VersionVector(receivedVersionVector));
+        // 同步各种时间戳，向量只处理收到的条目，三个时钟在同一个临界区内合并
+        ClockEngine.Snapshot snapshot = clockEngine.sync(sourceNodeId, receivedLamportTime,
+                new VectorClock(receivedVectorClock), vectorClockBase,
+                new VersionVector(receivedVersionVector), versionVectorBase);
+        long syncedLamportTime = snapshot.getLamportTime();
+        VectorClock sourceVectorClock = snapshot.getVectorClock();
+        VersionVector sourceVersionVector = snapshot.getVersionVector();
         
         // 创建同步事件记录
         TimestampEvent event = new TimestampEvent(sourceNodeId, receivedLamportTime, eventType);
-        event.setVectorClockMap(receivedVectorClock);
-        event.setVersionVectorMap(receivedVersionVector);
+        event.setTotalOrder(resolveTotalOrder(sourceNodeId, receivedLamportTime));
+        event.setVectorClockMap(sourceVectorClock.getClock());
+        event.setVersionVectorMap(sourceVersionVector.getVector());
         event.setEventDataMap(eventData);
         
         // 保存到数据库
@@ -106,6 +180,43 @@ public class TimestampService {
         return event;
     }
     
+    /**
+     * 构造发往对端的同步载荷，字段与同步接口的请求一致（不含事件类型和数据）
+     * 向量时钟和版本向量只包含对端尚未确认的条目；对端没有确认记录时发送完整时钟，基准为null
+     */
+    public Map<String, Object> prepareSync(String peerNodeId) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("sourceNodeId", nodeId);
+        payload.put("lamportTimestamp", logicalClock.getCurrentTime());
+        payload.put("vectorClock", vectorClockManager.deltaFor(peerNodeId).getClock());
+        payload.put("vectorClockBase", vectorClockManager.getDeltaBase(peerNodeId));
+        payload.put("versionVector", versionVectorManager.deltaFor(peerNodeId).getVector());
+        payload.put("versionVectorBase", versionVectorManager.getDeltaBase(peerNodeId));
+        return payload;
+    }
+    
+    /**
+     * 对端接受 prepareSync 构造的载荷后记录确认，之后的载荷以此为基准
+     * 对端拒绝增量时调用 resetSync 退回完整同步
+     */
+    @SuppressWarnings("unchecked")
+    public void acknowledgeSync(String peerNodeId, Map<String, Object> payload) {
+        vectorClockManager.acknowledge(peerNodeId,
+                new VectorClock((Map<String, Long>) payload.get("vectorClock")),
+                payload.get("vectorClockBase") == null);
+        versionVectorManager.acknowledge(peerNodeId,
+                new VersionVector((Map<String, Long>) payload.get("versionVector")),
+                payload.get("versionVectorBase") == null);
+    }
+    
+    /**
+     * 清除与对端的增量同步记录，下一次同步发送完整时钟
+     */
+    public void resetSync(String peerNodeId) {
+        vectorClockManager.forgetPeer(peerNodeId);
+        versionVectorManager.forgetPeer(peerNodeId);
+    }
+    
     /**
      * 获取当前节点的时间戳状态
      */
@@ -113,7 +224,10 @@ public class TimestampService {
         Map<String, Object> status = new HashMap<>();
         
         status.put("nodeId", nodeId);
-        status.put("lamportTime", lamportClockManager.getCurrentTime());
+        long currentTime = logicalClock.getCurrentTime();
+        status.put("lamportTime", currentTime);
+        status.put("clockMode", logicalClock.getClockMode());
+        status.put("clock", logicalClock.describe(currentTime));
         status.put("vectorClock", vectorClockManager.getCurrentClock().getClock());
         status.put("versionVector", versionVectorManager.getCurrentVector().getVector());
         status.put("timestamp", System.currentTimeMillis());
@@ -148,6 +262,14 @@ public class TimestampService {
         comparison.put("lamportTime1", lamport1);
         comparison.put("lamportTime2", lamport2);
         
+        // 全序比较：Lamport相等时按节点索引打破平局
+        if (event1.getTotalOrder() != null && event2.getTotalOrder() != null) {
+            int order = TotalOrderTimestamp.compare(event1.getTotalOrder(), event2.getTotalOrder());
+            comparison.put("totalOrderRelation", order < 0 ? "BEFORE" : order > 0 ? "AFTER" : "EQUAL");
+            comparison.put("totalOrder1", event1.getTotalOrder());
+            comparison.put("totalOrder2", event2.getTotalOrder());
+        }
+        
         // 向量时钟比较（如果存在）
         if (event1.getVectorClock() != null && event2.getVectorClock() != null) {
             try {
@@ -197,9 +319,25 @@ public class TimestampService {
      */
     public List<TimestampEvent> getEventsInTimeRange(java.time.LocalDateTime startTime, 
                                                     java.time.LocalDateTime endTime) {
+        // HLC时间戳本身界定物理时间，直接在全序索引上范围扫描
+        if (logicalClock.supportsPhysicalRange()) {
+            java.time.ZoneId zone = java.time.ZoneId.systemDefault();
+            long start = logicalClock.lowerBoundOf(startTime.atZone(zone).toInstant().toEpochMilli());
+            long end = logicalClock.upperBoundOf(endTime.atZone(zone).toInstant().toEpochMilli());
+            return timestampEventRepository.findByTotalOrderBetweenOrderByTotalOrder(
+                    TotalOrderTimestamp.lowerBound(start), TotalOrderTimestamp.upperBound(end));
+        }
         return timestampEventRepository.findByCreatedAtBetweenOrderByLamportTimestamp(startTime, endTime);
     }
     
+    /**
+     * 按全局全序获取指定全序时间戳之后的事件
+     */
+    public List<TimestampEvent> getEventsInTotalOrder(long afterTotalOrder, int limit) {
+        return timestampEventRepository.findByTotalOrderGreaterThanOrderByTotalOrder(afterTotalOrder,
+                org.springframework.data.domain.PageRequest.of(0, limit));
+    }
+    
     /**
      * 检测事件冲突
      */
@@ -210,31 +348,38 @@ public class TimestampService {
         List<TimestampEvent> recentEvents = timestampEventRepository
                 .findTop100ByOrderByCreatedAtDesc();
         
-        // 检查版本向量冲突
-        for (int i = 0; i < recentEvents.size() && conflicts.size() < limit; i++) {
-            for (int j = i + 1; j < recentEvents.size() && conflicts.size() < limit; j++) {
-                TimestampEvent event1 = recentEvents.get(i);
-                TimestampEvent event2 = recentEvents.get(j);
-                
-                if (event1.getVersionVector() != null && event2.getVersionVector() != null) {
-                    try {
-                        VersionVector vector1 = parseVersionVector(event1.getVersionVector());
-                        VersionVector vector2 = parseVersionVector(event2.getVersionVector());
-                        
-                        if (vector1.hasConflict(vector2)) {
-                            Map<String, Object> conflict = new HashMap<>();
-                            conflict.put("event1Id", event1.getId());
-                            conflict.put("event2Id", event2.getId());
-                            conflict.put("node1", event1.getNodeId());
-                            conflict.put("node2", event2.getNodeId());
-                            conflict.put("conflictType", "VERSION_VECTOR");
-                            conflict.put("detectedAt", System.currentTimeMillis());
-                            conflicts.add(conflict);
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error detecting conflict between events {} and {}: {}", 
-                                   event1.getId(), event2.getId(), e.getMessage());
-                    }
+        // 每个事件的版本向量只解析一次
+        List<TimestampEvent> events = new java.util.ArrayList<>();
+        List<VersionVector> vectors = new java.util.ArrayList<>();
+        for (TimestampEvent event : recentEvents) {
+            if (event.getVersionVector() == null) {
+                continue;
+            }
+            try {
+                vectors.add(parseVersionVector(event.getVersionVector()));
+                events.add(event);
+            } catch (Exception e) {
+                logger.error("Error parsing version vector of event {}: {}", event.getId(), e.getMessage());
+            }
+        }
+        
+        // 检查版本向量冲突：每个向量与其后的所有向量批量比较
+        for (int i = 0; i < vectors.size() && conflicts.size() < limit; i++) {
+            VersionVector.VectorRelation[] relations = versionVectorManager.compareAll(
+                    vectors.get(i), vectors.subList(i + 1, vectors.size()));
+            
+            for (int k = 0; k < relations.length && conflicts.size() < limit; k++) {
+                if (relations[k] == VersionVector.VectorRelation.CONFLICT) {
+                    TimestampEvent event1 = events.get(i);
+                    TimestampEvent event2 = events.get(i + 1 + k);
+                    Map<String, Object> conflict = new HashMap<>();
+                    conflict.put("event1Id", event1.getId());
+                    conflict.put("event2Id", event2.getId());
+                    conflict.put("node1", event1.getNodeId());
+                    conflict.put("node2", event2.getNodeId());
+                    conflict.put("conflictType", "VERSION_VECTOR");
+                    conflict.put("detectedAt", System.currentTimeMillis());
+                    conflicts.add(conflict);
                 }
             }
         }
@@ -250,26 +395,36 @@ public class TimestampService {
         
         try {
             // 获取全局最大Lamport时间
-            long globalMaxLamport = lamportClockManager.getGlobalMaxClock();
-            if (globalMaxLamport > lamportClockManager.getCurrentTime()) {
-                lamportClockManager.sync(globalMaxLamport);
+            long globalMaxLamport = logicalClock.getGlobalMaxClock();
+            if (globalMaxLamport > logicalClock.getCurrentTime()) {
+                logicalClock.sync(globalMaxLamport);
             }
             
-            // 获取所有节点的向量时钟并同步
+            // 获取所有节点的向量时钟，只同步自上次以来有变化的条目
+            int changedVectorClocks = 0;
             Map<String, VectorClock> allVectorClocks = vectorClockManager.getAllNodeClocks();
-            for (VectorClock clock : allVectorClocks.values()) {
-                vectorClockManager.sync(clock);
+            for (Map.Entry<String, VectorClock> entry : allVectorClocks.entrySet()) {
+                if (!entry.getKey().equals(nodeId)
+                        && !vectorClockManager.syncChanged(entry.getKey(), entry.getValue()).isEmpty()) {
+                    changedVectorClocks++;
+                }
             }
             
-            // 获取所有节点的版本向量并合并
+            // 获取所有节点的版本向量，只合并自上次以来有变化的条目
+            int changedVersionVectors = 0;
             Map<String, VersionVector> allVersionVectors = versionVectorManager.getAllNodeVectors();
-            for (VersionVector vector : allVersionVectors.values()) {
-                versionVectorManager.merge(vector);
+            for (Map.Entry<String, VersionVector> entry : allVersionVectors.entrySet()) {
+                if (!entry.getKey().equals(nodeId)
+                        && !versionVectorManager.mergeChanged(entry.getKey(), entry.getValue()).isEmpty()) {
+                    changedVersionVectors++;
+                }
             }
             
             result.put("success", true);
+            result.put("changedVectorClocks", changedVectorClocks);
+            result.put("changedVersionVectors", changedVersionVectors);
             result.put("syncedAt", System.currentTimeMillis());
-            result.put("lamportTime", lamportClockManager.getCurrentTime());
+            result.put("lamportTime", logicalClock.getCurrentTime());
             result.put("vectorClock", vectorClockManager.getCurrentClock().getClock());
             result.put("versionVector", versionVectorManager.getCurrentVector().getVector());
             
@@ -285,20 +440,82 @@ public class TimestampService {
     }
     
     /**
-     * 解析向量时钟JSON
+     * 定期清理超过保留期且已因果稳定的事件，未启用矩阵时钟时不清理
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.matrix-clock.purge-interval:3600000}")
+    public void purgeStableEvents() {
+        if (!matrixClockManager.isEnabled()) {
+            return;
+        }
+        try {
+            purgeStableEventsBefore(LocalDateTime.now().minusNanos(eventRetention * 1_000_000L));
+        } catch (Exception e) {
+            logger.error("Error purging stable events: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 删除指定时间之前创建、且已被所有节点看到的事件
+     * 每个来源节点每次最多检查 purge-batch-size 条；没有稳定前沿的来源节点的事件不删除
+     *
+     * @return 删除的事件数
+     */
+    public int purgeStableEventsBefore(LocalDateTime cutoffTime) {
+        VectorClock frontier = matrixClockManager.getStableClockFrontier();
+        int deleted = 0;
+        
+        for (String originNodeId : frontier.getNodeIds()) {
+            List<TimestampEvent> candidates = timestampEventRepository
+                    .findByNodeIdAndCreatedAtBeforeOrderByCreatedAt(
+                            originNodeId, cutoffTime, PageRequest.of(0, purgeBatchSize));
+            
+            List<TimestampEvent> stableEvents = new ArrayList<>();
+            for (TimestampEvent event : candidates) {
+                if (MatrixClock.isStable(originNodeId, parseVectorClock(event.getVectorClock()), frontier)) {
+                    stableEvents.add(event);
+                }
+            }
+            timestampEventRepository.deleteAll(stableEvents);
+            deleted += stableEvents.size();
+        }
+        
+        if (deleted > 0) {
+            logger.info("Purged {} causally stable events created before {}, frontier: {}", 
+                       deleted, cutoffTime, frontier);
+        }
+        return deleted;
+    }
+    
+    /**
+     * 获取矩阵时钟信息和因果稳定前沿
+     */
+    public Map<String, Object> getStableFrontier() {
+        return matrixClockManager.getMatrixInfo();
+    }
+    
+    /**
+     * 计算节点事件的全序时间戳，节点索引不可用（如Redis不可用）时返回null，事件仍然保存
+     */
+    private Long resolveTotalOrder(String sourceNodeId, long lamportTime) {
+        try {
+            return TotalOrderTimestamp.pack(lamportTime, nodeIndexRegistry.getIndex(sourceNodeId));
+        } catch (Exception e) {
+            logger.error("Error resolving total order for node {}: {}", sourceNodeId, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 解析事件中存储的向量时钟（JSON）
      */
-    private VectorClock parseVectorClock(String json) throws Exception {
-        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-        Map<String, Long> clockMap = mapper.readValue(json, Map.class);
-        return new VectorClock(clockMap);
+    private VectorClock parseVectorClock(String text) {
+        return ClockCodec.decodeVectorClock(text);
     }
     
     /**
-     * 解析版本向量JSON
+     * 解析事件中存储的版本向量（JSON）
      */
-    private VersionVector parseVersionVector(String json) throws Exception {
-        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-        Map<String, Long> vectorMap = mapper.readValue(json, Map.class);
-        return new VersionVector(vectorMap);
+    private VersionVector parseVersionVector(String text) {
+        return ClockCodec.decodeVersionVector(text);
     }
 }
\ No newline at end of file
@@ -0,0 +1,517 @@
+package com.example.dts.timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 本地追加日志时钟存储
+ * 状态保存在进程内（同 InProcessClockStore），每次修改追加一条记录到本地日志文件，启动时重放日志恢复状态。
+ * 压缩把当前状态重写为新日志并原子替换：新日志以状态快照开头，之后追加的记录即快照以来的变更日志。
+ * 每隔 snapshot-interval 毫秒（有变更时）或日志超过 compact-threshold 字节（且至少是上次压缩后大小的两倍）时压缩，
+ * 快照大小只取决于当前状态（历史列表有上限），启动重放的耗时不随运行时长增长
+ *
+ * 记录格式：length(int) | crc32(int) | op(byte) | key(UTF) | 操作数据；
+ * 重放遇到不完整或校验失败的记录时截断日志尾部（崩溃时的撕裂写）。
+ * 每次修改先追加日志再修改内存，追加失败时内存状态不变
+ *
+ * 落盘时机沿用 MappedClockFile.ForcePolicy：ALWAYS 每条记录fsync，INTERVAL 按周期，OS 交给操作系统
+ *
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.store.type", havingValue = "append-log")
+public class AppendLogClockStore extends InProcessClockStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppendLogClockStore.class);
+
+    private static final byte OP_ADVANCE = 1;
+    private static final byte OP_SET_VALUE = 2;
+    private static final byte OP_UPDATE_ENTRIES = 3;
+    private static final byte OP_REPLACE_ENTRIES = 4;
+    private static final byte OP_PUSH = 5;
+    private static final byte OP_TRIM = 6;
+    private static final byte OP_ADD_MEMBER = 7;
+    private static final byte OP_REMOVE_MEMBER = 8;
+    private static final byte OP_DELETE = 9;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path path;
+    private final MappedClockFile.ForcePolicy forcePolicy;
+    private final long compactThreshold;
+    private final ScheduledExecutorService forceExecutor;
+
+    private FileChannel channel;
+    private boolean dirty;
+    private long compactedSize;
+    private long changesSinceSnapshot;
+
+    public AppendLogClockStore(@Value("${dts.timestamp.store.append-log.path:./data/clock-store.log}") String path,
+                               @Value("${dts.timestamp.store.append-log.force-policy:interval}") String forcePolicy,
+                               @Value("${dts.timestamp.store.append-log.force-interval:100}") long forceIntervalMillis,
+                               @Value("${dts.timestamp.store.append-log.compact-threshold:67108864}") long compactThreshold)
+            throws IOException {
+        this.path = Paths.get(path);
+        this.forcePolicy = MappedClockFile.ForcePolicy.valueOf(forcePolicy.toUpperCase());
+        this.compactThreshold = compactThreshold;
+
+        if (this.path.getParent() != null) {
+            Files.createDirectories(this.path.getParent());
+        }
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long replayStart = System.nanoTime();
+        int records = replay();
+        long replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart);
+        // 不区分重放的记录来自快照还是变更日志，下一个周期重新快照一次
+        this.changesSinceSnapshot = records;
+
+        if (this.forcePolicy == MappedClockFile.ForcePolicy.INTERVAL) {
+            this.forceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "clock-store-log-force");
+                thread.setDaemon(true);
+                return thread;
+            });
+            forceExecutor.scheduleWithFixedDelay(this::forceIfDirty,
+                    forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.forceExecutor = null;
+        }
+
+        logger.info("Append-log clock store opened: path={}, policy={}, replayed records={} in {} ms",
+                   this.path, this.forcePolicy, records, replayMillis);
+    }
+
+    @Override
+    public synchronized long advanceCounters(List<String> keys, long value) {
+        for (String key : keys) {
+            append(OP_ADVANCE, key, out -> out.writeLong(value));
+        }
+        long advanced = super.advanceCounters(keys, value);
+        compactIfLarge();
+        return advanced;
+    }
+
+    @Override
+    public synchronized void setValue(String key, byte[] value) {
+        append(OP_SET_VALUE, key, out -> writeBytes(out, value));
+        super.setValue(key, value);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void updateEntries(String key, Map<String, Long> changed, Collection<String> removed) {
+        append(OP_UPDATE_ENTRIES, key, out -> {
+            writeEntries(out, changed);
+            out.writeInt(removed.size());
+            for (String field : removed) {
+                out.writeUTF(field);
+            }
+        });
+        super.updateEntries(key, changed, removed);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void replaceEntries(String key, Map<String, Long> replacement) {
+        append(OP_REPLACE_ENTRIES, key, out -> writeEntries(out, replacement));
+        super.replaceEntries(key, replacement);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void pushBounded(String key, byte[] value, int maxLength) {
+        append(OP_PUSH, key, out -> {
+            out.writeInt(maxLength);
+            writeBytes(out, value);
+        });
+        super.pushBounded(key, value, maxLength);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void trim(String key, int keep) {
+        append(OP_TRIM, key, out -> out.writeInt(keep));
+        super.trim(key, keep);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void addMember(String setKey, String member) {
+        append(OP_ADD_MEMBER, setKey, out -> out.writeUTF(member));
+        super.addMember(setKey, member);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void removeMember(String setKey, String member) {
+        append(OP_REMOVE_MEMBER, setKey, out -> out.writeUTF(member));
+        super.removeMember(setKey, member);
+        compactIfLarge();
+    }
+
+    @Override
+    public synchronized void delete(String key) {
+        append(OP_DELETE, key, out -> { });
+        super.delete(key);
+        compactIfLarge();
+    }
+
+    /**
+     * 将日志刷到磁盘
+     */
+    public synchronized void force() {
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 周期快照：快照以来有变更时压缩日志
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.store.append-log.snapshot-interval:60000}")
+    public synchronized void snapshot() {
+        if (changesSinceSnapshot > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * 把当前状态重写为新日志并原子替换旧日志
+     * 新日志的通道在替换前打开，替换成功后才关闭旧通道：任何一步失败时旧日志和旧通道保持可用
+     */
+    public synchronized void compact() {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel target = null;
+        try {
+            target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                      StandardOpenOption.READ, StandardOpenOption.WRITE);
+            for (ByteBuffer record : snapshotRecords()) {
+                while (record.hasRemaining()) {
+                    target.write(record);
+                }
+            }
+            target.force(true);
+            // 通道跟随文件本身，替换后即为新日志的通道
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            closeQuietly(target);
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+
+        FileChannel previous = channel;
+        channel = target;
+        closeQuietly(previous);
+        try {
+            compactedSize = channel.size();
+            channel.position(compactedSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        changesSinceSnapshot = 0;
+        dirty = false;
+        logger.info("Append-log clock store compacted: path={}, size={}", path, compactedSize);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (forceExecutor != null) {
+            forceExecutor.shutdown();
+        }
+        channel.force(false);
+        channel.close();
+        logger.info("Append-log clock store closed: path={}", path);
+    }
+
+    private synchronized void forceIfDirty() {
+        try {
+            if (dirty) {
+                force();
+            }
+        } catch (Exception e) {
+            logger.error("Error forcing clock store log {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 追加一条记录，调用方在追加成功后才修改内存状态；
+     * 写入或落盘失败时截断本条记录，日志与内存状态保持一致
+     */
+    private void append(byte op, String key, RecordWriter writer) {
+        ByteBuffer record = encode(op, key, writer);
+        long start;
+        try {
+            start = channel.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (forcePolicy == MappedClockFile.ForcePolicy.ALWAYS) {
+                channel.force(false);
+            } else {
+                dirty = true;
+            }
+            changesSinceSnapshot++;
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 日志超过阈值时压缩；压缩失败不影响已经完成的写入，下次写入时重试
+     */
+    private void compactIfLarge() {
+        try {
+            long size = channel.size();
+            if (size > compactThreshold && size > 2 * compactedSize) {
+                compact();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error compacting clock store log {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void closeQuietly(FileChannel fileChannel) {
+        if (fileChannel == null) {
+            return;
+        }
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            logger.error("Error closing clock store log channel {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 重放日志，截断尾部不完整的记录
+     *
+     * @return 重放的记录数
+     */
+    private int replay() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // 读满整个文件
+        }
+        buffer.flip();
+
+        int records = 0;
+        long valid = 0;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.get(body);
+            if (crc32(body) != crc) {
+                buffer.position(start);
+                break;
+            }
+            apply(new DataInputStream(new ByteArrayInputStream(body)));
+            records++;
+            valid = buffer.position();
+        }
+
+        if (valid < size) {
+            logger.warn("Append-log clock store {} has {} trailing bytes that failed validation, truncating",
+                       path, size - valid);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        return records;
+    }
+
+    /**
+     * 应用一条记录，直接调用父类方法，不再追加日志
+     */
+    private void apply(DataInputStream body) throws IOException {
+        byte op = body.readByte();
+        String key = body.readUTF();
+        switch (op) {
+            case OP_ADVANCE:
+                super.advanceCounters(Collections.singletonList(key), body.readLong());
+                break;
+            case OP_SET_VALUE:
+                super.setValue(key, readBytes(body));
+                break;
+            case OP_UPDATE_ENTRIES: {
+                Map<String, Long> changed = readEntries(body);
+                int removedCount = body.readInt();
+                List<String> removed = new ArrayList<>(removedCount);
+                for (int i = 0; i < removedCount; i++) {
+                    removed.add(body.readUTF());
+                }
+                super.updateEntries(key, changed, removed);
+                break;
+            }
+            case OP_REPLACE_ENTRIES:
+                super.replaceEntries(key, readEntries(body));
+                break;
+            case OP_PUSH: {
+                int maxLength = body.readInt();
+                super.pushBounded(key, readBytes(body), maxLength);
+                break;
+            }
+            case OP_TRIM:
+                super.trim(key, body.readInt());
+                break;
+            case OP_ADD_MEMBER:
+                super.addMember(key, body.readUTF());
+                break;
+            case OP_REMOVE_MEMBER:
+                super.removeMember(key, body.readUTF());
+                break;
+            case OP_DELETE:
+                super.delete(key);
+                break;
+            default:
+                throw new IllegalStateException("Unknown clock store log op: " + op);
+        }
+    }
+
+    /**
+     * 以最少的记录表达当前状态
+     */
+    private List<ByteBuffer> snapshotRecords() {
+        List<ByteBuffer> records = new ArrayList<>();
+        for (Map.Entry<String, Long> counter : counters().entrySet()) {
+            records.add(encode(OP_ADVANCE, counter.getKey(), out -> out.writeLong(counter.getValue())));
+        }
+        for (Map.Entry<String, byte[]> value : values().entrySet()) {
+            records.add(encode(OP_SET_VALUE, value.getKey(), out -> writeBytes(out, value.getValue())));
+        }
+        for (Map.Entry<String, Map<String, Long>> entries : entries().entrySet()) {
+            records.add(encode(OP_REPLACE_ENTRIES, entries.getKey(), out -> writeEntries(out, entries.getValue())));
+        }
+        for (Map.Entry<String, Deque<byte[]>> list : lists().entrySet()) {
+            int maxLength = Math.max(1, list.getValue().size());
+            // 从尾部开始推入，重放后顺序不变
+            Iterator<byte[]> iterator = list.getValue().descendingIterator();
+            while (iterator.hasNext()) {
+                byte[] element = iterator.next();
+                records.add(encode(OP_PUSH, list.getKey(), out -> {
+                    out.writeInt(Integer.MAX_VALUE);
+                    writeBytes(out, element);
+                }));
+            }
+            records.add(encode(OP_TRIM, list.getKey(), out -> out.writeInt(maxLength)));
+        }
+        for (Map.Entry<String, Set<String>> set : sets().entrySet()) {
+            for (String member : set.getValue()) {
+                records.add(encode(OP_ADD_MEMBER, set.getKey(), out -> out.writeUTF(member)));
+            }
+        }
+        return records;
+    }
+
+    private static ByteBuffer encode(byte op, String key, RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op);
+            out.writeUTF(key);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] body = bytes.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+        record.putInt(body.length);
+        record.putInt(crc32(body));
+        record.put(body);
+        record.flip();
+        return record;
+    }
+
+    private static int crc32(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static void writeEntries(DataOutputStream out, Map<String, Long> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream body) throws IOException {
+        byte[] value = new byte[body.readInt()];
+        body.readFully(value);
+        return value;
+    }
+
+    private static Map<String, Long> readEntries(DataInputStream body) throws IOException {
+        int count = body.readInt();
+        Map<String, Long> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put(body.readUTF(), body.readLong());
+        }
+        return entries;
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.model.VersionVector;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统一时钟引擎
+ * 在同一个临界区内推进Lamport时钟（或HLC）、向量时钟和版本向量，事件得到的三个时钟来自同一个切面；
+ * 同步事件也在同一个临界区内合并，不会插入到一次滴答的三个步骤之间
+ *
+ * 临界区内的持久化通常只是向写后持久化器标记脏键。每次滴答向多生产者单消费者队列提交一个信号，
+ * 唯一的写线程取出当前积压的全部信号后把三个时钟作为一批落盘（Redis中为一次流水线往返），
+ * 并发事件越多，每批合并的事件越多。写线程在临界区锁内取出脏键，一次滴答标记的三个键总是进入同一批；
+ * 写入在释放锁之后进行，读取的是各时钟写入时的最新状态，一批中的三个值不保证来自同一个切面
+ * （每个值都不早于该批包含的滴答）
+ *
+ * 以下情况在临界区内做同步I/O，期间其他滴答和同步等待：
+ * <ul>
+ *   <li>Lamport时钟超出已租约的区间、异步预取没有跟上时同步续租（见 LamportClockManager.ensureLeased）</li>
+ *   <li>同一个键的脏写达到 dirty-threshold、落盘线程没有跟上时同步落盘该键</li>
+ * </ul>
+ * 两者都是落盘没有跟上时的退路，耗时分别体现在滴答延迟和 dts.clock.persist.inline.flush 中
+ *
+ * 关闭写后持久化（persistence.write-behind-enabled=false）时各管理器在临界区内同步写入，不经过写线程
+ *
+ * @author DTS Team
+ */
+@Component
+public class ClockEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClockEngine.class);
+
+    private final LogicalClock logicalClock;
+    private final VectorClockManager vectorClockManager;
+    private final VersionVectorManager versionVectorManager;
+    private final ClockWriteBehindPersister clockPersister;
+    private final Object cutLock = new Object();
+    private final BlockingQueue<Long> pendingEvents = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchEvents;
+
+    private volatile Thread writer;
+
+    @Value("${dts.timestamp.engine.eager-flush:true}")
+    private boolean eagerFlush = true;
+
+    public ClockEngine(LogicalClock logicalClock,
+                       VectorClockManager vectorClockManager,
+                       VersionVectorManager versionVectorManager,
+                       ClockWriteBehindPersister clockPersister,
+                       MeterRegistry meterRegistry) {
+        this.logicalClock = logicalClock;
+        this.vectorClockManager = vectorClockManager;
+        this.versionVectorManager = versionVectorManager;
+        this.clockPersister = clockPersister;
+        if (clockPersister != null) {
+            clockPersister.setDrainLock(cutLock);
+        }
+        this.batchEvents = DistributionSummary.builder("dts.clock.engine.batch.events")
+                .description("每批落盘合并的时钟事件数")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!eagerFlush || clockPersister == null || !clockPersister.isWriteBehindEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::writeLoop, "clock-engine-writer");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+        logger.info("Clock engine writer started");
+    }
+
+    /**
+     * 一次本地事件：三个时钟在同一个临界区内推进
+     */
+    public Snapshot tick() {
+        Snapshot snapshot;
+        synchronized (cutLock) {
+            long lamportTime = logicalClock.tick();
+            snapshot = new Snapshot(lamportTime, lamportTime,
+                                    vectorClockManager.tick(), versionVectorManager.increment());
+        }
+        submit();
+        return snapshot;
+    }
+
+    /**
+     * 批量分配连续的n个逻辑时间，向量时钟与版本向量对整个批次只推进一次
+     */
+    public Snapshot tickN(int n) {
+        Snapshot snapshot;
+        synchronized (cutLock) {
+            long[] range = logicalClock.tickN(n);
+            snapshot = new Snapshot(range[0], range[1],
+                                    vectorClockManager.tick(), versionVectorManager.increment());
+        }
+        submit();
+        return snapshot;
+    }
+
+    /**
+     * 同步接收到的事件：三个时钟在同一个临界区内合并
+     *
+     * @return lamportTime 为同步后的本地逻辑时间，向量时钟和版本向量为还原后的来源节点完整时钟
+     * @throws IllegalStateException 增量基准与本地记录不一致，来源节点需要改发完整时钟
+     */
+    public Snapshot sync(String sourceNodeId, long receivedLamportTime,
+                         VectorClock receivedVectorClock, Long vectorClockBase,
+                         VersionVector receivedVersionVector, Long versionVectorBase) {
+        Snapshot snapshot;
+        synchronized (cutLock) {
+            long syncedTime = logicalClock.sync(receivedLamportTime);
+            VectorClock sourceVectorClock = vectorClockManager.applyDelta(
+                    sourceNodeId, receivedVectorClock, vectorClockBase);
+            VersionVector sourceVersionVector = versionVectorManager.applyDelta(
+                    sourceNodeId, receivedVersionVector, versionVectorBase);
+            snapshot = new Snapshot(syncedTime, syncedTime, sourceVectorClock, sourceVersionVector);
+        }
+        submit();
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = writer;
+        writer = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (clockPersister != null) {
+            clockPersister.flush();
+        }
+    }
+
+    /**
+     * 当前积压的事件数
+     */
+    public int getPendingEvents() {
+        return pendingEvents.size();
+    }
+
+    private void submit() {
+        if (writer != null) {
+            pendingEvents.offer(System.nanoTime());
+        }
+    }
+
+    /**
+     * 唯一的写线程：等待第一个信号，取出积压的全部信号后落盘一次
+     */
+    private void writeLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                pendingEvents.take();
+                int events = 1 + pendingEvents.drainTo(new ArrayList<>());
+                clockPersister.flush();
+                batchEvents.record(events);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Error flushing clock engine batch: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 同一个切面上的三个时钟
+     */
+    public static final class Snapshot {
+
+        private final long lamportStart;
+        private final long lamportTime;
+        private final VectorClock vectorClock;
+        private final VersionVector versionVector;
+
+        Snapshot(long lamportStart, long lamportTime, VectorClock vectorClock, VersionVector versionVector) {
+            this.lamportStart = lamportStart;
+            this.lamportTime = lamportTime;
+            this.vectorClock = vectorClock;
+            this.versionVector = versionVector;
+        }
+
+        /**
+         * 批量分配时为区间起点，否则与 getLamportTime 相同
+         */
+        public long getLamportStart() {
+            return lamportStart;
+        }
+
+        public long getLamportTime() {
+            return lamportTime;
+        }
+
+        public VectorClock getVectorClock() {
+            return vectorClock;
+        }
+
+        public VersionVector getVersionVector() {
+            return versionVector;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.dts.timestamp;
+
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 一次往返读取所有已注册节点的时钟
+ * 服务端脚本读取节点集合并逐个取值，原子地返回 [节点ID, 值, 节点ID, 值, ...]：
+ * 哈希键返回 HGETALL 的字段值列表，字符串键返回原始字节，不存在的键返回空字节。
+ * 节点较多时在有界线程池上并行解析
+ *
+ * 脚本访问的键由节点集合动态决定，Redis Cluster 下会被拒绝，调用方应回退到逐个读取
+ *
+ * @author DTS Team
+ */
+final class ClockSnapshotReader {
+
+    private static final RedisScript<List<Object>> SNAPSHOT_SCRIPT = listScript(
+            "local result = {} " +
+            "for _, node in ipairs(redis.call('SMEMBERS', ARGV[1])) do " +
+            "  local key = ARGV[2] .. node " +
+            "  local kind = redis.call('TYPE', key).ok " +
+            "  result[#result + 1] = node " +
+            "  if kind == 'hash' then " +
+            "    result[#result + 1] = redis.call('HGETALL', key) " +
+            "  elseif kind == 'string' then " +
+            "    result[#result + 1] = redis.call('GET', key) " +
+            "  else " +
+            "    result[#result + 1] = '' " +
+            "  end " +
+            "end " +
+            "return result");
+
+    /**
+     * 少于该数量的节点直接在调用线程解析，避免线程切换开销超过解析本身
+     */
+    static final int PARALLEL_THRESHOLD = 64;
+
+    private static final int PARSE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService PARSE_POOL = Executors.newFixedThreadPool(PARSE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "clock-snapshot-parser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ClockSnapshotReader() {
+    }
+
+    /**
+     * 返回多条结果的脚本：DefaultRedisScript 只接受原始的 List.class 作为结果类型，未检查的转换集中在这里
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static <T> RedisScript<List<T>> listScript(String script) {
+        return (RedisScript) new DefaultRedisScript<>(script, List.class);
+    }
+
+    /**
+     * 读取节点集合中所有节点的时钟并解析，解析结果为空的节点不出现在结果中
+     *
+     * @param nodeSetKey 节点集合键
+     * @param keyPrefix 时钟键前缀，与节点ID拼接得到时钟键
+     * @param parser 将原始值（哈希为字段值交替的 byte[] 列表，字符串为 byte[]）解析为时钟，空值应返回空时钟
+     * @param isEmpty 判断解析结果是否为空
+     */
+    static <T> Map<String, T> readAll(RedisTemplate<String, String> redisTemplate, String nodeSetKey,
+                                      String keyPrefix, Function<Object, T> parser, Predicate<T> isEmpty) {
+        List<Object> raw = evaluate(redisTemplate, rawArg(nodeSetKey), rawArg(keyPrefix));
+        Map<String, T> clocks = new ConcurrentHashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return clocks;
+        }
+
+        int nodeCount = raw.size() / 2;
+        if (nodeCount < PARALLEL_THRESHOLD) {
+            parseRange(raw, 0, nodeCount, parser, isEmpty, clocks);
+            return clocks;
+        }
+
+        int chunk = (nodeCount + PARSE_THREADS - 1) / PARSE_THREADS;
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int start = 0; start < nodeCount; start += chunk) {
+            int from = start;
+            int to = Math.min(nodeCount, start + chunk);
+            parts.add(CompletableFuture.runAsync(() -> parseRange(raw, from, to, parser, isEmpty, clocks), PARSE_POOL));
+        }
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+        return clocks;
+    }
+
+    private static <T> void parseRange(List<Object> raw, int from, int to, Function<Object, T> parser,
+                                       Predicate<T> isEmpty, Map<String, T> clocks) {
+        for (int i = from; i < to; i++) {
+            String node = new String((byte[]) raw.get(2 * i), StandardCharsets.UTF_8);
+            T clock = parser.apply(raw.get(2 * i + 1));
+            if (!isEmpty.test(clock)) {
+                clocks.put(node, clock);
+            }
+        }
+    }
+
+    /**
+     * 优先按SHA执行，服务端未缓存脚本时改为发送脚本正文
+     */
+    private static List<Object> evaluate(RedisTemplate<String, String> redisTemplate, byte[]... args) {
+        return redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            try {
+                return connection.scriptingCommands().evalSha(SNAPSHOT_SCRIPT.getSha1(), ReturnType.MULTI, 0, args);
+            } catch (RuntimeException e) {
+                if (!isNoScriptError(e)) {
+                    throw e;
+                }
+                return connection.scriptingCommands().eval(rawArg(SNAPSHOT_SCRIPT.getScriptAsString()),
+                        ReturnType.MULTI, 0, args);
+            }
+        });
+    }
+
+    private static boolean isNoScriptError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析 HGETALL 返回的字段值交替列表
+     */
+    static void forEachField(List<?> fieldsAndValues, BiConsumer<String, String> consumer) {
+        for (int i = 0; i + 1 < fieldsAndValues.size(); i += 2) {
+            consumer.accept(new String((byte[]) fieldsAndValues.get(i), StandardCharsets.UTF_8),
+                    new String((byte[]) fieldsAndValues.get(i + 1), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] rawArg(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.dts.timestamp;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 时钟存储SPI
+ * 时钟管理器通过该接口持久化和读取时钟状态，按部署通过 dts.timestamp.store.type 选择实现：
+ * <ul>
+ *   <li>redis：RedisClockStore，集群共享（默认）</li>
+ *   <li>in-process：InProcessClockStore，进程内并发映射，适用于单节点和嵌入式部署</li>
+ *   <li>append-log：AppendLogClockStore，进程内状态加本地追加日志，重启后可恢复</li>
+ * </ul>
+ * 键沿用各管理器原有的命名（如 vector:clock:{nodeId}），不同结构的键互不重名。
+ * 节点索引注册表同样由存储实现，因此 in-process/append-log 部署完全不依赖Redis。
+ * 读写失败时抛出运行时异常，由调用方记录日志并降级
+ *
+ * @author DTS Team
+ */
+public interface ClockStore {
+
+    /**
+     * 读取计数器，不存在时返回null
+     */
+    Long getCounter(String key);
+
+    /**
+     * 单调推进计数器：每个键仅当新值更大时才覆盖
+     *
+     * @return 第一个键推进后的值
+     */
+    long advanceCounters(List<String> keys, long value);
+
+    /**
+     * 读取二进制值，不存在时返回null
+     */
+    byte[] getValue(String key);
+
+    void setValue(String key, byte[] value);
+
+    /**
+     * 读取条目映射（节点ID到计数），不存在时返回空映射
+     */
+    Map<String, Long> getEntries(String key);
+
+    /**
+     * 读取条目映射中的部分条目，不存在的条目不出现在结果中
+     */
+    Map<String, Long> getEntries(String key, Collection<String> fields);
+
+    /**
+     * 写入变化的条目并删除被移除的条目
+     */
+    void updateEntries(String key, Map<String, Long> changed, Collection<String> removed);
+
+    /**
+     * 整体替换条目映射
+     */
+    void replaceEntries(String key, Map<String, Long> entries);
+
+    /**
+     * 推入列表头部并只保留最近 maxLength 条
+     */
+    void pushBounded(String key, byte[] value, int maxLength);
+
+    /**
+     * 按顺序推入多条（最后一条位于头部）并只保留最近 maxLength 条
+     */
+    default void pushAllBounded(String key, List<byte[]> values, int maxLength) {
+        for (byte[] value : values) {
+            pushBounded(key, value, maxLength);
+        }
+    }
+
+    /**
+     * 读取列表头部的最多 limit 条
+     */
+    List<byte[]> range(String key, int limit);
+
+    /**
+     * 只保留列表头部的 keep 条
+     */
+    void trim(String key, int keep);
+
+    void addMember(String setKey, String member);
+
+    void removeMember(String setKey, String member);
+
+    Set<String> members(String setKey);
+
+    /**
+     * 读取集合中所有成员的条目映射，键为 keyPrefix + 成员
+     * 不存在的键不出现在结果中
+     */
+    <T> Map<String, T> getAllEntries(String setKey, String keyPrefix, Function<Map<String, Long>, T> converter);
+
+    /**
+     * 读取集合中所有成员的二进制值，键为 keyPrefix + 成员
+     * 不存在的键不出现在结果中
+     */
+    <T> Map<String, T> getAllValues(String setKey, String keyPrefix, Function<byte[], T> decoder);
+
+    void delete(String key);
+
+    /**
+     * 把一组写入作为一批执行（Redis中为一次流水线往返），批内的读取结果不可用
+     * 任何一条写入失败时抛出异常，批内哪些写入已生效不确定
+     */
+    default void writeBatch(Runnable writes) {
+        writes.run();
+    }
+
+    /*
+     * 节点索引注册表（见 NodeIndexRegistry），每个操作对注册表原子：
+     * registryKey 为节点ID到索引的条目映射，registryKey:seq 为下一个未分配的索引，
+     * registryKey:free 为回收的索引集合，registryKey:seen 为节点最后出现时间的条目映射
+     */
+
+    /**
+     * 分配节点索引：已分配则返回原索引，否则优先复用回收的索引，再从序列分配
+     *
+     * @return 索引，超过 maxIndex 时返回-1
+     */
+    long assignIndex(String registryKey, String nodeId, long maxIndex, long now);
+
+    /**
+     * 登记固定索引：节点原有的其他索引放入回收集合，序列推进到固定索引之后，跳过的索引放入回收集合
+     *
+     * @return 已被其他节点占用时返回false
+     */
+    boolean pinIndex(String registryKey, String nodeId, long index, long now);
+
+    /**
+     * 刷新节点的最后出现时间
+     *
+     * @return 节点没有索引（已被回收）时返回false
+     */
+    boolean touchIndex(String registryKey, String nodeId, long now);
+
+    /**
+     * 回收 cutoff 之前最后一次出现的节点的索引，没有出现记录的节点从 now 开始计时
+     *
+     * @return 被回收的节点ID
+     */
+    List<String> reclaimIndexes(String registryKey, long cutoff, long now);
+}
@@ -0,0 +1,324 @@
+package com.example.dts.timestamp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 时钟写后持久化器
+ * 合并同一个键上的多次写入，只在周期到达或脏写次数达到阈值时持久化最新值，
+ * 使N次滴答只产生一次Redis写入
+ *
+ * 崩溃丢失上界：同一个键上未落盘的写入不会超过 dirty-threshold 次，
+ * 各管理器恢复时将本节点的计数向前跳过该安全边界。
+ * 脏写达到阈值的一半时请求落盘线程提前落盘，调用线程（可能持有时钟锁）不做I/O；
+ * 落盘线程没有跟上、脏写达到阈值时才由调用线程同步落盘，耗时记录在 dts.clock.persist.inline.flush
+ *
+ * 配置了时钟存储时，周期落盘把所有脏键作为一批写入（Redis中为一次流水线往返）；
+ * 批量写入失败时通知各管理器丢弃已落盘状态的记录，下一次写入完整重写
+ *
+ * @author DTS Team
+ */
+@Component
+public class ClockWriteBehindPersister {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClockWriteBehindPersister.class);
+
+    private final Map<String, DirtyEntry> dirtyEntries = new ConcurrentHashMap<>();
+    private final List<Runnable> batchFailureListeners = new CopyOnWriteArrayList<>();
+    private final ClockStore clockStore;
+    private final Executor flushExecutor;
+
+    private final Counter submittedWrites;
+    private final Counter flushedWrites;
+    private final Timer flushLag;
+    private final Timer inlineFlush;
+
+    private volatile Object drainLock;
+
+    @Value("${dts.timestamp.persistence.write-behind-enabled:true}")
+    private boolean writeBehindEnabled = true;
+
+    @Value("${dts.timestamp.persistence.dirty-threshold:1000}")
+    private int dirtyThreshold = 1000;
+
+    public ClockWriteBehindPersister(MeterRegistry meterRegistry) {
+        this(meterRegistry, null);
+    }
+
+    @Autowired
+    public ClockWriteBehindPersister(MeterRegistry meterRegistry, ClockStore clockStore) {
+        this(meterRegistry, clockStore, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "clock-flush");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ClockWriteBehindPersister(MeterRegistry meterRegistry, ClockStore clockStore, Executor flushExecutor) {
+        this.clockStore = clockStore;
+        this.flushExecutor = flushExecutor;
+        this.submittedWrites = Counter.builder("dts.clock.persist.submitted")
+                .description("提交给写后持久化器的写入次数")
+                .register(meterRegistry);
+        this.flushedWrites = Counter.builder("dts.clock.persist.flushed")
+                .description("实际写入Redis的次数")
+                .register(meterRegistry);
+        this.flushLag = Timer.builder("dts.clock.persist.flush.lag")
+                .description("首次变脏到落盘之间的延迟")
+                .register(meterRegistry);
+        this.inlineFlush = Timer.builder("dts.clock.persist.inline.flush")
+                .description("落盘线程没有跟上时调用线程同步落盘的耗时")
+                .register(meterRegistry);
+        Gauge.builder("dts.clock.persist.coalescing.ratio", this, ClockWriteBehindPersister::getCoalescingRatio)
+                .description("提交写入次数 / 实际写入次数")
+                .register(meterRegistry);
+        Gauge.builder("dts.clock.persist.dirty.keys", dirtyEntries, Map::size)
+                .description("等待落盘的键数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 标记键为脏，只保留最新的写入动作
+     * 写入动作应在执行时读取时钟的最新状态，而不是捕获提交时的值
+     */
+    public void markDirty(String key, Runnable writer) {
+        submittedWrites.increment();
+
+        if (!writeBehindEnabled) {
+            write(writer);
+            return;
+        }
+
+        DirtyEntry entry = dirtyEntries.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return new DirtyEntry(writer);
+            }
+            existing.writer = writer;
+            existing.pendingCount++;
+            return existing;
+        });
+
+        if (entry.pendingCount >= dirtyThreshold) {
+            // 落盘线程没有跟上，由调用线程同步落盘，保证崩溃丢失上界
+            long start = System.nanoTime();
+            flushKey(key);
+            inlineFlush.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } else if (entry.pendingCount >= Math.max(1, dirtyThreshold / 2)
+                && entry.flushRequested.compareAndSet(false, true)) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * 按周期落盘所有脏键
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.lamport.sync-interval:1000}")
+    public void flush() {
+        if (clockStore == null) {
+            for (String key : dirtyEntries.keySet()) {
+                flushKey(key);
+            }
+            return;
+        }
+
+        Map<String, DirtyEntry> batch;
+        Object lock = drainLock;
+        if (lock != null) {
+            synchronized (lock) {
+                batch = drain();
+            }
+        } else {
+            batch = drain();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            clockStore.writeBatch(() -> {
+                for (DirtyEntry entry : batch.values()) {
+                    entry.writer.run();
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Error flushing {} clock keys in batch: {}", batch.size(), e.getMessage());
+            for (Runnable listener : batchFailureListeners) {
+                listener.run();
+            }
+            for (Map.Entry<String, DirtyEntry> failed : batch.entrySet()) {
+                requeue(failed.getKey(), failed.getValue());
+            }
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (DirtyEntry entry : batch.values()) {
+            flushedWrites.increment();
+            flushLag.record(now - entry.firstDirtyNanos, TimeUnit.NANOSECONDS);
+        }
+        logger.debug("Flushed {} clock keys in one batch", batch.size());
+    }
+
+    /**
+     * 设置取出脏键时持有的锁：持有同一把锁标记的一组脏键（ClockEngine 一次滴答的三个键）
+     * 要么整体进入本批，要么整体留给下一批。取出只是内存操作，写入动作在释放锁之后执行，
+     * 读取的是执行时的最新状态
+     */
+    void setDrainLock(Object drainLock) {
+        this.drainLock = drainLock;
+    }
+
+    /**
+     * 注册批量写入失败时的回调：批内哪些写入已生效不确定，管理器应丢弃已落盘状态的记录
+     */
+    public void addBatchFailureListener(Runnable listener) {
+        batchFailureListeners.add(listener);
+    }
+
+    /**
+     * 落盘指定键的最新值
+     */
+    public void flushKey(String key) {
+        DirtyEntry entry = dirtyEntries.remove(key);
+        if (entry == null) {
+            return;
+        }
+
+        if (!write(entry.writer)) {
+            // 写入失败时放回，等待下一个周期重试
+            requeue(key, entry);
+            return;
+        }
+        flushLag.record(System.nanoTime() - entry.firstDirtyNanos, TimeUnit.NANOSECONDS);
+        logger.debug("Flushed clock key {}: {} coalesced writes", key, entry.pendingCount);
+    }
+
+    /**
+     * 获取崩溃恢复时应跳过的安全边界
+     */
+    public long getSafetyMargin() {
+        return writeBehindEnabled ? dirtyThreshold : 0L;
+    }
+
+    /**
+     * 是否启用写后持久化，关闭时各管理器同步写入
+     */
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+
+    /**
+     * 获取合并比率（提交写入次数 / 实际写入次数）
+     */
+    public double getCoalescingRatio() {
+        double flushed = flushedWrites.count();
+        return flushed > 0 ? submittedWrites.count() / flushed : 0.0;
+    }
+
+    /**
+     * 获取持久化统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("writeBehindEnabled", writeBehindEnabled);
+        statistics.put("dirtyThreshold", dirtyThreshold);
+        statistics.put("dirtyKeys", dirtyEntries.size());
+        statistics.put("submittedWrites", (long) submittedWrites.count());
+        statistics.put("flushedWrites", (long) flushedWrites.count());
+        statistics.put("coalescingRatio", getCoalescingRatio());
+        statistics.put("maxFlushLagMs", flushLag.max(TimeUnit.MILLISECONDS));
+        statistics.put("meanFlushLagMs", flushLag.mean(TimeUnit.MILLISECONDS));
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushExecutor instanceof ExecutorService) {
+            ((ExecutorService) flushExecutor).shutdown();
+        }
+        flush();
+        logger.info("Clock write-behind persister flushed on shutdown");
+    }
+
+    private Map<String, DirtyEntry> drain() {
+        Map<String, DirtyEntry> batch = new LinkedHashMap<>();
+        for (String key : dirtyEntries.keySet()) {
+            DirtyEntry entry = dirtyEntries.remove(key);
+            if (entry != null) {
+                batch.put(key, entry);
+            }
+        }
+        return batch;
+    }
+
+    private void requestFlush() {
+        try {
+            flushExecutor.execute(this::flush);
+        } catch (Exception e) {
+            // 落盘线程已关闭，等待阈值或周期落盘
+            logger.debug("Clock flush request rejected: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 放回写入失败的条目；期间有新写入时保留新的写入动作，并累加未落盘的写入次数，
+     * 使阈值仍按所有未落盘的写入计算
+     */
+    private void requeue(String key, DirtyEntry failed) {
+        dirtyEntries.merge(key, failed, (current, previous) -> {
+            current.pendingCount += previous.pendingCount;
+            if (previous.firstDirtyNanos - current.firstDirtyNanos < 0) {
+                current.firstDirtyNanos = previous.firstDirtyNanos;
+            }
+            return current;
+        });
+    }
+
+    private boolean write(Runnable writer) {
+        try {
+            writer.run();
+            flushedWrites.increment();
+            return true;
+        } catch (Exception e) {
+            logger.error("Error flushing clock to store: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 脏键条目，仅在 ConcurrentHashMap.compute/merge 内修改
+     */
+    private static class DirtyEntry {
+        private volatile Runnable writer;
+        private volatile int pendingCount;
+        private volatile long firstDirtyNanos;
+        private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+        DirtyEntry(Runnable writer) {
+            this.writer = writer;
+            this.pendingCount = 1;
+            this.firstDirtyNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.dts.timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局时钟广播器
+ * 按固定周期把本节点最新的Lamport时间发布到Redis频道（批量合并、限速），
+ * 并订阅同一频道把对端的推进写入 LamportClockManager 的本地缓存，同时记录对端存活（见 VectorClockManager 的垃圾回收）
+ * 
+ * 消息格式：{nodeId}:{lamportTime}
+ * 
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.lamport.push.enabled", havingValue = "true", matchIfMissing = true)
+public class GlobalClockBroadcaster implements MessageListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GlobalClockBroadcaster.class);
+    
+    public static final String CLOCK_ADVANCE_CHANNEL = "lamport:advance";
+    
+    private final AtomicLong lastPublished = new AtomicLong(0);
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final LamportClockManager lamportClockManager;
+    private final VectorClockManager vectorClockManager;
+    
+    public GlobalClockBroadcaster(RedisTemplate<String, String> redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  LamportClockManager lamportClockManager,
+                                  VectorClockManager vectorClockManager) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.lamportClockManager = lamportClockManager;
+        this.vectorClockManager = vectorClockManager;
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CLOCK_ADVANCE_CHANNEL));
+        logger.info("Global clock broadcaster subscribed to channel: {}", CLOCK_ADVANCE_CHANNEL);
+    }
+    
+    /**
+     * 发布本节点的时钟推进
+     * 一个周期内的所有滴答合并为一条消息，时钟未推进时不发布
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.lamport.push.publish-interval:100}")
+    public void publish() {
+        long currentTime = lamportClockManager.getCurrentTime();
+        long previous = lastPublished.get();
+        if (currentTime <= previous || !lastPublished.compareAndSet(previous, currentTime)) {
+            return;
+        }
+        
+        try {
+            redisTemplate.convertAndSend(CLOCK_ADVANCE_CHANNEL, 
+                                         lamportClockManager.getNodeId() + ":" + currentTime);
+        } catch (Exception e) {
+            // 发布失败时回退，下个周期重试
+            lastPublished.compareAndSet(currentTime, previous);
+            logger.error("Error publishing clock advance: {}", e.getMessage());
+        }
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        if (separator <= 0) {
+            logger.warn("Malformed clock advance message: {}", body);
+            return;
+        }
+        
+        try {
+            String peerNodeId = body.substring(0, separator);
+            long time = Long.parseLong(body.substring(separator + 1));
+            lamportClockManager.onPeerClockAdvance(peerNodeId, time);
+            vectorClockManager.markAlive(peerNodeId);
+        } catch (NumberFormatException e) {
+            logger.warn("Malformed clock advance message: {}", body);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.dts.timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 混合逻辑时钟（HLC）管理器
+ * 时间戳 = (物理毫秒 - 纪元) << 6 | 逻辑计数，共47位，可直接放入全序时间戳的Lamport字段。
+ * 逻辑计数溢出时自然进位到物理部分，时钟领先墙上时间的幅度受 max-drift 约束
+ * 
+ * HLC满足Lamport时钟条件，同时时间戳本身界定了物理时间，因此时间范围查询可以
+ * 直接在时间戳索引上做范围扫描
+ * 
+ * @author DTS Team
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "dts.timestamp.clock-mode", havingValue = "hlc")
+public class HybridLogicalClockManager implements LogicalClock {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HybridLogicalClockManager.class);
+    
+    /**
+     * 物理部分的纪元：2020-01-01T00:00:00Z，41位毫秒可用到2089年
+     */
+    public static final long EPOCH_MILLIS = 1577836800000L;
+    
+    /**
+     * 逻辑计数占用的位数
+     */
+    public static final int LOGICAL_BITS = 6;
+    
+    /**
+     * 逻辑计数的最大值
+     */
+    public static final long MAX_LOGICAL = (1L << LOGICAL_BITS) - 1;
+    
+    private final AtomicLong hlc = new AtomicLong(0);
+    private final LongSupplier physicalClock;
+    
+    @Value("${dts.node.id}")
+    private String nodeId;
+    
+    @Value("${dts.timestamp.hlc.max-drift:500}")
+    private long maxDrift = 500;
+    
+    public HybridLogicalClockManager() {
+        this(System::currentTimeMillis);
+    }
+    
+    HybridLogicalClockManager(LongSupplier physicalClock) {
+        this.physicalClock = physicalClock;
+    }
+    
+    @Override
+    public long tick() {
+        return tickN(1)[1];
+    }
+    
+    @Override
+    public long[] tickN(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Tick count must be positive: " + n);
+        }
+        if (n > getMaxTickCount()) {
+            throw new IllegalArgumentException("Tick count " + n + " exceeds HLC capacity "
+                    + getMaxTickCount() + " within maxDrift=" + maxDrift + "ms");
+        }
+        
+        long now = physicalClock.getAsLong();
+        long floor = encode(now, 0) + n - 1;
+        long current;
+        long end;
+        do {
+            // 在提交前检查候选值，超过漂移上界时时钟保持不变
+            current = hlc.get();
+            end = Math.max(current + n, floor);
+            checkDrift(end, now);
+        } while (!hlc.compareAndSet(current, end));
+        
+        logger.debug("HLC tick for node {}: [{}, {}]", nodeId, end - n + 1, end);
+        return new long[]{end - n + 1, end};
+    }
+    
+    /**
+     * 漂移上界内的逻辑时间个数：每毫秒 MAX_LOGICAL+1 个，共 maxDrift 毫秒
+     */
+    @Override
+    public int getMaxTickCount() {
+        return (int) Math.min((MAX_LOGICAL + 1) * maxDrift, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public long sync(long receivedTimestamp) {
+        long now = physicalClock.getAsLong();
+        if (physicalOf(receivedTimestamp) - now > maxDrift) {
+            throw new IllegalArgumentException("Received HLC timestamp exceeds drift bound: physical=" 
+                    + physicalOf(receivedTimestamp) + ", local=" + now + ", maxDrift=" + maxDrift);
+        }
+        
+        long floor = encode(now, 0);
+        long current;
+        long newTime;
+        do {
+            current = hlc.get();
+            newTime = Math.max(Math.max(current, receivedTimestamp) + 1, floor);
+            checkDrift(newTime, now);
+        } while (!hlc.compareAndSet(current, newTime));
+        
+        logger.debug("HLC sync for node {}: received={}, new={}", nodeId, receivedTimestamp, newTime);
+        return newTime;
+    }
+    
+    @Override
+    public long getCurrentTime() {
+        return hlc.get();
+    }
+    
+    @Override
+    public long getGlobalMaxClock() {
+        // HLC通过物理时间收敛，不维护全局最大值
+        return 0L;
+    }
+    
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    @Override
+    public String getClockMode() {
+        return "hlc";
+    }
+    
+    @Override
+    public Map<String, Object> describe(long timestamp) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("mode", getClockMode());
+        description.put("timestamp", timestamp);
+        description.put("physicalTime", physicalOf(timestamp));
+        description.put("logical", logicalOf(timestamp));
+        description.put("driftMs", physicalOf(timestamp) - physicalClock.getAsLong());
+        description.put("maxDriftMs", maxDrift);
+        return description;
+    }
+    
+    @Override
+    public boolean supportsPhysicalRange() {
+        return true;
+    }
+    
+    @Override
+    public long lowerBoundOf(long epochMillis) {
+        return encode(epochMillis, 0);
+    }
+    
+    @Override
+    public long upperBoundOf(long epochMillis) {
+        return encode(epochMillis, MAX_LOGICAL);
+    }
+    
+    /**
+     * 编码物理时间与逻辑计数
+     */
+    public static long encode(long physicalMillis, long logical) {
+        return (Math.max(0L, physicalMillis - EPOCH_MILLIS) << LOGICAL_BITS) | logical;
+    }
+    
+    /**
+     * 提取物理时间（毫秒）
+     */
+    public static long physicalOf(long timestamp) {
+        return (timestamp >>> LOGICAL_BITS) + EPOCH_MILLIS;
+    }
+    
+    /**
+     * 提取逻辑计数
+     */
+    public static long logicalOf(long timestamp) {
+        return timestamp & MAX_LOGICAL;
+    }
+    
+    /**
+     * 逻辑计数持续溢出会使时钟领先墙上时间，超过漂移上界时拒绝继续发放
+     */
+    private void checkDrift(long timestamp, long now) {
+        long drift = physicalOf(timestamp) - now;
+        if (drift > maxDrift) {
+            throw new IllegalStateException("HLC drift bound exceeded for node " + nodeId 
+                    + ": drift=" + drift + "ms, maxDrift=" + maxDrift + "ms");
+        }
+    }
+}
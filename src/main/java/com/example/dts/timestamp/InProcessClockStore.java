@@ -0,0 +1,313 @@
+package com.example.dts.timestamp;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 进程内时钟存储
+ * 状态保存在并发映射中，读写都是内存操作，没有网络开销；进程退出后状态丢失。
+ * 适用于单节点和嵌入式部署，以及不依赖Redis的离线性能测试
+ *
+ * 同一个键上的复合操作（推进计数器、更新条目、列表推入截断）对该键原子
+ *
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.store.type", havingValue = "in-process")
+public class InProcessClockStore implements ClockStore {
+
+    private final Map<String, Long> counters = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Long>> entries = new ConcurrentHashMap<>();
+    private final Map<String, Deque<byte[]>> lists = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+
+    @Override
+    public Long getCounter(String key) {
+        return counters.get(key);
+    }
+
+    @Override
+    public long advanceCounters(List<String> keys, long value) {
+        long first = value;
+        for (int i = 0; i < keys.size(); i++) {
+            long advanced = counters.merge(keys.get(i), value, Math::max);
+            if (i == 0) {
+                first = advanced;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public byte[] getValue(String key) {
+        byte[] value = values.get(key);
+        return value != null ? value.clone() : null;
+    }
+
+    @Override
+    public void setValue(String key, byte[] value) {
+        values.put(key, value.clone());
+    }
+
+    @Override
+    public Map<String, Long> getEntries(String key) {
+        Map<String, Long> stored = entries.get(key);
+        return stored != null ? new HashMap<>(stored) : new HashMap<>();
+    }
+
+    @Override
+    public Map<String, Long> getEntries(String key, Collection<String> fields) {
+        Map<String, Long> selected = new HashMap<>();
+        Map<String, Long> stored = entries.get(key);
+        if (stored != null) {
+            for (String field : fields) {
+                Long value = stored.get(field);
+                if (value != null) {
+                    selected.put(field, value);
+                }
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public void updateEntries(String key, Map<String, Long> changed, Collection<String> removed) {
+        entries.compute(key, (k, stored) -> {
+            Map<String, Long> updated = stored != null ? stored : new ConcurrentHashMap<>();
+            updated.putAll(changed);
+            updated.keySet().removeAll(removed);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    @Override
+    public void replaceEntries(String key, Map<String, Long> replacement) {
+        if (replacement.isEmpty()) {
+            entries.remove(key);
+        } else {
+            entries.put(key, new ConcurrentHashMap<>(replacement));
+        }
+    }
+
+    @Override
+    public void pushBounded(String key, byte[] value, int maxLength) {
+        lists.compute(key, (k, list) -> {
+            Deque<byte[]> updated = list != null ? list : new ArrayDeque<>();
+            updated.addFirst(value.clone());
+            while (updated.size() > maxLength) {
+                updated.removeLast();
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public List<byte[]> range(String key, int limit) {
+        List<byte[]> result = new ArrayList<>();
+        lists.computeIfPresent(key, (k, list) -> {
+            Iterator<byte[]> iterator = list.iterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                result.add(iterator.next().clone());
+            }
+            return list;
+        });
+        return result;
+    }
+
+    @Override
+    public void trim(String key, int keep) {
+        lists.computeIfPresent(key, (k, list) -> {
+            while (list.size() > Math.max(0, keep)) {
+                list.removeLast();
+            }
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    @Override
+    public void addMember(String setKey, String member) {
+        sets.computeIfAbsent(setKey, k -> ConcurrentHashMap.newKeySet()).add(member);
+    }
+
+    @Override
+    public void removeMember(String setKey, String member) {
+        sets.computeIfPresent(setKey, (k, members) -> {
+            members.remove(member);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    @Override
+    public Set<String> members(String setKey) {
+        Set<String> members = ConcurrentHashMap.newKeySet();
+        Set<String> stored = sets.get(setKey);
+        if (stored != null) {
+            members.addAll(stored);
+        }
+        return members;
+    }
+
+    @Override
+    public <T> Map<String, T> getAllEntries(String setKey, String keyPrefix,
+                                            Function<Map<String, Long>, T> converter) {
+        Map<String, T> result = new ConcurrentHashMap<>();
+        for (String member : members(setKey)) {
+            Map<String, Long> stored = entries.get(keyPrefix + member);
+            if (stored != null) {
+                result.put(member, converter.apply(new HashMap<>(stored)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <T> Map<String, T> getAllValues(String setKey, String keyPrefix, Function<byte[], T> decoder) {
+        Map<String, T> result = new ConcurrentHashMap<>();
+        for (String member : members(setKey)) {
+            byte[] value = values.get(keyPrefix + member);
+            if (value != null) {
+                result.put(member, decoder.apply(value.clone()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void delete(String key) {
+        counters.remove(key);
+        values.remove(key);
+        entries.remove(key);
+        lists.remove(key);
+        sets.remove(key);
+    }
+
+    /*
+     * 节点索引注册表：由上面的基本操作组合而成，AppendLogClockStore 中每一步都会写入日志；
+     * 同步保证同一进程内的注册表操作互斥（进程内存储只被本进程访问）
+     */
+
+    @Override
+    public synchronized long assignIndex(String registryKey, String nodeId, long maxIndex, long now) {
+        Long existing = getEntries(registryKey, Collections.singleton(nodeId)).get(nodeId);
+        if (existing != null) {
+            return existing;
+        }
+
+        long index = -1L;
+        for (String free : members(registryKey + NodeIndexRegistry.FREE_SUFFIX)) {
+            long candidate = Long.parseLong(free);
+            if (index < 0 || candidate < index) {
+                index = candidate;
+            }
+        }
+        if (index >= 0) {
+            removeMember(registryKey + NodeIndexRegistry.FREE_SUFFIX, String.valueOf(index));
+        } else {
+            Long next = getCounter(registryKey + NodeIndexRegistry.SEQ_SUFFIX);
+            index = next != null ? next : 0L;
+            if (index > maxIndex) {
+                return -1L;
+            }
+            advanceCounters(Collections.singletonList(registryKey + NodeIndexRegistry.SEQ_SUFFIX), index + 1);
+        }
+        updateEntries(registryKey, Collections.singletonMap(nodeId, index), Collections.emptyList());
+        updateEntries(registryKey + NodeIndexRegistry.SEEN_SUFFIX, Collections.singletonMap(nodeId, now), Collections.emptyList());
+        return index;
+    }
+
+    @Override
+    public synchronized boolean pinIndex(String registryKey, String nodeId, long index, long now) {
+        Map<String, Long> indexes = getEntries(registryKey);
+        Long current = indexes.get(nodeId);
+        if (current == null || current != index) {
+            for (Map.Entry<String, Long> entry : indexes.entrySet()) {
+                if (entry.getValue() == index) {
+                    return false;
+                }
+            }
+            String freeKey = registryKey + NodeIndexRegistry.FREE_SUFFIX;
+            if (current != null) {
+                addMember(freeKey, String.valueOf(current));
+            }
+            Long seq = getCounter(registryKey + NodeIndexRegistry.SEQ_SUFFIX);
+            long next = seq != null ? seq : 0L;
+            for (long skipped = next; skipped < index; skipped++) {
+                addMember(freeKey, String.valueOf(skipped));
+            }
+            if (next <= index) {
+                advanceCounters(Collections.singletonList(registryKey + NodeIndexRegistry.SEQ_SUFFIX), index + 1);
+            }
+            removeMember(freeKey, String.valueOf(index));
+            updateEntries(registryKey, Collections.singletonMap(nodeId, index), Collections.emptyList());
+        }
+        updateEntries(registryKey + NodeIndexRegistry.SEEN_SUFFIX, Collections.singletonMap(nodeId, now), Collections.emptyList());
+        return true;
+    }
+
+    @Override
+    public synchronized boolean touchIndex(String registryKey, String nodeId, long now) {
+        if (getEntries(registryKey, Collections.singleton(nodeId)).isEmpty()) {
+            return false;
+        }
+        updateEntries(registryKey + NodeIndexRegistry.SEEN_SUFFIX, Collections.singletonMap(nodeId, now), Collections.emptyList());
+        return true;
+    }
+
+    @Override
+    public synchronized List<String> reclaimIndexes(String registryKey, long cutoff, long now) {
+        Map<String, Long> seen = getEntries(registryKey + NodeIndexRegistry.SEEN_SUFFIX);
+        List<String> reclaimed = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : getEntries(registryKey).entrySet()) {
+            Long lastSeen = seen.get(entry.getKey());
+            if (lastSeen == null) {
+                updateEntries(registryKey + NodeIndexRegistry.SEEN_SUFFIX, Collections.singletonMap(entry.getKey(), now),
+                              Collections.emptyList());
+            } else if (lastSeen < cutoff) {
+                List<String> removed = Collections.singletonList(entry.getKey());
+                updateEntries(registryKey, Collections.emptyMap(), removed);
+                updateEntries(registryKey + NodeIndexRegistry.SEEN_SUFFIX, Collections.emptyMap(), removed);
+                addMember(registryKey + NodeIndexRegistry.FREE_SUFFIX, String.valueOf(entry.getValue()));
+                reclaimed.add(entry.getKey());
+            }
+        }
+        return reclaimed;
+    }
+
+    /*
+     * 以下访问器供同包的 AppendLogClockStore 压缩日志时读取完整状态
+     */
+
+    Map<String, Long> counters() {
+        return counters;
+    }
+
+    Map<String, byte[]> values() {
+        return values;
+    }
+
+    Map<String, Map<String, Long>> entries() {
+        return entries;
+    }
+
+    Map<String, Deque<byte[]>> lists() {
+        return lists;
+    }
+
+    Map<String, Set<String>> sets() {
+        return sets;
+    }
+}
@@ -2,75 +2,202 @@ package com.example.dts.timestamp;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Lamport逻辑时钟管理器
  * 实现分布式系统中的逻辑时钟，确保事件的因果排序
  * 
+ * tick/sync 基于CAS无锁实现，持久化到时钟存储（见 ClockStore）在CAS完成之后进行，不占用临界区
+ * 配置写后持久化器时，未落盘的时钟增量不超过安全边界，恢复时向前跳过该边界
+ * 
+ * 启用租约（Hi/Lo）时，一次原子操作在时钟存储中预留 (T, T+N] 区间，区间内的时间戳
+ * 在本地发放而无需任何I/O，剩余不足一半时异步预取下一段；重启时从租约高水位恢复。
+ * 区间大小N根据观测到的时钟推进速率自适应调整
+ * 
+ * persistence-mode=mmap 时高水位写入本地内存映射文件，完全不访问时钟存储，
+ * 启动恢复也不依赖存储可用；interval/os 落盘策略下文件记录已fsync的预留高水位（见 MappedClockFile）
+ * 
+ * 启用推送（push.enabled）时，全局最大时钟和对端时钟由 GlobalClockBroadcaster
+ * 通过Redis发布订阅推送到本地缓存，读取集群最大值只是一次内存读
+ * 
  * @author DTS Team
  */
 @Component
-public class LamportClockManager {
+public class LamportClockManager implements LogicalClock {
     
     private static final Logger logger = LoggerFactory.getLogger(LamportClockManager.class);
     
     private static final String LAMPORT_CLOCK_KEY = "lamport:clock:";
     private static final String GLOBAL_CLOCK_KEY = "lamport:global";
+    private static final String LAMPORT_LEASE_KEY = "lamport:lease:";
     
     private final AtomicLong logicalClock = new AtomicLong(0);
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final RedisTemplate<String, String> redisTemplate;
+    private final AtomicLong persistedClock = new AtomicLong(0);
+    private final AtomicLong leaseHighWater = new AtomicLong(0);
+    private final AtomicLong cachedGlobalMax = new AtomicLong(0);
+    private final Map<String, Long> peerClocks = new ConcurrentHashMap<>();
+    private final AtomicBoolean leasePrefetching = new AtomicBoolean(false);
+    private final Object leaseMonitor = new Object();
+    private final ExecutorService leaseExecutor;
+    private final ClockStore clockStore;
+    private final ClockWriteBehindPersister clockPersister;
+    
+    private volatile MappedClockFile mappedClockFile;
+    private volatile long leaseBlockSize;
+    private volatile long lastLeaseTime;
+    private volatile long lastLeaseMillis;
     
     @Value("${dts.node.id}")
     private String nodeId;
     
-    @Value("${dts.timestamp.lamport.sync-interval:1000}")
-    private long syncInterval;
-    
     @Value("${dts.timestamp.lamport.persistence-enabled:true}")
     private boolean persistenceEnabled;
     
+    @Value("${dts.timestamp.lamport.push.enabled:true}")
+    private boolean pushEnabled;
+    
+    @Value("${dts.timestamp.lamport.persistence-mode:redis}")
+    private String persistenceMode = "redis";
+    
+    @Value("${dts.timestamp.lamport.mmap.path:./data/lamport-clock.dat}")
+    private String mmapPath = "./data/lamport-clock.dat";
+    
+    @Value("${dts.timestamp.lamport.mmap.force-policy:interval}")
+    private String mmapForcePolicy = "interval";
+    
+    @Value("${dts.timestamp.lamport.mmap.force-interval:100}")
+    private long mmapForceInterval = 100;
+    
+    @Value("${dts.timestamp.recovery.parallel:false}")
+    private boolean parallelRecovery;
+    
+    @Value("${dts.timestamp.lamport.lease.enabled:true}")
+    private boolean leaseEnabled;
+    
+    @Value("${dts.timestamp.lamport.lease.min-block-size:1000}")
+    private long minLeaseBlockSize = 1000;
+    
+    @Value("${dts.timestamp.lamport.lease.max-block-size:1000000}")
+    private long maxLeaseBlockSize = 1000000;
+    
+    @Value("${dts.timestamp.lamport.lease.target-duration:10000}")
+    private long leaseTargetDuration = 10000;
+    
     public LamportClockManager(RedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+        this(new RedisClockStore(redisTemplate), null);
+    }
+    
+    @Autowired
+    public LamportClockManager(ClockStore clockStore,
+                               ClockWriteBehindPersister clockPersister) {
+        this.clockStore = clockStore;
+        this.clockPersister = clockPersister;
+        if (clockPersister != null) {
+            // 批量落盘失败后不确定存储中的值，下一次滴答重新写入
+            clockPersister.addBatchFailureListener(() -> persistedClock.set(0));
+        }
+        this.leaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lamport-lease-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
     @PostConstruct
     public void initialize() {
-        // 从Redis恢复时钟状态
-        if (persistenceEnabled) {
-            recoverClockFromRedis();
+        if (persistenceEnabled && "mmap".equalsIgnoreCase(persistenceMode)) {
+            // 从本地映射文件恢复时钟状态
+            recoverClockFromMappedFile();
+        }
+        
+        // 并行恢复时由 ClockRecoveryCoordinator 调用
+        if (!parallelRecovery) {
+            recover();
         }
         
         logger.info("Lamport clock manager initialized for node: {}, current time: {}", 
                    nodeId, logicalClock.get());
     }
     
+    /**
+     * 从时钟存储恢复时钟状态，与恢复前已观测到的时间取较大值
+     */
+    void recover() {
+        if (persistenceEnabled && !"mmap".equalsIgnoreCase(persistenceMode)) {
+            recoverClockFromStore();
+        }
+        
+        // 推送模式下只在启动时读取一次全局时钟，之后由订阅更新
+        if (pushEnabled) {
+            cachedGlobalMax.accumulateAndGet(readGlobalMaxClock(), Math::max);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        leaseExecutor.shutdown();
+        if (mappedClockFile != null) {
+            try {
+                mappedClockFile.close();
+            } catch (IOException e) {
+                logger.error("Error closing mapped clock file: {}", e.getMessage());
+            }
+        }
+    }
+    
     /**
      * 时钟滴答，返回新的逻辑时间
      */
     public long tick() {
-        lock.writeLock().lock();
-        try {
-            long newTime = logicalClock.incrementAndGet();
-            
-            // 异步持久化到Redis
-            if (persistenceEnabled) {
-                persistClockToRedis(newTime);
-            }
-            
-            logger.debug("Clock tick for node {}: {}", nodeId, newTime);
-            return newTime;
-        } finally {
-            lock.writeLock().unlock();
+        long newTime = logicalClock.incrementAndGet();
+        
+        // 持久化在CAS之外进行
+        if (persistenceEnabled) {
+            persistClock(newTime);
+        }
+        
+        logger.debug("Clock tick for node {}: {}", nodeId, newTime);
+        return newTime;
+    }
+    
+    /**
+     * 批量滴答，一次CAS分配连续的n个逻辑时间
+     * 
+     * @return 长度为2的数组 [start, end]，两端均包含
+     */
+    public long[] tickN(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Tick count must be positive: " + n);
         }
+        
+        long end = logicalClock.addAndGet(n);
+        long start = end - n + 1;
+        
+        // 整个区间只持久化一次
+        if (persistenceEnabled) {
+            persistClock(end);
+        }
+        
+        logger.debug("Clock tickN for node {}: [{}, {}]", nodeId, start, end);
+        return new long[]{start, end};
     }
     
     /**
@@ -78,60 +205,47 @@ public class LamportClockManager {
      * 根据Lamport时钟算法：max(local_time, received_time) + 1
      */
     public long sync(long receivedTimestamp) {
-        lock.writeLock().lock();
-        try {
-            long currentTime = logicalClock.get();
-            long newTime = Math.max(currentTime, receivedTimestamp) + 1;
-            logicalClock.set(newTime);
-            
-            // 异步持久化到Redis
-            if (persistenceEnabled) {
-                persistClockToRedis(newTime);
-            }
-            
-            logger.debug("Clock sync for node {}: current={}, received={}, new={}", 
-                        nodeId, currentTime, receivedTimestamp, newTime);
-            return newTime;
-        } finally {
-            lock.writeLock().unlock();
+        long newTime = logicalClock.accumulateAndGet(receivedTimestamp,
+                (current, received) -> Math.max(current, received) + 1);
+        
+        // 持久化在CAS之外进行
+        if (persistenceEnabled) {
+            persistClock(newTime);
         }
+        
+        logger.debug("Clock sync for node {}: received={}, new={}", 
+                    nodeId, receivedTimestamp, newTime);
+        return newTime;
     }
     
     /**
      * 获取当前逻辑时间
      */
     public long getCurrentTime() {
-        lock.readLock().lock();
-        try {
-            return logicalClock.get();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return logicalClock.get();
     }
     
     /**
      * 设置逻辑时间（主要用于恢复）
      */
     public void setCurrentTime(long time) {
-        lock.writeLock().lock();
-        try {
-            logicalClock.set(time);
-            logger.info("Clock set for node {}: {}", nodeId, time);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        logicalClock.set(time);
+        logger.info("Clock set for node {}: {}", nodeId, time);
     }
     
     /**
      * 与其他节点同步时钟
      */
     public long syncWithNode(String otherNodeId) {
+        Long pushedTime = peerClocks.get(otherNodeId);
+        if (pushedTime != null) {
+            return sync(pushedTime);
+        }
+        
         try {
-            String otherClockKey = LAMPORT_CLOCK_KEY + otherNodeId;
-            String otherTimeStr = redisTemplate.opsForValue().get(otherClockKey);
+            Long otherTime = clockStore.getCounter(LAMPORT_CLOCK_KEY + otherNodeId);
             
-            if (otherTimeStr != null) {
-                long otherTime = Long.parseLong(otherTimeStr);
+            if (otherTime != null) {
                 return sync(otherTime);
             } else {
                 logger.warn("Cannot sync with node {}: clock not found", otherNodeId);
@@ -145,11 +259,40 @@ public class LamportClockManager {
     
     /**
      * 获取全局最大时钟值
+     * 推送模式下读取本地缓存，滞后不超过一个发布周期
      */
     public long getGlobalMaxClock() {
+        if (pushEnabled) {
+            return Math.max(cachedGlobalMax.get(), logicalClock.get());
+        }
+        return readGlobalMaxClock();
+    }
+    
+    /**
+     * 接收到对端推送（Redis发布订阅或Gossip）的时钟推进
+     */
+    @Override
+    public void onPeerClockAdvance(String peerNodeId, long time) {
+        if (!nodeId.equals(peerNodeId)) {
+            peerClocks.merge(peerNodeId, time, Math::max);
+        }
+        cachedGlobalMax.accumulateAndGet(time, Math::max);
+    }
+    
+    /**
+     * 获取推送缓存中的对端时钟
+     */
+    public Map<String, Long> getPeerClocks() {
+        return new HashMap<>(peerClocks);
+    }
+    
+    /**
+     * 从时钟存储读取全局最大时钟值
+     */
+    private long readGlobalMaxClock() {
         try {
-            String globalTimeStr = redisTemplate.opsForValue().get(GLOBAL_CLOCK_KEY);
-            return globalTimeStr != null ? Long.parseLong(globalTimeStr) : 0L;
+            Long globalTime = clockStore.getCounter(GLOBAL_CLOCK_KEY);
+            return globalTime != null ? globalTime : 0L;
         } catch (Exception e) {
             logger.error("Error getting global max clock: {}", e.getMessage());
             return 0L;
@@ -161,86 +304,219 @@ public class LamportClockManager {
      */
     public void updateGlobalMaxClock(long time) {
         try {
-            // 使用Redis的原子操作确保全局时钟单调递增
-            String script = 
-                "local current = redis.call('GET', KEYS[1]) " +
-                "if current == false or tonumber(current) < tonumber(ARGV[1]) then " +
-                "  redis.call('SET', KEYS[1], ARGV[1]) " +
-                "  return ARGV[1] " +
-                "else " +
-                "  return current " +
-                "end";
-            
-            redisTemplate.execute((RedisCallback<Object>) connection -> {
-                return connection.eval(script.getBytes(), 
-                                     java.util.Collections.singletonList(GLOBAL_CLOCK_KEY.getBytes()),
-                                     java.util.Collections.singletonList(String.valueOf(time).getBytes()));
-            });
+            // 单调推进确保全局时钟不回退
+            clockStore.advanceCounters(Collections.singletonList(GLOBAL_CLOCK_KEY), time);
         } catch (Exception e) {
             logger.error("Error updating global max clock: {}", e.getMessage());
         }
     }
     
     /**
-     * 从Redis恢复时钟状态
+     * 从本地内存映射文件恢复时钟状态
+     */
+    private void recoverClockFromMappedFile() {
+        try {
+            MappedClockFile.ForcePolicy policy = MappedClockFile.ForcePolicy.valueOf(mmapForcePolicy.toUpperCase());
+            mappedClockFile = new MappedClockFile(Paths.get(mmapPath), policy, mmapForceInterval);
+            long recoveredTime = mappedClockFile.getHighWater();
+            logicalClock.accumulateAndGet(recoveredTime, Math::max);
+            logger.info("Recovered Lamport clock from mapped file for node {}: {}", nodeId, recoveredTime);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open mapped clock file: " + mmapPath, e);
+        }
+    }
+    
+    /**
+     * 从时钟存储恢复时钟状态
      */
-    private void recoverClockFromRedis() {
+    private void recoverClockFromStore() {
         try {
-            String clockKey = LAMPORT_CLOCK_KEY + nodeId;
-            String timeStr = redisTemplate.opsForValue().get(clockKey);
+            // 租约高水位之前的时间戳可能已经发放，从高水位继续
+            Long leasedTime = leaseEnabled ? clockStore.getCounter(LAMPORT_LEASE_KEY + nodeId) : null;
+            if (leasedTime != null) {
+                logicalClock.accumulateAndGet(leasedTime, Math::max);
+                leaseHighWater.accumulateAndGet(leasedTime, Math::max);
+                logger.info("Recovered Lamport clock from lease for node {}: {}", nodeId, leasedTime);
+                return;
+            }
+            
+            Long persistedTime = clockStore.getCounter(LAMPORT_CLOCK_KEY + nodeId);
             
-            if (timeStr != null) {
-                long recoveredTime = Long.parseLong(timeStr);
-                logicalClock.set(recoveredTime);
-                logger.info("Recovered Lamport clock for node {}: {}", nodeId, recoveredTime);
+            if (persistedTime != null) {
+                long recoveredTime = persistedTime + getSafetyMargin();
+                logicalClock.accumulateAndGet(recoveredTime, Math::max);
+                persistedClock.accumulateAndGet(persistedTime, Math::max);
+                logger.info("Recovered Lamport clock for node {}: {} (persisted {})", 
+                           nodeId, recoveredTime, persistedTime);
             } else {
                 // 如果没有恢复数据，尝试与全局时钟同步
-                long globalTime = getGlobalMaxClock();
+                long globalTime = readGlobalMaxClock();
                 if (globalTime > 0) {
-                    logicalClock.set(globalTime);
+                    logicalClock.accumulateAndGet(globalTime, Math::max);
                     logger.info("Initialized Lamport clock from global time for node {}: {}", 
                                nodeId, globalTime);
                 }
             }
         } catch (Exception e) {
-            logger.error("Error recovering clock from Redis: {}", e.getMessage());
+            logger.error("Error recovering clock from store: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 持久化时钟
+     * 与已落盘值的差距达到安全边界时同步写入，否则交给写后持久化器合并；
+     * 启用租约时节点时钟仅供其他节点读取，重启安全由租约保证
+     */
+    private void persistClock(long time) {
+        MappedClockFile clockFile = mappedClockFile;
+        if (clockFile != null) {
+            clockFile.write(time);
+            return;
+        }
+        
+        if (leaseEnabled) {
+            ensureLeased(time);
+        }
+        
+        if (clockPersister == null
+                || (!leaseEnabled && time - persistedClock.get() >= getSafetyMargin())) {
+            persistClockToStore(time);
+        } else {
+            clockPersister.markDirty(LAMPORT_CLOCK_KEY + nodeId, () -> writeClockToStore(logicalClock.get()));
         }
     }
     
     /**
-     * 持久化时钟到Redis
+     * 持久化时钟到时钟存储
      */
-    private void persistClockToRedis(long time) {
+    private void persistClockToStore(long time) {
         try {
-            String clockKey = LAMPORT_CLOCK_KEY + nodeId;
-            redisTemplate.opsForValue().set(clockKey, String.valueOf(time));
-            
-            // 更新全局最大时钟
-            updateGlobalMaxClock(time);
+            writeClockToStore(time);
         } catch (Exception e) {
-            logger.error("Error persisting clock to Redis: {}", e.getMessage());
+            logger.error("Error persisting clock to store: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入时钟到时钟存储，已有更大的值被持久化时跳过
+     */
+    private void writeClockToStore(long time) {
+        if (time <= persistedClock.get()) {
+            return;
+        }
+        
+        // 节点时钟与全局最大时钟在一次操作中单调更新（Redis中为一次往返）
+        clockStore.advanceCounters(Arrays.asList(LAMPORT_CLOCK_KEY + nodeId, GLOBAL_CLOCK_KEY), time);
+        persistedClock.accumulateAndGet(time, Math::max);
+    }
+    
+    /**
+     * 获取崩溃恢复的安全边界
+     */
+    private long getSafetyMargin() {
+        return clockPersister != null ? clockPersister.getSafetyMargin() : 0L;
+    }
+    
+    /**
+     * 确保时间戳位于已租约的区间内
+     * 超出租约时同步续租后才返回，剩余不足半个区间时异步预取
+     *
+     * @throws IllegalStateException 同步续租失败，时间戳不能在租约之外发出
+     */
+    private void ensureLeased(long time) {
+        long highWater = leaseHighWater.get();
+        if (time > highWater) {
+            extendLease(time, true);
+        } else if (highWater - time < getLeaseBlockSize() / 2
+                && leasePrefetching.compareAndSet(false, true)) {
+            try {
+                leaseExecutor.execute(() -> {
+                    try {
+                        extendLease(logicalClock.get(), false);
+                    } finally {
+                        leasePrefetching.set(false);
+                    }
+                });
+            } catch (Exception e) {
+                leasePrefetching.set(false);
+                logger.error("Error scheduling Lamport lease prefetch: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 在时钟存储中原子地将租约高水位推进到 time + N
+     *
+     * @param required 同步续租：失败时抛出异常，否则只记录日志（预取）
+     */
+    private void extendLease(long time, boolean required) {
+        synchronized (leaseMonitor) {
+            // 等待期间其他线程可能已经续租
+            if (time < leaseHighWater.get() - getLeaseBlockSize() / 2) {
+                return;
+            }
+            
+            try {
+                long blockSize = adaptLeaseBlockSize(time);
+                long target = Math.max(time, leaseHighWater.get()) + blockSize;
+                long newHighWater = clockStore.advanceCounters(
+                        Collections.singletonList(LAMPORT_LEASE_KEY + nodeId), target);
+                leaseHighWater.accumulateAndGet(newHighWater, Math::max);
+                logger.debug("Lamport lease extended for node {}: highWater={}, blockSize={}", 
+                            nodeId, newHighWater, blockSize);
+            } catch (Exception e) {
+                logger.error("Error extending Lamport lease: {}", e.getMessage());
+                if (required) {
+                    // 崩溃后从旧的租约高水位恢复会重新发出该时间戳
+                    throw new IllegalStateException("Lamport lease extension failed for time " + time, e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 根据上次续租以来的时钟推进速率调整区间大小，使一个区间约覆盖 target-duration 毫秒
+     */
+    private long adaptLeaseBlockSize(long time) {
+        long now = System.currentTimeMillis();
+        long blockSize = getLeaseBlockSize();
+        if (lastLeaseMillis > 0) {
+            long elapsed = Math.max(1L, now - lastLeaseMillis);
+            long advanced = Math.max(0L, time - lastLeaseTime);
+            long desired = advanced * leaseTargetDuration / elapsed;
+            blockSize = Math.max(minLeaseBlockSize, Math.min(maxLeaseBlockSize, desired));
         }
+        leaseBlockSize = blockSize;
+        lastLeaseTime = time;
+        lastLeaseMillis = now;
+        return blockSize;
+    }
+    
+    private long getLeaseBlockSize() {
+        return Math.max(leaseBlockSize, minLeaseBlockSize);
+    }
+    
+    /**
+     * 获取租约高水位
+     */
+    public long getLeaseHighWater() {
+        return leaseHighWater.get();
     }
     
     /**
      * 重置时钟（主要用于测试）
      */
     public void reset() {
-        lock.writeLock().lock();
-        try {
-            logicalClock.set(0);
-            if (persistenceEnabled) {
-                try {
-                    String clockKey = LAMPORT_CLOCK_KEY + nodeId;
-                    redisTemplate.delete(clockKey);
-                } catch (Exception e) {
-                    logger.error("Error resetting clock in Redis: {}", e.getMessage());
-                }
+        logicalClock.set(0);
+        persistedClock.set(0);
+        if (persistenceEnabled) {
+            try {
+                clockStore.delete(LAMPORT_CLOCK_KEY + nodeId);
+            } catch (Exception e) {
+                logger.error("Error resetting clock in store: {}", e.getMessage());
             }
-            logger.info("Lamport clock reset for node: {}", nodeId);
-        } finally {
-            lock.writeLock().unlock();
         }
+        logger.info("Lamport clock reset for node: {}", nodeId);
     }
     
     /**
@@ -249,4 +525,28 @@ public class LamportClockManager {
     public String getNodeId() {
         return nodeId;
     }
+    
+    /**
+     * 获取时钟模式名称
+     */
+    public String getClockMode() {
+        return "lamport";
+    }
+    
+    /**
+     * 描述时间戳的组成
+     */
+    public Map<String, Object> describe(long timestamp) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("mode", getClockMode());
+        description.put("timestamp", timestamp);
+        description.put("persistenceMode", persistenceMode);
+        description.put("leaseHighWater", leaseHighWater.get());
+        MappedClockFile clockFile = mappedClockFile;
+        if (clockFile != null) {
+            description.put("fileHighWater", clockFile.getHighWater());
+            description.put("fileReservedHighWater", clockFile.getReservedHighWater());
+        }
+        return description;
+    }
 }
\ No newline at end of file
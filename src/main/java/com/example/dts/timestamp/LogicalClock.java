@@ -0,0 +1,89 @@
+package com.example.dts.timestamp;
+
+import java.util.Map;
+
+/**
+ * 逻辑时钟接口
+ * Lamport时钟与混合逻辑时钟（HLC）共享的滴答/同步API，按部署通过
+ * dts.timestamp.clock-mode 选择实现
+ * 
+ * @author DTS Team
+ */
+public interface LogicalClock {
+    
+    /**
+     * 时钟滴答，返回新的逻辑时间
+     */
+    long tick();
+    
+    /**
+     * 批量滴答，分配连续的n个逻辑时间
+     * 
+     * @return 长度为2的数组 [start, end]，两端均包含
+     */
+    long[] tickN(int n);
+    
+    /**
+     * 一次批量滴答最多能分配的逻辑时间个数
+     */
+    default int getMaxTickCount() {
+        return Integer.MAX_VALUE;
+    }
+    
+    /**
+     * 与接收到的时间戳同步
+     */
+    long sync(long receivedTimestamp);
+    
+    /**
+     * 获取当前逻辑时间
+     */
+    long getCurrentTime();
+    
+    /**
+     * 获取全局最大时钟值，不支持时返回0
+     */
+    long getGlobalMaxClock();
+    
+    /**
+     * 获取节点ID
+     */
+    String getNodeId();
+    
+    /**
+     * 获取时钟模式名称
+     */
+    String getClockMode();
+    
+    /**
+     * 描述时间戳的组成，用于状态展示
+     */
+    Map<String, Object> describe(long timestamp);
+    
+    /**
+     * 接收到对端推送（Redis发布订阅或Gossip）的时钟推进，不跟踪对端时钟的实现忽略
+     */
+    default void onPeerClockAdvance(String peerNodeId, long time) {
+    }
+    
+    /**
+     * 时间戳是否能界定物理时间范围
+     */
+    default boolean supportsPhysicalRange() {
+        return false;
+    }
+    
+    /**
+     * 物理时间（毫秒）对应的最小时间戳
+     */
+    default long lowerBoundOf(long epochMillis) {
+        throw new UnsupportedOperationException("Physical range not supported by " + getClockMode());
+    }
+    
+    /**
+     * 物理时间（毫秒）对应的最大时间戳
+     */
+    default long upperBoundOf(long epochMillis) {
+        throw new UnsupportedOperationException("Physical range not supported by " + getClockMode());
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.dts.timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存映射的时钟高水位文件
+ * 高水位写入映射内存即可返回，没有网络开销；落盘时机由 ForcePolicy 决定
+ * 
+ * 文件布局（40字节）：magic(int) | version(int) | 槽位A | 槽位B，每个槽位为 highWater(long) | ~highWater(long)
+ * 两个槽位交替写入并以取反值校验，掉电时的撕裂写最多损坏一个槽位，恢复时取有效槽位中的较大值
+ * 
+ * ALWAYS 每次写入后fsync，文件中即为发出的最大时间。INTERVAL/OS 下未fsync的写入可能在掉电时丢失，
+ * 因此文件中记录的是预留高水位：超出预留时先同步写入 time + N 并fsync才返回（与租约相同），
+ * N 按最近的推进速率覆盖约两个 force-interval；INTERVAL 的周期线程在剩余不足半个区间时提前预留。
+ * 正常关闭时写回实际高水位，重启不跳过未使用的预留区间
+ * 
+ * @author DTS Team
+ */
+public class MappedClockFile implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MappedClockFile.class);
+    
+    private static final int MAGIC = 0x4C414D50; // "LAMP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int SLOT_SIZE = 16;
+    private static final int FILE_SIZE = HEADER_SIZE + 2 * SLOT_SIZE;
+    private static final long MIN_RESERVE_BLOCK = 1000L;
+    private static final long MAX_RESERVE_BLOCK = 1000000L;
+    
+    /**
+     * 落盘策略
+     */
+    public enum ForcePolicy {
+        ALWAYS,     // 每次写入后fsync
+        INTERVAL,   // 按固定周期fsync
+        OS          // 交给操作系统回写
+    }
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ForcePolicy forcePolicy;
+    private final long forceIntervalMillis;
+    private final ScheduledExecutorService forceExecutor;
+    
+    private long highWater;
+    private long reserved;
+    private long reserveBlock = MIN_RESERVE_BLOCK;
+    private long lastReserveTime;
+    private long lastReserveNanos;
+    private int nextSlot;
+    
+    public MappedClockFile(Path path, ForcePolicy forcePolicy, long forceIntervalMillis) throws IOException {
+        this.path = path;
+        this.forcePolicy = forcePolicy;
+        this.forceIntervalMillis = Math.max(1L, forceIntervalMillis);
+        
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        this.highWater = readValidHighWater();
+        this.reserved = highWater;
+        
+        if (forcePolicy == ForcePolicy.INTERVAL) {
+            this.forceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "lamport-mmap-force");
+                thread.setDaemon(true);
+                return thread;
+            });
+            forceExecutor.scheduleWithFixedDelay(this::reserveAhead, 
+                    forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.forceExecutor = null;
+        }
+        
+        logger.info("Mapped clock file opened: path={}, policy={}, highWater={}", path, forcePolicy, highWater);
+    }
+    
+    /**
+     * 读取高水位，打开文件后为可安全恢复的时间
+     */
+    public synchronized long getHighWater() {
+        return highWater;
+    }
+    
+    /**
+     * 读取已落盘的预留高水位
+     */
+    public synchronized long getReservedHighWater() {
+        return reserved;
+    }
+    
+    /**
+     * 单调写入高水位，不大于当前高水位的值被忽略
+     * 返回时该时间必然已被落盘的值覆盖
+     */
+    public synchronized void write(long time) {
+        if (time <= highWater) {
+            return;
+        }
+        
+        highWater = time;
+        if (forcePolicy == ForcePolicy.ALWAYS) {
+            writeSlot(time);
+            force();
+            reserved = time;
+        } else if (time > reserved) {
+            reserve(time);
+        }
+    }
+    
+    /**
+     * 将映射内存刷到磁盘
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (forceExecutor != null) {
+            forceExecutor.shutdown();
+        }
+        if (reserved != highWater) {
+            // 两个槽位都写回实际高水位，否则恢复时仍会取到较大的预留值
+            writeSlot(highWater);
+            writeSlot(highWater);
+            reserved = highWater;
+        }
+        force();
+        channel.close();
+        logger.info("Mapped clock file closed: path={}, highWater={}", path, highWater);
+    }
+    
+    /**
+     * 剩余预留不足半个区间时提前预留，使滴答线程不必等待fsync
+     */
+    private synchronized void reserveAhead() {
+        try {
+            if (highWater > reserved - reserveBlock / 2) {
+                reserve(highWater);
+            }
+        } catch (Exception e) {
+            logger.error("Error forcing mapped clock file {}: {}", path, e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入并落盘 time + N，N 覆盖按最近推进速率计算的两个 force-interval
+     */
+    private void reserve(long time) {
+        long now = System.nanoTime();
+        if (lastReserveNanos != 0L) {
+            long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(now - lastReserveNanos));
+            long advanced = Math.max(0L, time - lastReserveTime);
+            long desired = advanced * forceIntervalMillis * 2 / elapsedMillis;
+            reserveBlock = Math.max(MIN_RESERVE_BLOCK, Math.min(MAX_RESERVE_BLOCK, desired));
+        }
+        lastReserveNanos = now;
+        lastReserveTime = time;
+        
+        long target = Math.max(time, reserved) + reserveBlock;
+        writeSlot(target);
+        force();
+        reserved = target;
+        logger.debug("Mapped clock file {} reserved up to {}", path, target);
+    }
+    
+    private void writeSlot(long value) {
+        int offset = HEADER_SIZE + nextSlot * SLOT_SIZE;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(offset, value);
+        buffer.putLong(offset + 8, ~value);
+        nextSlot ^= 1;
+    }
+    
+    private long readValidHighWater() {
+        if (buffer.getInt(0) != MAGIC) {
+            return 0L;
+        }
+        
+        long result = 0L;
+        for (int slot = 0; slot < 2; slot++) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            long value = buffer.getLong(offset);
+            long check = buffer.getLong(offset + 8);
+            if (value == 0L && check == 0L) {
+                // 尚未写入过的槽位
+                continue;
+            }
+            if (check != ~value) {
+                logger.warn("Mapped clock file {} slot {} failed checksum, ignoring it", path, slot);
+                continue;
+            }
+            if (value >= result) {
+                result = value;
+                // 从较旧的槽位继续写，保留最新的有效值
+                nextSlot = slot ^ 1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.MatrixClock;
+import com.example.dts.model.VectorClock;
+import com.example.dts.model.VersionVector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 矩阵时钟管理器
+ * 记录每个对端已知的向量时钟和版本向量，计算因果稳定前沿，用前沿代替固定的截断条件：
+ * <ul>
+ *   <li>版本历史 version:history:* 只保留尚未稳定的记录</li>
+ *   <li>向量时钟垃圾回收只清除已稳定的条目</li>
+ *   <li>时间戳事件超过保留期且已稳定时才删除（见 TimestampService.purgeStableEvents）</li>
+ * </ul>
+ * 行由增量同步、拉取同步和Gossip收到的对端完整时钟更新；成员为注册的节点（vector:nodes）与本节点，
+ * 尚未产生行的成员使前沿为空，无法读取成员时前沿同样为空。索引被节点索引注册表回收的节点被注销，
+ * 不再阻止前沿推进
+ * 版本向量与向量时钟一样是节点到计数的映射，按同样方式存放在矩阵中
+ *
+ * 未启用时前沿始终为空，各项截断保持原有行为
+ *
+ * @author DTS Team
+ */
+@Component
+public class MatrixClockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixClockManager.class);
+
+    private final MatrixClock clockMatrix = new MatrixClock();
+    private final MatrixClock versionMatrix = new MatrixClock();
+    private final VectorClockManager vectorClockManager;
+    private final VersionVectorManager versionVectorManager;
+    private final NodeIndexRegistry nodeIndexRegistry;
+
+    @Value("${dts.node.id}")
+    private String nodeId;
+
+    @Value("${dts.timestamp.matrix-clock.enabled:false}")
+    private boolean enabled;
+
+    public MatrixClockManager(VectorClockManager vectorClockManager,
+                              VersionVectorManager versionVectorManager,
+                              NodeIndexRegistry nodeIndexRegistry) {
+        this.vectorClockManager = vectorClockManager;
+        this.versionVectorManager = versionVectorManager;
+        this.nodeIndexRegistry = nodeIndexRegistry;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        vectorClockManager.addPeerClockListener(clockMatrix::observe);
+        versionVectorManager.addPeerVectorListener(
+                (peerNodeId, vector) -> versionMatrix.observe(peerNodeId, asClock(vector)));
+        nodeIndexRegistry.addReclaimListener(departed -> {
+            vectorClockManager.unregisterNode(departed);
+            versionVectorManager.unregisterNode(departed);
+        });
+        logger.info("Matrix clock enabled for node: {}", nodeId);
+    }
+
+    /**
+     * 计算稳定前沿并应用到版本历史截断和向量时钟垃圾回收
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.matrix-clock.interval:30000}")
+    public void applyStableFrontier() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            VectorClock clockFrontier = getStableClockFrontier();
+            vectorClockManager.updateStableFrontier(clockFrontier);
+
+            VectorClock versionFrontier = getStableVersionFrontier();
+            versionVectorManager.truncateHistory(versionFrontier.getValue(nodeId));
+
+            logger.debug("Stable frontier for node {}: clock={}, version={}",
+                        nodeId, clockFrontier, versionFrontier);
+        } catch (Exception e) {
+            logger.error("Error applying stable frontier: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 向量时钟的因果稳定前沿，未启用时为空
+     */
+    public VectorClock getStableClockFrontier() {
+        if (!enabled) {
+            return new VectorClock();
+        }
+        return frontierOf(clockMatrix, vectorClockManager.getCurrentClock());
+    }
+
+    /**
+     * 版本向量的因果稳定前沿，未启用时为空
+     */
+    public VectorClock getStableVersionFrontier() {
+        if (!enabled) {
+            return new VectorClock();
+        }
+        return frontierOf(versionMatrix, asClock(versionVectorManager.getCurrentVector()));
+    }
+
+    /**
+     * 获取矩阵信息：各行及稳定前沿
+     */
+    public Map<String, Object> getMatrixInfo() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("enabled", enabled);
+        Map<String, Map<String, Long>> rows = new HashMap<>();
+        for (String rowNode : clockMatrix.getNodeIds()) {
+            rows.put(rowNode, clockMatrix.getRow(rowNode).getClock());
+        }
+        info.put("rows", rows);
+        info.put("stableClockFrontier", getStableClockFrontier().getClock());
+        info.put("stableVersionFrontier", getStableVersionFrontier().getClock());
+        return info;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 本节点的行就是当前时钟；已注销的节点不再是成员
+     */
+    private VectorClock frontierOf(MatrixClock matrix, VectorClock ownClock) {
+        Set<String> members;
+        try {
+            members = new LinkedHashSet<>(vectorClockManager.getRegisteredNodes());
+        } catch (Exception e) {
+            logger.error("Error reading cluster members for stable frontier: {}", e.getMessage());
+            return new VectorClock();
+        }
+        members.add(nodeId);
+        matrix.observe(nodeId, ownClock);
+        matrix.retainRows(members);
+        return matrix.stableFrontier(members);
+    }
+
+    private static VectorClock asClock(VersionVector vector) {
+        return new VectorClock(vector.getVector());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.dts.timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 节点索引注册表
+ * 为每个节点ID分配集群内唯一且稳定的紧凑整数索引，用于全序时间戳的低位
+ * 注册表保存在时钟存储中：Redis存储由Lua脚本保证集群内唯一，进程内和追加日志存储不依赖Redis
+ *
+ * 固定索引（dts.node.index）同样登记在注册表中，已被其他节点占用时拒绝；
+ * 超过 reclaim-after 未出现的节点（如已下线的Pod）的索引被回收，供新节点复用。
+ * 回收期不应短于事件保留期，否则复用索引的节点可能与仍保留的旧事件产生相同的全序时间戳。
+ * 索引被回收的节点视为已退出集群，通知回收观察者（如矩阵时钟把它移出成员）
+ *
+ * @author DTS Team
+ */
+@Component
+public class NodeIndexRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeIndexRegistry.class);
+
+    static final String NODE_INDEX_KEY = "node:index";
+
+    /*
+     * 注册表其余键的后缀（见 ClockStore 的节点索引注册表操作）
+     */
+    static final String SEQ_SUFFIX = ":seq";
+    static final String FREE_SUFFIX = ":free";
+    static final String SEEN_SUFFIX = ":seen";
+
+    private final Map<String, Integer> indexCache = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> reclaimListeners = new CopyOnWriteArrayList<>();
+    private final ClockStore clockStore;
+
+    @Value("${dts.node.id}")
+    private String nodeId;
+
+    @Value("${dts.node.index:-1}")
+    private int configuredIndex = -1;
+
+    @Value("${dts.node.index-reclaim-after:${dts.timestamp.matrix-clock.event-retention:604800000}}")
+    private long reclaimAfter = 604800000L;
+
+    public NodeIndexRegistry(ClockStore clockStore) {
+        this.clockStore = clockStore;
+    }
+
+    /**
+     * 获取当前节点的索引
+     */
+    public int getLocalIndex() {
+        return getIndex(nodeId);
+    }
+
+    /**
+     * 获取指定节点的索引，首次访问时在时钟存储中分配
+     *
+     * @throws IllegalStateException 索引已耗尽，或固定索引已被其他节点占用
+     */
+    public int getIndex(String targetNodeId) {
+        Integer cached = indexCache.get(targetNodeId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long now = System.currentTimeMillis();
+        if (targetNodeId.equals(nodeId) && configuredIndex >= 0) {
+            if (configuredIndex > TotalOrderTimestamp.MAX_NODE_INDEX) {
+                throw new IllegalStateException("Configured node index out of range: " + configuredIndex);
+            }
+            if (!clockStore.pinIndex(NODE_INDEX_KEY, targetNodeId, configuredIndex, now)) {
+                throw new IllegalStateException("Configured node index " + configuredIndex
+                                                + " is already assigned to another node");
+            }
+            return cacheIndex(targetNodeId, configuredIndex);
+        }
+        long assigned = clockStore.assignIndex(NODE_INDEX_KEY, targetNodeId,
+                                               TotalOrderTimestamp.MAX_NODE_INDEX, now);
+        return cacheIndex(targetNodeId, (int) assigned);
+    }
+
+    /**
+     * 注册回收观察者，节点的索引被回收（已退出集群）时以节点ID回调
+     */
+    public void addReclaimListener(Consumer<String> listener) {
+        reclaimListeners.add(listener);
+    }
+    
+    /**
+     * 刷新本节点的最后出现时间，运行中的节点的索引不会被回收
+     */
+    @Scheduled(fixedDelayString = "${dts.node.index-heartbeat-interval:60000}")
+    public void heartbeat() {
+        if (!indexCache.containsKey(nodeId)) {
+            return;
+        }
+        try {
+            if (!clockStore.touchIndex(NODE_INDEX_KEY, nodeId, System.currentTimeMillis())) {
+                // 本节点的索引已被回收（长时间失联），下次访问时重新登记
+                indexCache.remove(nodeId);
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing node index heartbeat: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 回收已下线节点的索引，并丢弃本地缓存中已失效的映射
+     */
+    @Scheduled(fixedDelayString = "${dts.node.index-reclaim-interval:3600000}")
+    public void reclaim() {
+        try {
+            long now = System.currentTimeMillis();
+            List<String> reclaimed = clockStore.reclaimIndexes(NODE_INDEX_KEY, now - reclaimAfter, now);
+            if (!reclaimed.isEmpty()) {
+                logger.info("Reclaimed node indexes of departed nodes: {}", reclaimed);
+            }
+            for (String departed : reclaimed) {
+                for (Consumer<String> listener : reclaimListeners) {
+                    listener.accept(departed);
+                }
+            }
+
+            Map<String, Long> current = clockStore.getEntries(NODE_INDEX_KEY);
+            indexCache.entrySet().removeIf(entry -> {
+                Long stored = current.get(entry.getKey());
+                return stored == null || stored.intValue() != entry.getValue();
+            });
+        } catch (Exception e) {
+            logger.error("Error reclaiming node indexes: {}", e.getMessage());
+        }
+    }
+
+    private int cacheIndex(String targetNodeId, int index) {
+        if (index < 0 || index > TotalOrderTimestamp.MAX_NODE_INDEX) {
+            throw new IllegalStateException("Node index exhausted for node " + targetNodeId + ": " + index);
+        }
+        indexCache.put(targetNodeId, index);
+        logger.debug("Node index resolved: {} -> {}", targetNodeId, index);
+        return index;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.dts.timestamp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 堆外历史环形缓冲区
+ * 二进制编码的历史记录按写入顺序存放在固定大小的直接内存中，超过条数上限或字节容量时覆盖最旧的记录；
+ * 读取最近的记录只是一次内存拷贝，不经过存储也不做反序列化之外的解析
+ *
+ * 记录按逻辑位置单调分配，物理偏移为逻辑位置对容量取模，放不下的记录跳到缓冲区开头（尾部留空）。
+ * 尚未溢写到存储的记录由 pending/markSpilled 取出，被覆盖前未溢写的记录计入 dts.clock.history.dropped
+ *
+ * @author DTS Team
+ */
+final class OffHeapHistoryRing {
+
+    private final ByteBuffer data;
+    private final int capacity;
+    private final int maxEntries;
+    private final long[] starts;
+    private final int[] lengths;
+    private final Counter dropped;
+
+    private long firstSequence;
+    private long nextSequence;
+    private long spilledSequence;
+    private long writePosition;
+
+    OffHeapHistoryRing(String historyType, int capacity, int maxEntries, MeterRegistry meterRegistry) {
+        this.data = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.maxEntries = maxEntries;
+        this.starts = new long[maxEntries];
+        this.lengths = new int[maxEntries];
+        this.dropped = Counter.builder("dts.clock.history.dropped")
+                .description("溢写到存储之前被覆盖的历史记录数")
+                .tag("history", historyType)
+                .register(meterRegistry);
+        Gauge.builder("dts.clock.history.pending", this, OffHeapHistoryRing::pendingCount)
+                .description("尚未溢写到存储的历史记录数")
+                .tag("history", historyType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 追加一条记录，必要时覆盖最旧的记录
+     *
+     * @return 记录超过缓冲区容量而无法保存时返回false
+     */
+    synchronized boolean append(byte[] entry) {
+        if (entry.length > capacity) {
+            dropped.increment();
+            return false;
+        }
+
+        long start = writePosition;
+        int offset = (int) (start % capacity);
+        if (offset + entry.length > capacity) {
+            start += capacity - offset;
+            offset = 0;
+        }
+        long end = start + entry.length;
+
+        while (firstSequence < nextSequence
+                && (nextSequence - firstSequence >= maxEntries || overwrittenBy(firstSequence, end))) {
+            if (firstSequence >= spilledSequence) {
+                dropped.increment();
+            }
+            firstSequence++;
+        }
+        spilledSequence = Math.max(spilledSequence, firstSequence);
+
+        ByteBuffer target = data.duplicate();
+        target.position(offset);
+        target.put(entry);
+        starts[slot(nextSequence)] = start;
+        lengths[slot(nextSequence)] = entry.length;
+        nextSequence++;
+        writePosition = end;
+        return true;
+    }
+
+    /**
+     * 读取最近的最多 limit 条记录，最新的在前
+     */
+    synchronized List<byte[]> latest(int limit) {
+        List<byte[]> result = new ArrayList<>();
+        for (long sequence = nextSequence - 1; sequence >= firstSequence && result.size() < limit; sequence--) {
+            result.add(read(sequence));
+        }
+        return result;
+    }
+
+    /**
+     * 取出尚未溢写的记录（最旧的在前），成功写入存储后以 batch.endSequence 调用 markSpilled
+     */
+    synchronized Batch pending() {
+        List<byte[]> entries = new ArrayList<>();
+        for (long sequence = Math.max(spilledSequence, firstSequence); sequence < nextSequence; sequence++) {
+            entries.add(read(sequence));
+        }
+        return new Batch(entries, nextSequence);
+    }
+
+    synchronized void markSpilled(long endSequence) {
+        spilledSequence = Math.max(spilledSequence, Math.min(endSequence, nextSequence));
+    }
+
+    /**
+     * 从存储预热：记录已在存储中，不再溢写
+     *
+     * @param entries 最旧的在前
+     */
+    synchronized void load(List<byte[]> entries) {
+        for (byte[] entry : entries) {
+            append(entry);
+        }
+        spilledSequence = nextSequence;
+    }
+
+    /**
+     * 只保留最近的 keep 条记录，被截断的记录不再溢写
+     */
+    synchronized void retainLatest(int keep) {
+        firstSequence = Math.max(firstSequence, nextSequence - Math.max(0, keep));
+        spilledSequence = Math.max(spilledSequence, firstSequence);
+    }
+
+    synchronized void clear() {
+        firstSequence = nextSequence;
+        spilledSequence = nextSequence;
+    }
+
+    synchronized int size() {
+        return (int) (nextSequence - firstSequence);
+    }
+
+    synchronized long pendingCount() {
+        return nextSequence - Math.max(spilledSequence, firstSequence);
+    }
+
+    private byte[] read(long sequence) {
+        int index = slot(sequence);
+        byte[] entry = new byte[lengths[index]];
+        ByteBuffer source = data.duplicate();
+        source.position((int) (starts[index] % capacity));
+        source.get(entry);
+        return entry;
+    }
+
+    /**
+     * 逻辑区间 [end - capacity, end) 恰好覆盖整个物理缓冲区，起始位置早于该区间的记录（含尾部留空处的记录）会被覆盖
+     */
+    private boolean overwrittenBy(long sequence, long end) {
+        return starts[slot(sequence)] < end - capacity;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % maxEntries);
+    }
+
+    /**
+     * 一批待溢写的记录
+     */
+    static final class Batch {
+
+        final List<byte[]> entries;
+        final long endSequence;
+
+        Batch(List<byte[]> entries, long endSequence) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.endSequence = endSequence;
+        }
+    }
+}
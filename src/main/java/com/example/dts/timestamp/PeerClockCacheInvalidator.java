@@ -0,0 +1,95 @@
+package com.example.dts.timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * 对端时钟近缓存的失效器
+ * 订阅向量时钟和版本向量键的键空间通知，对端时钟键有写入、删除或过期时使对应缓存条目失效
+ *
+ * 需要Redis开启键空间通知（notify-keyspace-events 至少包含 K、h、$、g，或 KA），
+ * 启动时检查配置，未开启时告警；此时应改用 bounded-staleness 模式
+ *
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.near-cache.mode", havingValue = "invalidation")
+public class PeerClockCacheInvalidator implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerClockCacheInvalidator.class);
+
+    private static final String KEYSPACE_SEPARATOR = "__:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final VectorClockManager vectorClockManager;
+    private final VersionVectorManager versionVectorManager;
+
+    public PeerClockCacheInvalidator(RedisTemplate<String, String> redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     VectorClockManager vectorClockManager,
+                                     VersionVectorManager versionVectorManager) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.vectorClockManager = vectorClockManager;
+        this.versionVectorManager = versionVectorManager;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        listenerContainer.addMessageListener(this,
+                new PatternTopic("__keyspace@*__:" + VectorClockManager.VECTOR_CLOCK_KEY + "*"));
+        listenerContainer.addMessageListener(this,
+                new PatternTopic("__keyspace@*__:" + VersionVectorManager.VERSION_VECTOR_KEY + "*"));
+        warnIfNotificationsDisabled();
+        logger.info("Peer clock near-cache invalidation subscribed to keyspace notifications");
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int separator = channel.indexOf(KEYSPACE_SEPARATOR);
+        if (separator < 0) {
+            logger.warn("Unexpected keyspace notification channel: {}", channel);
+            return;
+        }
+
+        String key = channel.substring(separator + KEYSPACE_SEPARATOR.length());
+        if (key.startsWith(VectorClockManager.VECTOR_CLOCK_KEY)) {
+            vectorClockManager.invalidateCachedClock(key.substring(VectorClockManager.VECTOR_CLOCK_KEY.length()));
+        } else if (key.startsWith(VersionVectorManager.VERSION_VECTOR_KEY)) {
+            versionVectorManager.invalidateCachedVector(key.substring(VersionVectorManager.VERSION_VECTOR_KEY.length()));
+        }
+    }
+
+    /**
+     * 托管Redis可能禁用 CONFIG 命令，检查失败时只记录日志
+     */
+    private void warnIfNotificationsDisabled() {
+        try {
+            Properties config = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                    connection.serverCommands().getConfig("notify-keyspace-events"));
+            String flags = config != null ? config.getProperty("notify-keyspace-events", "") : "";
+            boolean keyspace = flags.contains("K");
+            boolean events = flags.contains("A") || (flags.contains("h") && flags.contains("$") && flags.contains("g"));
+            if (!keyspace || !events) {
+                logger.warn("Redis notify-keyspace-events is '{}', near-cache invalidation needs at least 'Kh$g'; "
+                        + "cached peer clocks may stay stale", flags);
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to check notify-keyspace-events: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.dts.timestamp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 对端时钟的本地近缓存
+ * 按最近访问顺序淘汰，条目数不超过 maxSize。两种模式：
+ * <ul>
+ *   <li>invalidation：条目一直有效，直到收到Redis键空间通知（见 PeerClockCacheInvalidator）</li>
+ *   <li>bounded-staleness：条目最多使用 maxStalenessMillis 毫秒，不依赖通知</li>
+ * </ul>
+ * 加载期间发生的失效会使本次加载结果不进入缓存，避免把已失效的值缓存下来；
+ * 空时钟（对端不存在或读取失败）不缓存。缓存的对象不直接交给调用方，读写时都复制
+ *
+ * @author DTS Team
+ */
+final class PeerClockNearCache<T> {
+
+    static final String MODE_INVALIDATION = "invalidation";
+    static final String MODE_BOUNDED_STALENESS = "bounded-staleness";
+
+    private final UnaryOperator<T> copier;
+    private final Predicate<T> isEmpty;
+    private final AtomicLong generation = new AtomicLong(0);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Counter evictions;
+    private final Map<String, Entry<T>> entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private volatile boolean enabled = true;
+    private volatile int maxSize = 1024;
+    private volatile long maxStalenessNanos = 1_000_000_000L;
+
+    /**
+     * @param clockType 指标标签，区分向量时钟和版本向量
+     */
+    PeerClockNearCache(String clockType, UnaryOperator<T> copier, Predicate<T> isEmpty, MeterRegistry meterRegistry) {
+        this.copier = copier;
+        this.isEmpty = isEmpty;
+        this.hits = Counter.builder("dts.clock.nearcache.hits")
+                .description("近缓存命中次数")
+                .tag("clock", clockType)
+                .register(meterRegistry);
+        this.misses = Counter.builder("dts.clock.nearcache.misses")
+                .description("近缓存未命中次数")
+                .tag("clock", clockType)
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("dts.clock.nearcache.invalidations")
+                .description("因对端时钟变化而失效的次数")
+                .tag("clock", clockType)
+                .register(meterRegistry);
+        this.evictions = Counter.builder("dts.clock.nearcache.evictions")
+                .description("超出容量被淘汰的条目数")
+                .tag("clock", clockType)
+                .register(meterRegistry);
+        Gauge.builder("dts.clock.nearcache.size", this, PeerClockNearCache::size)
+                .description("近缓存条目数")
+                .tag("clock", clockType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用配置，未知模式按 bounded-staleness 处理
+     */
+    void configure(boolean enabled, String mode, int maxSize, long maxStalenessMillis) {
+        this.enabled = enabled;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxStalenessNanos = MODE_INVALIDATION.equals(mode)
+                ? 0L : Math.max(1L, maxStalenessMillis) * 1_000_000L;
+        clear();
+    }
+
+    /**
+     * 读取缓存，未命中或已过期时调用 loader 加载
+     */
+    T get(String nodeId, Function<String, T> loader) {
+        if (!enabled) {
+            return loader.apply(nodeId);
+        }
+
+        synchronized (entries) {
+            Entry<T> entry = entries.get(nodeId);
+            if (entry != null && !isExpired(entry)) {
+                hits.increment();
+                return copier.apply(entry.value);
+            }
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        T value = loader.apply(nodeId);
+        put(nodeId, value, loadGeneration);
+        return value;
+    }
+
+    /**
+     * 写入在 loadGeneration 之后加载的值，期间有失效时忽略
+     */
+    void put(String nodeId, T value, long loadGeneration) {
+        if (!enabled || isEmpty.test(value)) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation.get() == loadGeneration) {
+                entries.put(nodeId, new Entry<>(copier.apply(value), System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * 当前失效代数，批量加载前记录，写入时传给 put
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    void invalidate(String nodeId) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (entries.remove(nodeId) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isExpired(Entry<T> entry) {
+        long staleness = maxStalenessNanos;
+        return staleness > 0 && System.nanoTime() - entry.loadedAt > staleness;
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long loadedAt;
+
+        Entry(T value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.dts.timestamp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按对端跟踪增量同步的基准
+ *
+ * 发送方向：记录对端已确认的状态，下一次只发送相对它变化的条目；
+ * 接收方向：记录对端的完整状态，收到增量后与之合并还原出对端的完整状态。
+ * 双方用基准状态规范编码的64位摘要（见 ClockCodec.digest）核对基准是否一致，
+ * 不一致（如任一方重启）时拒绝增量，由发送方退回完整同步
+ *
+ * @author DTS Team
+ */
+class PeerDeltaTracker<T> {
+
+    private final Map<String, T> acknowledged = new ConcurrentHashMap<>();
+    private final Map<String, T> received = new ConcurrentHashMap<>();
+    private final T empty;
+    private final BinaryOperator<T> merger;
+    private final ToLongFunction<T> digester;
+
+    PeerDeltaTracker(T empty, BinaryOperator<T> merger, ToLongFunction<T> digester) {
+        this.empty = empty;
+        this.merger = merger;
+        this.digester = digester;
+    }
+
+    /**
+     * 对端已确认的状态，没有确认时为空状态
+     */
+    T acknowledged(String peerNodeId) {
+        return acknowledged.getOrDefault(peerNodeId, empty);
+    }
+
+    /**
+     * 对端已确认状态的摘要，没有确认时返回null（应发送完整状态）
+     */
+    Long acknowledgedDigest(String peerNodeId) {
+        T state = acknowledged.get(peerNodeId);
+        return state != null ? digester.applyAsLong(state) : null;
+    }
+
+    /**
+     * 记录对端已接受发送的内容
+     *
+     * @param full 发送的是完整状态时为true，替换原有确认；否则与原有确认合并
+     */
+    void acknowledge(String peerNodeId, T sent, boolean full) {
+        if (full) {
+            acknowledged.put(peerNodeId, sent);
+        } else {
+            acknowledged.merge(peerNodeId, sent, merger);
+        }
+    }
+
+    /**
+     * 最近一次从对端收到的完整状态，没有时为空状态
+     */
+    T received(String peerNodeId) {
+        return received.getOrDefault(peerNodeId, empty);
+    }
+
+    /**
+     * 记录从对端收到的内容并返回还原后的对端完整状态
+     *
+     * @param baseDigest 增量的基准摘要，null表示 payload 是完整状态
+     * @throws IllegalStateException 基准摘要与本地记录不一致
+     */
+    T applyReceived(String peerNodeId, T payload, Long baseDigest) {
+        if (baseDigest == null) {
+            received.put(peerNodeId, payload);
+            return payload;
+        }
+        return received.compute(peerNodeId, (peer, base) -> {
+            T current = base != null ? base : empty;
+            long digest = digester.applyAsLong(current);
+            if (digest != baseDigest) {
+                throw new IllegalStateException("Delta base mismatch for peer " + peer
+                        + ": expected " + digest + ", got " + baseDigest);
+            }
+            return merger.apply(current, payload);
+        });
+    }
+
+    /**
+     * 清除对端的所有记录，下一次同步退回完整状态
+     */
+    void forget(String peerNodeId) {
+        acknowledged.remove(peerNodeId);
+        received.remove(peerNodeId);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.dts.timestamp;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 以原始字节读写Redis值
+ * 字符串模板会按UTF-8转换值，二进制编码的时钟需绕过值序列化器直接读写
+ * 
+ * @author DTS Team
+ */
+final class RedisBinaryOps {
+    
+    private RedisBinaryOps() {
+    }
+    
+    static byte[] get(RedisTemplate<String, String> redisTemplate, String key) {
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> 
+                connection.stringCommands().get(rawKey(key)));
+    }
+    
+    static void set(RedisTemplate<String, String> redisTemplate, String key, byte[] value) {
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> 
+                connection.stringCommands().set(rawKey(key), value));
+    }
+    
+    /**
+     * 推入列表头部（多个值时最后一个位于头部）并只保留最近 maxLength 条
+     */
+    static void pushBounded(RedisTemplate<String, String> redisTemplate, String key, long maxLength, byte[]... values) {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            byte[] rawKey = rawKey(key);
+            connection.listCommands().lPush(rawKey, values);
+            connection.listCommands().lTrim(rawKey, 0, maxLength - 1);
+            return null;
+        });
+    }
+    
+    static List<byte[]> range(RedisTemplate<String, String> redisTemplate, String key, long start, long end) {
+        return redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> 
+                connection.listCommands().lRange(rawKey(key), start, end));
+    }
+    
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
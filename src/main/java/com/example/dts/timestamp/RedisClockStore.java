@@ -0,0 +1,383 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.ClockCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 基于Redis的时钟存储（默认实现）
+ * <ul>
+ *   <li>计数器为十进制字符串，单调推进由Lua脚本在一次往返中完成</li>
+ *   <li>条目映射为哈希，字段为节点ID，值为十进制计数</li>
+ *   <li>二进制值和列表绕过字符串模板的值序列化器直接读写原始字节</li>
+ *   <li>批量读取见 ClockSnapshotReader</li>
+ *   <li>节点索引注册表的每个操作为一个Lua脚本，多个节点并发分配时仍然唯一</li>
+ * </ul>
+ * 旧版本的向量时钟以二进制字符串存储，读取条目映射时兼容该格式，写入时由调用方整体替换
+ *
+ * @author DTS Team
+ */
+@Component
+@ConditionalOnProperty(name = "dts.timestamp.store.type", havingValue = "redis", matchIfMissing = true)
+public class RedisClockStore implements ClockStore {
+
+    /**
+     * 单调写入脚本：对每个KEY仅当新值更大时才覆盖，返回KEYS[1]更新后的值
+     * 并发持久化可能乱序到达Redis，脚本保证已持久化的值不会回退
+     */
+    private static final RedisScript<Long> ADVANCE_COUNTERS_SCRIPT = new DefaultRedisScript<>(
+            "local v = tonumber(ARGV[1]) " +
+            "for i = 1, #KEYS do " +
+            "  local current = redis.call('GET', KEYS[i]) " +
+            "  if current == false or tonumber(current) < v then " +
+            "    redis.call('SET', KEYS[i], ARGV[1]) " +
+            "  end " +
+            "end " +
+            "return tonumber(redis.call('GET', KEYS[1]))", Long.class);
+
+    /*
+     * 节点索引注册表脚本，KEYS 依次为索引哈希、序列、回收集合、最后出现时间哈希
+     */
+
+    /**
+     * 已分配则返回原索引，否则优先复用回收的索引，再从序列中原子地分配下一个索引；耗尽时返回-1
+     */
+    private static final RedisScript<Long> ASSIGN_INDEX_SCRIPT = new DefaultRedisScript<>(
+            "local idx = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if idx then return tonumber(idx) end " +
+            "idx = redis.call('SPOP', KEYS[3]) " +
+            "if not idx then " +
+            "  idx = redis.call('INCR', KEYS[2]) - 1 " +
+            "  if idx > tonumber(ARGV[3]) then redis.call('DECR', KEYS[2]) return -1 end " +
+            "end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], idx) " +
+            "redis.call('HSET', KEYS[4], ARGV[1], ARGV[2]) " +
+            "return tonumber(idx)", Long.class);
+
+    /**
+     * 登记固定索引：已被其他节点占用时返回-1；序列推进到固定索引之后，跳过的索引放入回收集合
+     */
+    private static final RedisScript<Long> PIN_INDEX_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if current ~= ARGV[2] then " +
+            "  local entries = redis.call('HGETALL', KEYS[1]) " +
+            "  for i = 1, #entries, 2 do " +
+            "    if entries[i + 1] == ARGV[2] then return -1 end " +
+            "  end " +
+            "  if current then redis.call('SADD', KEYS[3], current) end " +
+            "  local pinned = tonumber(ARGV[2]) " +
+            "  local seq = tonumber(redis.call('GET', KEYS[2]) or '0') " +
+            "  for i = seq, pinned - 1 do redis.call('SADD', KEYS[3], i) end " +
+            "  if seq <= pinned then redis.call('SET', KEYS[2], pinned + 1) end " +
+            "  redis.call('SREM', KEYS[3], ARGV[2]) " +
+            "  redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) " +
+            "end " +
+            "redis.call('HSET', KEYS[4], ARGV[1], ARGV[3]) " +
+            "return tonumber(ARGV[2])", Long.class);
+
+    /**
+     * 节点仍有索引时刷新最后出现时间，返回1；索引已被回收时返回0
+     */
+    private static final RedisScript<Long> TOUCH_INDEX_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "redis.call('HSET', KEYS[4], ARGV[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    /**
+     * 回收 ARGV[1] 之前最后一次出现的节点的索引，返回被回收的节点ID；没有出现记录的旧条目从现在开始计时
+     */
+    private static final RedisScript<List<String>> RECLAIM_INDEX_SCRIPT = ClockSnapshotReader.listScript(
+            "local entries = redis.call('HGETALL', KEYS[1]) " +
+            "local reclaimed = {} " +
+            "for i = 1, #entries, 2 do " +
+            "  local seen = redis.call('HGET', KEYS[4], entries[i]) " +
+            "  if not seen then " +
+            "    redis.call('HSET', KEYS[4], entries[i], ARGV[2]) " +
+            "  elseif tonumber(seen) < tonumber(ARGV[1]) then " +
+            "    redis.call('HDEL', KEYS[1], entries[i]) " +
+            "    redis.call('HDEL', KEYS[4], entries[i]) " +
+            "    redis.call('SADD', KEYS[3], entries[i + 1]) " +
+            "    table.insert(reclaimed, entries[i]) " +
+            "  end " +
+            "end " +
+            "return reclaimed");
+
+    private static final byte[] ADVANCE_COUNTERS_SCRIPT_BODY =
+            ADVANCE_COUNTERS_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 当前线程是否在 writeBatch 的流水线内
+     */
+    private static final ThreadLocal<Boolean> PIPELINED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisClockStore(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Long getCounter(String key) {
+        String value = redisTemplate.opsForValue().get(key);
+        return value != null ? Long.parseLong(value) : null;
+    }
+
+    /**
+     * 流水线内改用EVAL发送脚本正文：EVALSHA的NOSCRIPT错误（Redis重启或SCRIPT FLUSH后）
+     * 要等流水线结束才返回，来不及回退，会使整批写入失败。流水线内的返回值不可用，返回 value
+     */
+    @Override
+    public long advanceCounters(List<String> keys, long value) {
+        if (PIPELINED.get()) {
+            byte[][] keysAndArgs = new byte[keys.size() + 1][];
+            for (int i = 0; i < keys.size(); i++) {
+                keysAndArgs[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            keysAndArgs[keys.size()] = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.scriptingCommands().eval(
+                    ADVANCE_COUNTERS_SCRIPT_BODY, ReturnType.INTEGER, keys.size(), keysAndArgs));
+            return value;
+        }
+        Long advanced = redisTemplate.execute(ADVANCE_COUNTERS_SCRIPT, keys, String.valueOf(value));
+        return advanced != null ? Math.max(advanced, value) : value;
+    }
+
+    @Override
+    public byte[] getValue(String key) {
+        return RedisBinaryOps.get(redisTemplate, key);
+    }
+
+    @Override
+    public void setValue(String key, byte[] value) {
+        RedisBinaryOps.set(redisTemplate, key, value);
+    }
+
+    /**
+     * HGETALL；键仍为旧版本的二进制字符串时按向量时钟编码读取
+     */
+    @Override
+    public Map<String, Long> getEntries(String key) {
+        Map<Object, Object> fields;
+        try {
+            fields = hashOps().entries(key);
+        } catch (DataAccessException e) {
+            byte[] legacy = RedisBinaryOps.get(redisTemplate, key);
+            return legacy != null ? ClockCodec.decodeVectorClock(legacy).getClock() : new HashMap<>();
+        }
+
+        Map<String, Long> entries = new HashMap<>();
+        if (fields != null) {
+            for (Map.Entry<Object, Object> field : fields.entrySet()) {
+                entries.put((String) field.getKey(), Long.parseLong((String) field.getValue()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * HMGET
+     */
+    @Override
+    public Map<String, Long> getEntries(String key, Collection<String> fields) {
+        Map<String, Long> entries = new HashMap<>();
+        if (fields.isEmpty()) {
+            return entries;
+        }
+        List<Object> names = new ArrayList<>(fields);
+        List<Object> values = hashOps().multiGet(key, names);
+        for (int i = 0; i < names.size(); i++) {
+            Object value = values != null ? values.get(i) : null;
+            if (value != null) {
+                entries.put((String) names.get(i), Long.parseLong((String) value));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * HSET 变化的字段，HDEL 被移除的字段
+     */
+    @Override
+    public void updateEntries(String key, Map<String, Long> changed, Collection<String> removed) {
+        if (!changed.isEmpty()) {
+            hashOps().putAll(key, toFields(changed));
+        }
+        if (!removed.isEmpty()) {
+            hashOps().delete(key, removed.toArray());
+        }
+    }
+
+    @Override
+    public void replaceEntries(String key, Map<String, Long> entries) {
+        redisTemplate.delete(key);
+        if (!entries.isEmpty()) {
+            hashOps().putAll(key, toFields(entries));
+        }
+    }
+
+    @Override
+    public void pushBounded(String key, byte[] value, int maxLength) {
+        RedisBinaryOps.pushBounded(redisTemplate, key, maxLength, value);
+    }
+
+    /**
+     * 一次 LPUSH 推入全部值，随后 LTRIM
+     */
+    @Override
+    public void pushAllBounded(String key, List<byte[]> values, int maxLength) {
+        if (!values.isEmpty()) {
+            RedisBinaryOps.pushBounded(redisTemplate, key, maxLength, values.toArray(new byte[0][]));
+        }
+    }
+
+    @Override
+    public List<byte[]> range(String key, int limit) {
+        List<byte[]> values = RedisBinaryOps.range(redisTemplate, key, 0, limit - 1);
+        return values != null ? values : Collections.emptyList();
+    }
+
+    @Override
+    public void trim(String key, int keep) {
+        redisTemplate.opsForList().trim(key, 0, keep - 1);
+    }
+
+    @Override
+    public void addMember(String setKey, String member) {
+        redisTemplate.opsForSet().add(setKey, member);
+    }
+
+    @Override
+    public void removeMember(String setKey, String member) {
+        redisTemplate.opsForSet().remove(setKey, member);
+    }
+
+    @Override
+    public Set<String> members(String setKey) {
+        Set<String> members = redisTemplate.opsForSet().members(setKey);
+        return members != null ? members : Collections.emptySet();
+    }
+
+    @Override
+    public <T> Map<String, T> getAllEntries(String setKey, String keyPrefix,
+                                            Function<Map<String, Long>, T> converter) {
+        return ClockSnapshotReader.readAll(redisTemplate, setKey, keyPrefix, raw -> {
+            if (raw instanceof List) {
+                Map<String, Long> entries = new HashMap<>();
+                ClockSnapshotReader.forEachField((List<?>) raw,
+                        (field, value) -> entries.put(field, Long.parseLong(value)));
+                return converter.apply(entries);
+            }
+            if (raw instanceof byte[] && ((byte[]) raw).length > 0) {
+                return converter.apply(ClockCodec.decodeVectorClock((byte[]) raw).getClock());
+            }
+            return null;
+        }, Objects::isNull);
+    }
+
+    @Override
+    public <T> Map<String, T> getAllValues(String setKey, String keyPrefix, Function<byte[], T> decoder) {
+        return ClockSnapshotReader.readAll(redisTemplate, setKey, keyPrefix, raw -> {
+            if (raw instanceof byte[] && ((byte[]) raw).length > 0) {
+                return decoder.apply((byte[]) raw);
+            }
+            return null;
+        }, Objects::isNull);
+    }
+
+    @Override
+    public void delete(String key) {
+        redisTemplate.delete(key);
+    }
+
+    /**
+     * 流水线执行：批内经同一模板发出的命令绑定到同一连接，一次往返发送
+     */
+    @Override
+    public void writeBatch(Runnable writes) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                boolean nested = PIPELINED.get();
+                PIPELINED.set(true);
+                try {
+                    writes.run();
+                } finally {
+                    PIPELINED.set(nested);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public long assignIndex(String registryKey, String nodeId, long maxIndex, long now) {
+        Long assigned = redisTemplate.execute(ASSIGN_INDEX_SCRIPT, registryKeys(registryKey), nodeId,
+                                              String.valueOf(now), String.valueOf(maxIndex));
+        if (assigned == null) {
+            throw new IllegalStateException("Failed to assign index for node: " + nodeId);
+        }
+        return assigned;
+    }
+
+    @Override
+    public boolean pinIndex(String registryKey, String nodeId, long index, long now) {
+        Long pinned = redisTemplate.execute(PIN_INDEX_SCRIPT, registryKeys(registryKey), nodeId,
+                                            String.valueOf(index), String.valueOf(now));
+        if (pinned == null) {
+            throw new IllegalStateException("Failed to pin index for node: " + nodeId);
+        }
+        return pinned >= 0;
+    }
+
+    @Override
+    public boolean touchIndex(String registryKey, String nodeId, long now) {
+        Long touched = redisTemplate.execute(TOUCH_INDEX_SCRIPT, registryKeys(registryKey), nodeId,
+                                             String.valueOf(now));
+        return touched != null && touched > 0;
+    }
+
+    @Override
+    public List<String> reclaimIndexes(String registryKey, long cutoff, long now) {
+        List<String> reclaimed = redisTemplate.execute(RECLAIM_INDEX_SCRIPT, registryKeys(registryKey),
+                                                       String.valueOf(cutoff), String.valueOf(now));
+        return reclaimed != null ? reclaimed : Collections.<String>emptyList();
+    }
+
+    private static List<String> registryKeys(String registryKey) {
+        return Arrays.asList(registryKey, registryKey + NodeIndexRegistry.SEQ_SUFFIX,
+                             registryKey + NodeIndexRegistry.FREE_SUFFIX, registryKey + NodeIndexRegistry.SEEN_SUFFIX);
+    }
+
+    private HashOperations<String, Object, Object> hashOps() {
+        return redisTemplate.opsForHash();
+    }
+
+    private static Map<String, String> toFields(Map<String, Long> entries) {
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            fields.put(entry.getKey(), Long.toString(entry.getValue()));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.TimestampEvent;
+
+import java.util.Comparator;
+
+/**
+ * 全序时间戳编码工具
+ * 将 (lamport, nodeIndex) 打包为一个long：高47位为Lamport计数，低16位为节点索引，
+ * 符号位恒为0，因此全局全序只需一次有符号long比较，数据库中只需单列索引
+ * 
+ * @author DTS Team
+ */
+public final class TotalOrderTimestamp {
+    
+    /**
+     * 节点索引占用的位数
+     */
+    public static final int NODE_INDEX_BITS = 16;
+    
+    /**
+     * 节点索引的最大值
+     */
+    public static final int MAX_NODE_INDEX = (1 << NODE_INDEX_BITS) - 1;
+    
+    /**
+     * Lamport计数的最大值
+     */
+    public static final long MAX_LAMPORT = Long.MAX_VALUE >>> NODE_INDEX_BITS;
+    
+    /**
+     * 按全序时间戳比较事件，未设置全序时间戳的事件按 (lamport, nodeId) 回退比较
+     */
+    public static final Comparator<TimestampEvent> EVENT_COMPARATOR = (event1, event2) -> {
+        if (event1.getTotalOrder() != null && event2.getTotalOrder() != null) {
+            return Long.compare(event1.getTotalOrder(), event2.getTotalOrder());
+        }
+        int result = Long.compare(event1.getLamportTimestamp(), event2.getLamportTimestamp());
+        return result != 0 ? result : event1.getNodeId().compareTo(event2.getNodeId());
+    };
+    
+    private TotalOrderTimestamp() {
+    }
+    
+    /**
+     * 打包Lamport时间与节点索引
+     */
+    public static long pack(long lamport, int nodeIndex) {
+        if (lamport < 0 || lamport > MAX_LAMPORT) {
+            throw new IllegalArgumentException("Lamport time out of range: " + lamport);
+        }
+        if (nodeIndex < 0 || nodeIndex > MAX_NODE_INDEX) {
+            throw new IllegalArgumentException("Node index out of range: " + nodeIndex);
+        }
+        return (lamport << NODE_INDEX_BITS) | nodeIndex;
+    }
+    
+    /**
+     * 提取Lamport时间
+     */
+    public static long lamportOf(long packed) {
+        return packed >>> NODE_INDEX_BITS;
+    }
+    
+    /**
+     * 提取节点索引
+     */
+    public static int nodeIndexOf(long packed) {
+        return (int) (packed & MAX_NODE_INDEX);
+    }
+    
+    /**
+     * 比较两个全序时间戳
+     */
+    public static int compare(long packed1, long packed2) {
+        return Long.compare(packed1, packed2);
+    }
+    
+    /**
+     * 指定Lamport时间的最小全序时间戳，用于范围扫描的下界
+     */
+    public static long lowerBound(long lamport) {
+        return pack(lamport, 0);
+    }
+    
+    /**
+     * 指定Lamport时间的最大全序时间戳，用于范围扫描的上界
+     */
+    public static long upperBound(long lamport) {
+        return pack(lamport, MAX_NODE_INDEX);
+    }
+}
@@ -1,23 +1,49 @@
 package com.example.dts.timestamp;
 
+import com.example.dts.model.ClockCodec;
 import com.example.dts.model.VectorClock;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
 /**
  * 向量时钟管理器
  * 管理分布式系统中的向量时钟，追踪事件的因果关系
  * 
+ * 垃圾回收在后台按节点存活进行：Gossip、发布订阅、同步和节点索引注册表的心跳记录各节点最后出现的时间，
+ * 只有条目数超过 max-entries * gc-threshold 时，才清除超过 idle-timeout 未出现的其他节点条目；
+ * 只是一段时间没有产生事件的存活节点不会被清除。清除结果在锁外构造，
+ * 安装时校验时钟版本，期间时钟有变化则放弃本轮。启用矩阵时钟时只清除已因果稳定的条目
+ * 
+ * 时钟经 ClockStore 以条目映射存储：vector:clock:{节点ID} 的字段为条目节点ID，值为计数（Redis中为哈希）。
+ * 持久化只写入与上次落盘相比有变化的字段，被回收的条目单独删除，启动后的首次写入整体替换；
+ * 写入量与集群规模无关，只需部分条目时可按字段读取
+ * 
+ * 对端时钟经本地近缓存读取（见 PeerClockNearCache），由键空间通知失效或按有界陈旧度过期
+ * 
  * @author DTS Team
  */
 @Component
@@ -25,13 +51,27 @@ public class VectorClockManager {
     
     private static final Logger logger = LoggerFactory.getLogger(VectorClockManager.class);
     
-    private static final String VECTOR_CLOCK_KEY = "vector:clock:";
+    static final String VECTOR_CLOCK_KEY = "vector:clock:";
     private static final String NODE_LIST_KEY = "vector:nodes";
     
     private VectorClock currentClock;
+    private long clockVersion;
+    private volatile VectorClock stableFrontier;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RedisTemplate<String, String> redisTemplate;
+    private final ClockStore clockStore;
+    private final ClockWriteBehindPersister clockPersister;
+    private final PeerDeltaTracker<VectorClock> syncTracker = new PeerDeltaTracker<>(new VectorClock(), VectorClock::merge, ClockCodec::digest);
+    private final PeerDeltaTracker<VectorClock> pullTracker = new PeerDeltaTracker<>(new VectorClock(), VectorClock::merge, ClockCodec::digest);
+    private final List<BiConsumer<String, VectorClock>> peerListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> lastSeen = new ConcurrentHashMap<>();
+    private final Object persistLock = new Object();
+    private VectorClock persistedClock;
+    private volatile boolean awaitingRecovery;
+    private long persistedVersion = -1L;
+    private final Counter gcPrunedEntries;
+    private final Counter gcConflicts;
+    private final Timer gcPause;
+    private final PeerClockNearCache<VectorClock> peerCache;
     
     @Value("${dts.node.id}")
     private String nodeId;
@@ -42,15 +82,63 @@ public class VectorClockManager {
     @Value("${dts.timestamp.vector-clock.gc-threshold:0.8}")
     private double gcThreshold;
     
+    @Value("${dts.timestamp.vector-clock.gc.idle-timeout:3600000}")
+    private long idleTimeout = 3600000L;
+    
+    @Value("${dts.timestamp.recovery.parallel:false}")
+    private boolean parallelRecovery;
+    
+    @Value("${dts.timestamp.near-cache.enabled:true}")
+    private boolean nearCacheEnabled = true;
+    
+    @Value("${dts.timestamp.near-cache.mode:bounded-staleness}")
+    private String nearCacheMode = PeerClockNearCache.MODE_BOUNDED_STALENESS;
+    
+    @Value("${dts.timestamp.near-cache.max-size:1024}")
+    private int nearCacheMaxSize = 1024;
+    
+    @Value("${dts.timestamp.near-cache.max-staleness:1000}")
+    private long nearCacheMaxStaleness = 1000L;
+    
     public VectorClockManager(RedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+        this(new RedisClockStore(redisTemplate), null, new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public VectorClockManager(ClockStore clockStore,
+                              ClockWriteBehindPersister clockPersister,
+                              MeterRegistry meterRegistry) {
+        this.clockStore = clockStore;
+        this.clockPersister = clockPersister;
         this.currentClock = new VectorClock();
+        if (clockPersister != null) {
+            clockPersister.addBatchFailureListener(this::forgetPersistedClock);
+        }
+        this.gcPrunedEntries = Counter.builder("dts.clock.vector.gc.pruned")
+                .description("垃圾回收清除的向量时钟条目数")
+                .register(meterRegistry);
+        this.gcConflicts = Counter.builder("dts.clock.vector.gc.conflicts")
+                .description("安装时时钟已变化而放弃的回收次数")
+                .register(meterRegistry);
+        this.gcPause = Timer.builder("dts.clock.vector.gc.pause")
+                .description("安装回收结果时持有写锁的时间")
+                .register(meterRegistry);
+        Gauge.builder("dts.clock.vector.entries", this, manager -> manager.getCurrentClock().size())
+                .description("当前向量时钟的条目数")
+                .register(meterRegistry);
+        this.peerCache = new PeerClockNearCache<>("vector", VectorClock::new, VectorClock::isEmpty, meterRegistry);
     }
     
     @PostConstruct
     public void initialize() {
-        // 从Redis恢复向量时钟状态
-        recoverClockFromRedis();
+        peerCache.configure(nearCacheEnabled, nearCacheMode, nearCacheMaxSize, nearCacheMaxStaleness);
+        
+        // 从存储恢复向量时钟状态，并行恢复时由 ClockRecoveryCoordinator 调用
+        if (parallelRecovery) {
+            awaitingRecovery = true;
+        } else {
+            recover();
+        }
         
         // 注册当前节点
         registerNode(nodeId);
@@ -65,15 +153,10 @@ public class VectorClockManager {
     public VectorClock tick() {
         lock.writeLock().lock();
         try {
-            currentClock = currentClock.tick(nodeId);
+            install(currentClock.tick(nodeId));
             
-            // 持久化到Redis
-            persistClockToRedis();
-            
-            // 检查是否需要垃圾回收
-            if (shouldPerformGC()) {
-                performGC();
-            }
+            // 持久化到存储
+            persistClock();
             
             logger.debug("Vector clock tick for node {}: {}", nodeId, currentClock);
             return new VectorClock(currentClock);
@@ -88,10 +171,10 @@ public class VectorClockManager {
     public VectorClock sync(VectorClock receivedClock) {
         lock.writeLock().lock();
         try {
-            currentClock = currentClock.sync(receivedClock, nodeId);
+            install(currentClock.sync(receivedClock, nodeId));
             
-            // 持久化到Redis
-            persistClockToRedis();
+            // 持久化到存储
+            persistClock();
             
             logger.debug("Vector clock sync for node {}: received={}, new={}", 
                         nodeId, receivedClock, currentClock);
@@ -101,6 +184,122 @@ public class VectorClockManager {
         }
     }
     
+    /**
+     * 合并接收到的向量时钟（逐项取最大值，不增加本节点的时钟）
+     * 用于后台的时钟传播，传播本身不是事件；没有新信息时不产生写入
+     */
+    public VectorClock merge(VectorClock receivedClock) {
+        lock.writeLock().lock();
+        try {
+            VectorClock merged = currentClock.merge(receivedClock);
+            if (merged.compareTo(currentClock) != VectorClock.ClockRelation.EQUAL) {
+                install(merged);
+                persistClock();
+                logger.debug("Vector clock merge for node {}: received={}, new={}",
+                            nodeId, receivedClock, currentClock);
+            }
+            return new VectorClock(currentClock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 计算发往对端的增量：当前时钟中对端尚未确认的条目
+     */
+    public VectorClock deltaFor(String peerNodeId) {
+        return getCurrentClock().diff(syncTracker.acknowledged(peerNodeId));
+    }
+    
+    /**
+     * 获取发往对端的增量基准摘要，对端尚未确认过时返回null（应发送完整时钟）
+     */
+    public Long getDeltaBase(String peerNodeId) {
+        return syncTracker.acknowledgedDigest(peerNodeId);
+    }
+    
+    /**
+     * 记录对端已接受发送的时钟
+     *
+     * @param full 发送的是完整时钟时为true
+     */
+    public void acknowledge(String peerNodeId, VectorClock sent, boolean full) {
+        syncTracker.acknowledge(peerNodeId, new VectorClock(sent), full);
+    }
+    
+    /**
+     * 应用对端发来的增量：与变化的条目同步，并返回还原出的对端完整时钟
+     *
+     * @param baseDigest 增量的基准摘要，null表示 delta 是完整时钟
+     * @throws IllegalStateException 基准与本地记录不一致，发送方需要改发完整时钟
+     */
+    public VectorClock applyDelta(String sourceNodeId, VectorClock delta, Long baseDigest) {
+        VectorClock peerClock = syncTracker.applyReceived(sourceNodeId, new VectorClock(delta), baseDigest);
+        sync(delta);
+        notifyPeerClock(sourceNodeId, peerClock);
+        return peerClock;
+    }
+    
+    /**
+     * 与拉取到的对端完整时钟同步，只处理自上次拉取以来变化的条目
+     *
+     * @return 变化的条目，没有变化时为空且不产生同步
+     */
+    public VectorClock syncChanged(String peerNodeId, VectorClock peerClock) {
+        VectorClock changed = peerClock.diff(pullTracker.received(peerNodeId));
+        if (!changed.isEmpty()) {
+            pullTracker.applyReceived(peerNodeId, new VectorClock(peerClock), null);
+            sync(changed);
+            notifyPeerClock(peerNodeId, peerClock);
+        }
+        return changed;
+    }
+    
+    /**
+     * 注册对端时钟观察者，收到对端完整时钟时回调（对端节点ID，对端时钟）
+     */
+    public void addPeerClockListener(BiConsumer<String, VectorClock> listener) {
+        peerListeners.add(listener);
+    }
+    
+    /**
+     * 通知观察者收到了对端的完整时钟，供不经过本管理器同步的通道（如Gossip）调用
+     */
+    public void notifyPeerClock(String peerNodeId, VectorClock peerClock) {
+        markAlive(peerNodeId);
+        for (BiConsumer<String, VectorClock> listener : peerListeners) {
+            listener.accept(peerNodeId, peerClock);
+        }
+    }
+    
+    /**
+     * 记录收到了对端的消息（Gossip、发布订阅、同步），对端在 idle-timeout 内不会被垃圾回收清除
+     */
+    public void markAlive(String peerNodeId) {
+        markAlive(peerNodeId, System.currentTimeMillis());
+    }
+    
+    void markAlive(String peerNodeId, long seenAt) {
+        if (peerNodeId != null && !peerNodeId.equals(nodeId)) {
+            lastSeen.merge(peerNodeId, seenAt, Math::max);
+        }
+    }
+    
+    /**
+     * 更新因果稳定前沿，垃圾回收只清除已被前沿覆盖的条目
+     */
+    public void updateStableFrontier(VectorClock frontier) {
+        this.stableFrontier = frontier;
+    }
+    
+    /**
+     * 清除对端的增量同步记录
+     */
+    public void forgetPeer(String peerNodeId) {
+        syncTracker.forget(peerNodeId);
+        pullTracker.forget(peerNodeId);
+    }
+    
     /**
      * 获取当前向量时钟
      */
@@ -119,8 +318,8 @@ public class VectorClockManager {
     public void setCurrentClock(VectorClock clock) {
         lock.writeLock().lock();
         try {
-            currentClock = new VectorClock(clock);
-            persistClockToRedis();
+            install(new VectorClock(clock));
+            persistClock();
             logger.info("Vector clock set for node {}: {}", nodeId, currentClock);
         } finally {
             lock.writeLock().unlock();
@@ -134,6 +333,13 @@ public class VectorClockManager {
         return clock1.compareTo(clock2);
     }
     
+    /**
+     * 批量比较一个时钟与多个时钟的关系
+     */
+    public VectorClock.ClockRelation[] compareAll(VectorClock clock, java.util.List<VectorClock> others) {
+        return VectorClock.compareAll(clock, others);
+    }
+    
     /**
      * 检查两个事件是否存在因果关系
      */
@@ -151,40 +357,76 @@ public class VectorClockManager {
     }
     
     /**
-     * 获取指定节点的向量时钟
+     * 获取指定节点的向量时钟，对端时钟优先从近缓存读取
      */
     public VectorClock getNodeClock(String targetNodeId) {
+        if (Objects.equals(targetNodeId, nodeId)) {
+            return loadNodeClock(targetNodeId);
+        }
+        return peerCache.get(targetNodeId, this::loadNodeClock);
+    }
+    
+    /**
+     * 使近缓存中对端的时钟失效（对端时钟键有变化时调用）
+     */
+    void invalidateCachedClock(String peerNodeId) {
+        peerCache.invalidate(peerNodeId);
+    }
+    
+    private VectorClock loadNodeClock(String targetNodeId) {
         try {
-            String clockKey = VECTOR_CLOCK_KEY + targetNodeId;
-            String clockJson = redisTemplate.opsForValue().get(clockKey);
-            
-            if (clockJson != null) {
-                Map<String, Long> clockMap = objectMapper.readValue(clockJson, Map.class);
-                return new VectorClock(clockMap);
-            } else {
+            VectorClock clock = new VectorClock(clockStore.getEntries(VECTOR_CLOCK_KEY + targetNodeId));
+            if (clock.isEmpty()) {
                 logger.warn("Clock not found for node: {}", targetNodeId);
-                return new VectorClock();
             }
+            return clock;
         } catch (Exception e) {
             logger.error("Error getting clock for node {}: {}", targetNodeId, e.getMessage());
             return new VectorClock();
         }
     }
     
+    /**
+     * 获取指定节点时钟中的部分条目（Redis中为 HMGET），不存在的条目不出现在结果中
+     */
+    public VectorClock getNodeClockEntries(String targetNodeId, Collection<String> entryNodeIds) {
+        if (entryNodeIds.isEmpty()) {
+            return new VectorClock();
+        }
+        try {
+            return new VectorClock(clockStore.getEntries(VECTOR_CLOCK_KEY + targetNodeId, entryNodeIds));
+        } catch (Exception e) {
+            logger.error("Error getting clock entries for node {}: {}", targetNodeId, e.getMessage());
+            return new VectorClock();
+        }
+    }
+    
     /**
      * 获取所有已知节点的时钟
+     * 一次读取全部节点（Redis中为一次往返，见 ClockSnapshotReader），批量读取失败时（如 Redis Cluster）回退到逐个读取
      */
     public Map<String, VectorClock> getAllNodeClocks() {
-        Map<String, VectorClock> nodeClocks = new ConcurrentHashMap<>();
+        try {
+            long generation = peerCache.generation();
+            Map<String, VectorClock> snapshot = clockStore.getAllEntries(NODE_LIST_KEY, VECTOR_CLOCK_KEY, VectorClock::new);
+            snapshot.values().removeIf(VectorClock::isEmpty);
+            // 顺带预热近缓存
+            for (Map.Entry<String, VectorClock> entry : snapshot.entrySet()) {
+                if (!entry.getKey().equals(nodeId)) {
+                    peerCache.put(entry.getKey(), entry.getValue(), generation);
+                }
+            }
+            return snapshot;
+        } catch (Exception e) {
+            logger.warn("Clock snapshot read failed, reading node clocks one by one: {}", e.getMessage());
+        }
         
+        Map<String, VectorClock> nodeClocks = new ConcurrentHashMap<>();
         try {
-            java.util.Set<String> nodeIds = redisTemplate.opsForSet().members(NODE_LIST_KEY);
-            if (nodeIds != null) {
-                for (String nodeId : nodeIds) {
-                    VectorClock clock = getNodeClock(nodeId);
-                    if (!clock.isEmpty()) {
-                        nodeClocks.put(nodeId, clock);
-                    }
+            for (String nodeId : clockStore.members(NODE_LIST_KEY)) {
+                VectorClock clock = getNodeClock(nodeId);
+                if (!clock.isEmpty()) {
+                    nodeClocks.put(nodeId, clock);
                 }
             }
         } catch (Exception e) {
@@ -199,21 +441,28 @@ public class VectorClockManager {
      */
     public void registerNode(String nodeId) {
         try {
-            redisTemplate.opsForSet().add(NODE_LIST_KEY, nodeId);
+            clockStore.addMember(NODE_LIST_KEY, nodeId);
             logger.debug("Node registered: {}", nodeId);
         } catch (Exception e) {
             logger.error("Error registering node {}: {}", nodeId, e.getMessage());
         }
     }
     
+    /**
+     * 获取已注册的节点（集群成员），读取失败时抛出异常
+     */
+    public Set<String> getRegisteredNodes() {
+        return clockStore.members(NODE_LIST_KEY);
+    }
+    
     /**
      * 注销节点
      */
     public void unregisterNode(String nodeId) {
         try {
-            redisTemplate.opsForSet().remove(NODE_LIST_KEY, nodeId);
-            String clockKey = VECTOR_CLOCK_KEY + nodeId;
-            redisTemplate.delete(clockKey);
+            clockStore.removeMember(NODE_LIST_KEY, nodeId);
+            clockStore.delete(VECTOR_CLOCK_KEY + nodeId);
+            peerCache.invalidate(nodeId);
             logger.info("Node unregistered: {}", nodeId);
         } catch (Exception e) {
             logger.error("Error unregistering node {}: {}", nodeId, e.getMessage());
@@ -221,67 +470,201 @@ public class VectorClockManager {
     }
     
     /**
-     * 从Redis恢复向量时钟状态
+     * 从存储恢复向量时钟状态，与恢复前已合并的时钟取逐项最大值
      */
-    private void recoverClockFromRedis() {
+    void recover() {
         try {
-            String clockKey = VECTOR_CLOCK_KEY + nodeId;
-            String clockJson = redisTemplate.opsForValue().get(clockKey);
+            VectorClock recovered = new VectorClock(clockStore.getEntries(VECTOR_CLOCK_KEY + nodeId));
             
-            if (clockJson != null) {
-                Map<String, Long> clockMap = objectMapper.readValue(clockJson, Map.class);
-                currentClock = new VectorClock(clockMap);
-                logger.info("Recovered vector clock for node {}: {}", nodeId, currentClock);
+            if (!recovered.isEmpty()) {
+                // 写后持久化可能丢失本节点最近的滴答，向前跳过安全边界
+                long ownValue = recovered.getValue(nodeId);
+                if (ownValue > 0 && clockPersister != null) {
+                    recovered.setValue(nodeId, ownValue + clockPersister.getSafetyMargin());
+                }
+                
+                lock.writeLock().lock();
+                try {
+                    currentClock = currentClock.merge(recovered);
+                    clockVersion++;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("Recovered vector clock for node {}: {}", nodeId, recovered);
             }
         } catch (Exception e) {
-            logger.error("Error recovering vector clock from Redis: {}", e.getMessage());
+            logger.error("Error recovering vector clock from store: {}", e.getMessage());
+        }
+        
+        if (awaitingRecovery) {
+            // 恢复前的合并只保存在内存中，此时一并落盘
+            awaitingRecovery = false;
+            persistClock();
         }
     }
     
     /**
-     * 持久化向量时钟到Redis
+     * 持久化向量时钟到存储
      */
-    private void persistClockToRedis() {
+    private void persistClock() {
+        if (awaitingRecovery) {
+            // 尚未恢复时写入会覆盖存储中本节点上次运行的时钟
+            return;
+        }
+        if (clockPersister != null) {
+            // 合并写入，落盘时读取最新状态
+            clockPersister.markDirty(VECTOR_CLOCK_KEY + nodeId, this::writeVectorClock);
+            return;
+        }
+        
         try {
-            String clockKey = VECTOR_CLOCK_KEY + nodeId;
-            String clockJson = objectMapper.writeValueAsString(currentClock.getClock());
-            redisTemplate.opsForValue().set(clockKey, clockJson);
-        } catch (JsonProcessingException e) {
-            logger.error("Error persisting vector clock to Redis: {}", e.getMessage());
+            writeVectorClock();
+        } catch (Exception e) {
+            logger.error("Error persisting vector clock to store: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入当前向量时钟：只写入与上次落盘相比有变化的条目，删除已被回收的条目
+     * 启动后的首次写入整体替换，同时把旧版本的二进制字符串值转换为条目映射
+     * 快照在持久化锁外获取，避免与持有写锁的调用线程互相等待；较旧的快照不会覆盖较新的落盘
+     */
+    private void writeVectorClock() {
+        VectorClock snapshot;
+        long snapshotVersion;
+        lock.readLock().lock();
+        try {
+            snapshot = currentClock;
+            snapshotVersion = clockVersion;
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        String clockKey = VECTOR_CLOCK_KEY + nodeId;
+        synchronized (persistLock) {
+            if (snapshotVersion <= persistedVersion) {
+                return;
+            }
+            if (persistedClock == null) {
+                clockStore.replaceEntries(clockKey, snapshot.getClock());
+            } else {
+                Set<String> removed = new HashSet<>(persistedClock.getNodeIds());
+                removed.removeAll(snapshot.getNodeIds());
+                clockStore.updateEntries(clockKey, snapshot.diff(persistedClock).getClock(), removed);
+            }
+            persistedClock = snapshot;
+            persistedVersion = snapshotVersion;
         }
     }
     
     /**
-     * 检查是否需要执行垃圾回收
+     * 批量落盘失败后不确定存储中的状态，下一次写入整体替换
      */
-    private boolean shouldPerformGC() {
-        return currentClock.size() > maxEntries * gcThreshold;
+    private void forgetPersistedClock() {
+        synchronized (persistLock) {
+            persistedClock = null;
+            persistedVersion = -1L;
+        }
     }
     
     /**
-     * 执行垃圾回收，清理过期的时钟条目
+     * 替换当前时钟（调用方持有写锁）
      */
-    private void performGC() {
+    private void install(VectorClock newClock) {
+        currentClock = newClock;
+        clockVersion++;
+    }
+    
+    /**
+     * 后台垃圾回收：条目数超过阈值时，清除长期未出现的其他节点条目
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.vector-clock.gc.interval:60000}")
+    public void collectGarbage() {
+        VectorClock snapshot;
+        long snapshotVersion;
+        lock.readLock().lock();
         try {
-            // 获取所有活跃节点
-            java.util.Set<String> activeNodes = redisTemplate.opsForSet().members(NODE_LIST_KEY);
-            
-            if (activeNodes != null && activeNodes.size() < currentClock.size()) {
-                // 创建新的时钟，只保留活跃节点
-                Map<String, Long> newClockMap = new ConcurrentHashMap<>();
-                for (String activeNode : activeNodes) {
-                    long value = currentClock.getValue(activeNode);
-                    if (value > 0) {
-                        newClockMap.put(activeNode, value);
-                    }
-                }
-                
-                currentClock = new VectorClock(newClockMap);
-                logger.info("Vector clock GC completed for node {}, entries: {} -> {}", 
-                           nodeId, currentClock.size(), newClockMap.size());
+            snapshot = currentClock;
+            snapshotVersion = clockVersion;
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        if (snapshot.size() <= maxEntries * gcThreshold) {
+            return;
+        }
+        
+        // 锁外构造清除后的时钟；本进程启动后尚未出现过的节点从首次检查时开始计时
+        long now = System.currentTimeMillis();
+        Map<String, Long> heartbeats = readHeartbeats();
+        Map<String, Long> retained = snapshot.getClock();
+        Set<String> idleNodes = new HashSet<>();
+        for (String entryNode : retained.keySet()) {
+            if (entryNode.equals(nodeId)) {
+                continue;
+            }
+            long seenAt = Math.max(lastSeen.computeIfAbsent(entryNode, key -> now),
+                                   heartbeats.getOrDefault(entryNode, 0L));
+            if (now - seenAt >= idleTimeout && isStable(entryNode, retained.get(entryNode))) {
+                idleNodes.add(entryNode);
+            }
+        }
+        lastSeen.entrySet().removeIf(entry -> !retained.containsKey(entry.getKey())
+                                              && now - entry.getValue() >= idleTimeout);
+        if (idleNodes.isEmpty()) {
+            warnIfOversized(retained.size());
+            return;
+        }
+        retained.keySet().removeAll(idleNodes);
+        VectorClock pruned = new VectorClock(retained);
+        
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            if (clockVersion != snapshotVersion) {
+                gcConflicts.increment();
+                logger.debug("Vector clock changed during GC for node {}, retrying next epoch", nodeId);
+                return;
             }
+            currentClock = pruned;
+            clockVersion++;
+            persistClock();
+        } finally {
+            lock.writeLock().unlock();
+            gcPause.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        
+        lastSeen.keySet().removeAll(idleNodes);
+        gcPrunedEntries.increment(idleNodes.size());
+        logger.info("Vector clock GC completed for node {}, entries: {} -> {}", 
+                   nodeId, snapshot.size(), pruned.size());
+        warnIfOversized(pruned.size());
+    }
+    
+    /**
+     * 节点索引注册表记录的各节点最后心跳时间（毫秒），读取失败时为空
+     */
+    private Map<String, Long> readHeartbeats() {
+        try {
+            return clockStore.getEntries(NodeIndexRegistry.NODE_INDEX_KEY + NodeIndexRegistry.SEEN_SUFFIX);
         } catch (Exception e) {
-            logger.error("Error performing vector clock GC: {}", e.getMessage());
+            logger.error("Error reading node heartbeats: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+    
+    /**
+     * 没有稳定前沿（未启用矩阵时钟）时只按存活纪元判断
+     */
+    private boolean isStable(String entryNode, long value) {
+        VectorClock frontier = stableFrontier;
+        return frontier == null || value <= frontier.getValue(entryNode);
+    }
+    
+    private void warnIfOversized(int entries) {
+        if (entries > maxEntries * gcThreshold) {
+            logger.warn("Vector clock for node {} has {} entries after GC, above {} * {}", 
+                       nodeId, entries, maxEntries, gcThreshold);
         }
     }
     
@@ -292,11 +675,16 @@ public class VectorClockManager {
         lock.writeLock().lock();
         try {
             currentClock = new VectorClock();
+            clockVersion++;
+            peerCache.clear();
             try {
-                String clockKey = VECTOR_CLOCK_KEY + nodeId;
-                redisTemplate.delete(clockKey);
+                clockStore.delete(VECTOR_CLOCK_KEY + nodeId);
+                synchronized (persistLock) {
+                    persistedClock = new VectorClock();
+                    persistedVersion = clockVersion;
+                }
             } catch (Exception e) {
-                logger.error("Error resetting vector clock in Redis: {}", e.getMessage());
+                logger.error("Error resetting vector clock in store: {}", e.getMessage());
             }
             logger.info("Vector clock reset for node: {}", nodeId);
         } finally {
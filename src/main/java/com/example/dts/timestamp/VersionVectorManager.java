@@ -1,23 +1,39 @@
 package com.example.dts.timestamp;
 
+import com.example.dts.model.ClockCodec;
 import com.example.dts.model.VersionVector;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
 /**
  * 版本向量管理器
  * 管理分布式系统中的版本向量，支持多版本并发控制
  * 
+ * 对端版本向量经本地近缓存读取（见 PeerClockNearCache），由键空间通知失效或按有界陈旧度过期
+ * 
+ * 版本历史和合并历史写入堆外环形缓冲区（见 OffHeapHistoryRing），increment/merge 不再访问存储；
+ * 缓冲区按 history.spill-interval 周期批量溢写到存储，getVersionHistory 直接从内存读取
+ * 
  * @author DTS Team
  */
 @Component
@@ -25,14 +41,27 @@ public class VersionVectorManager {
     
     private static final Logger logger = LoggerFactory.getLogger(VersionVectorManager.class);
     
-    private static final String VERSION_VECTOR_KEY = "version:vector:";
+    static final String VERSION_VECTOR_KEY = "version:vector:";
     private static final String VERSION_HISTORY_KEY = "version:history:";
     private static final String NODE_LIST_KEY = "version:nodes";
+    private static final String MERGE_HISTORY_KEY = "version:merge:";
+    private static final int HISTORY_LIMIT = 100;
+    private static final int MERGE_HISTORY_LIMIT = 50;
     
     private VersionVector currentVector;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RedisTemplate<String, String> redisTemplate;
+    private final ClockStore clockStore;
+    private final MeterRegistry meterRegistry;
+    private final ClockWriteBehindPersister clockPersister;
+    private final PeerDeltaTracker<VersionVector> syncTracker = new PeerDeltaTracker<>(new VersionVector(), VersionVector::merge, ClockCodec::digest);
+    private final PeerDeltaTracker<VersionVector> pullTracker = new PeerDeltaTracker<>(new VersionVector(), VersionVector::merge, ClockCodec::digest);
+    private final List<BiConsumer<String, VersionVector>> peerListeners = new CopyOnWriteArrayList<>();
+    private final PeerClockNearCache<VersionVector> peerCache;
+    private final Object spillLock = new Object();
+    
+    private volatile boolean awaitingRecovery;
+    private volatile OffHeapHistoryRing historyRing;
+    private volatile OffHeapHistoryRing mergeRing;
     
     @Value("${dts.node.id}")
     private String nodeId;
@@ -43,15 +72,52 @@ public class VersionVectorManager {
     @Value("${dts.timestamp.vector.cleanup-interval:3600000}")
     private long cleanupInterval;
     
+    @Value("${dts.timestamp.recovery.parallel:false}")
+    private boolean parallelRecovery;
+    
+    @Value("${dts.timestamp.near-cache.enabled:true}")
+    private boolean nearCacheEnabled = true;
+    
+    @Value("${dts.timestamp.near-cache.mode:bounded-staleness}")
+    private String nearCacheMode = PeerClockNearCache.MODE_BOUNDED_STALENESS;
+    
+    @Value("${dts.timestamp.near-cache.max-size:1024}")
+    private int nearCacheMaxSize = 1024;
+    
+    @Value("${dts.timestamp.near-cache.max-staleness:1000}")
+    private long nearCacheMaxStaleness = 1000L;
+    
+    @Value("${dts.timestamp.vector.history.ring-enabled:true}")
+    private boolean historyRingEnabled = true;
+    
+    @Value("${dts.timestamp.vector.history.ring-capacity:65536}")
+    private int historyRingCapacity = 65536;
+    
     public VersionVectorManager(RedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+        this(new RedisClockStore(redisTemplate), null, new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public VersionVectorManager(ClockStore clockStore,
+                                ClockWriteBehindPersister clockPersister,
+                                MeterRegistry meterRegistry) {
+        this.clockStore = clockStore;
+        this.meterRegistry = meterRegistry;
+        this.clockPersister = clockPersister;
         this.currentVector = new VersionVector();
+        this.peerCache = new PeerClockNearCache<>("version", VersionVector::new, VersionVector::isEmpty, meterRegistry);
     }
     
     @PostConstruct
     public void initialize() {
-        // 从Redis恢复版本向量状态
-        recoverVectorFromRedis();
+        peerCache.configure(nearCacheEnabled, nearCacheMode, nearCacheMaxSize, nearCacheMaxStaleness);
+        
+        // 从存储恢复版本向量状态，并行恢复时由 ClockRecoveryCoordinator 调用
+        if (parallelRecovery) {
+            awaitingRecovery = true;
+        } else {
+            recover();
+        }
         
         // 注册当前节点
         registerNode(nodeId);
@@ -68,8 +134,8 @@ public class VersionVectorManager {
         try {
             currentVector = currentVector.increment(nodeId);
             
-            // 持久化到Redis
-            persistVectorToRedis();
+            // 持久化到存储
+            persistVector();
             
             // 保存版本历史
             saveVersionHistory();
@@ -89,8 +155,8 @@ public class VersionVectorManager {
         try {
             currentVector = currentVector.set(targetNodeId, version);
             
-            // 持久化到Redis
-            persistVectorToRedis();
+            // 持久化到存储
+            persistVector();
             
             logger.debug("Version vector set for node {} -> {}: {}", 
                         targetNodeId, version, currentVector);
@@ -109,8 +175,8 @@ public class VersionVectorManager {
             VersionVector oldVector = new VersionVector(currentVector);
             currentVector = currentVector.merge(otherVector);
             
-            // 持久化到Redis
-            persistVectorToRedis();
+            // 持久化到存储
+            persistVector();
             
             // 保存合并历史
             saveMergeHistory(oldVector, otherVector);
@@ -123,6 +189,81 @@ public class VersionVectorManager {
         }
     }
     
+    /**
+     * 计算发往对端的增量：当前版本向量中对端尚未确认的条目
+     */
+    public VersionVector deltaFor(String peerNodeId) {
+        return getCurrentVector().diff(syncTracker.acknowledged(peerNodeId));
+    }
+    
+    /**
+     * 获取发往对端的增量基准摘要，对端尚未确认过时返回null（应发送完整版本向量）
+     */
+    public Long getDeltaBase(String peerNodeId) {
+        return syncTracker.acknowledgedDigest(peerNodeId);
+    }
+    
+    /**
+     * 记录对端已接受发送的版本向量
+     *
+     * @param full 发送的是完整版本向量时为true
+     */
+    public void acknowledge(String peerNodeId, VersionVector sent, boolean full) {
+        syncTracker.acknowledge(peerNodeId, new VersionVector(sent), full);
+    }
+    
+    /**
+     * 应用对端发来的增量：合并变化的条目，并返回还原出的对端完整版本向量
+     *
+     * @param baseDigest 增量的基准摘要，null表示 delta 是完整版本向量
+     * @throws IllegalStateException 基准与本地记录不一致，发送方需要改发完整版本向量
+     */
+    public VersionVector applyDelta(String sourceNodeId, VersionVector delta, Long baseDigest) {
+        VersionVector peerVector = syncTracker.applyReceived(sourceNodeId, new VersionVector(delta), baseDigest);
+        merge(delta);
+        notifyPeerVector(sourceNodeId, peerVector);
+        return peerVector;
+    }
+    
+    /**
+     * 与拉取到的对端完整版本向量合并，只处理自上次拉取以来变化的条目
+     *
+     * @return 变化的条目，没有变化时为空且不产生合并
+     */
+    public VersionVector mergeChanged(String peerNodeId, VersionVector peerVector) {
+        VersionVector changed = peerVector.diff(pullTracker.received(peerNodeId));
+        if (!changed.isEmpty()) {
+            pullTracker.applyReceived(peerNodeId, new VersionVector(peerVector), null);
+            merge(changed);
+            notifyPeerVector(peerNodeId, peerVector);
+        }
+        return changed;
+    }
+    
+    /**
+     * 注册对端版本向量观察者，收到对端完整版本向量时回调（对端节点ID，对端版本向量）
+     */
+    public void addPeerVectorListener(BiConsumer<String, VersionVector> listener) {
+        peerListeners.add(listener);
+    }
+    
+    /**
+     * 通知观察者收到了对端的完整版本向量，供不经过本管理器同步的通道（如Gossip）调用
+     */
+    public void notifyPeerVector(String peerNodeId, VersionVector peerVector) {
+        for (BiConsumer<String, VersionVector> listener : peerListeners) {
+            listener.accept(peerNodeId, peerVector);
+        }
+    }
+    
+    /**
+     * 清除对端的增量同步记录
+     */
+    public void forgetPeer(String peerNodeId) {
+        syncTracker.forget(peerNodeId);
+        pullTracker.forget(peerNodeId);
+    }
+    
     /**
      * 获取当前版本向量
      */
@@ -142,7 +283,7 @@ public class VersionVectorManager {
         lock.writeLock().lock();
         try {
             currentVector = new VersionVector(vector);
-            persistVectorToRedis();
+            persistVector();
             logger.info("Version vector set for node {}: {}", nodeId, currentVector);
         } finally {
             lock.writeLock().unlock();
@@ -169,16 +310,36 @@ public class VersionVectorManager {
     }
     
     /**
-     * 获取指定节点的版本向量
+     * 批量比较一个版本向量与多个版本向量的关系
+     */
+    public VersionVector.VectorRelation[] compareAll(VersionVector vector, java.util.List<VersionVector> others) {
+        return VersionVector.compareAll(vector, others);
+    }
+    
+    /**
+     * 获取指定节点的版本向量，对端版本向量优先从近缓存读取
      */
     public VersionVector getNodeVector(String targetNodeId) {
+        if (Objects.equals(targetNodeId, nodeId)) {
+            return loadNodeVector(targetNodeId);
+        }
+        return peerCache.get(targetNodeId, this::loadNodeVector);
+    }
+    
+    /**
+     * 使近缓存中对端的版本向量失效（对端版本向量键有变化时调用）
+     */
+    void invalidateCachedVector(String peerNodeId) {
+        peerCache.invalidate(peerNodeId);
+    }
+    
+    private VersionVector loadNodeVector(String targetNodeId) {
         try {
             String vectorKey = VERSION_VECTOR_KEY + targetNodeId;
-            String vectorJson = redisTemplate.opsForValue().get(vectorKey);
+            byte[] vectorBytes = clockStore.getValue(vectorKey);
             
-            if (vectorJson != null) {
-                Map<String, Long> vectorMap = objectMapper.readValue(vectorJson, Map.class);
-                return new VersionVector(vectorMap);
+            if (vectorBytes != null) {
+                return ClockCodec.decodeVersionVector(vectorBytes);
             } else {
                 logger.warn("Version vector not found for node: {}", targetNodeId);
                 return new VersionVector();
@@ -191,18 +352,31 @@ public class VersionVectorManager {
     
     /**
      * 获取所有已知节点的版本向量
+     * 一次读取全部节点（Redis中为一次往返，见 ClockSnapshotReader），批量读取失败时（如 Redis Cluster）回退到逐个读取
      */
     public Map<String, VersionVector> getAllNodeVectors() {
-        Map<String, VersionVector> nodeVectors = new ConcurrentHashMap<>();
+        try {
+            long generation = peerCache.generation();
+            Map<String, VersionVector> snapshot = clockStore.getAllValues(NODE_LIST_KEY, VERSION_VECTOR_KEY, 
+                    ClockCodec::decodeVersionVector);
+            snapshot.values().removeIf(VersionVector::isEmpty);
+            // 顺带预热近缓存
+            for (Map.Entry<String, VersionVector> entry : snapshot.entrySet()) {
+                if (!entry.getKey().equals(nodeId)) {
+                    peerCache.put(entry.getKey(), entry.getValue(), generation);
+                }
+            }
+            return snapshot;
+        } catch (Exception e) {
+            logger.warn("Version vector snapshot read failed, reading node vectors one by one: {}", e.getMessage());
+        }
         
+        Map<String, VersionVector> nodeVectors = new ConcurrentHashMap<>();
         try {
-            java.util.Set<String> nodeIds = redisTemplate.opsForSet().members(NODE_LIST_KEY);
-            if (nodeIds != null) {
-                for (String nodeId : nodeIds) {
-                    VersionVector vector = getNodeVector(nodeId);
-                    if (!vector.isEmpty()) {
-                        nodeVectors.put(nodeId, vector);
-                    }
+            for (String nodeId : clockStore.members(NODE_LIST_KEY)) {
+                VersionVector vector = getNodeVector(nodeId);
+                if (!vector.isEmpty()) {
+                    nodeVectors.put(nodeId, vector);
                 }
             }
         } catch (Exception e) {
@@ -245,7 +419,7 @@ public class VersionVectorManager {
             }
             
             currentVector = resolvedVector;
-            persistVectorToRedis();
+            persistVector();
             
             logger.info("Conflict resolved for node {} using strategy {}: {}", 
                        nodeId, strategy, resolvedVector);
@@ -256,20 +430,18 @@ public class VersionVectorManager {
     }
     
     /**
-     * 获取版本历史
+     * 获取版本历史（最新的在前），启用环形缓冲区时直接从内存读取
      */
     public java.util.List<VersionVector> getVersionHistory(int limit) {
         java.util.List<VersionVector> history = new java.util.ArrayList<>();
         
         try {
-            String historyKey = VERSION_HISTORY_KEY + nodeId;
-            java.util.List<String> historyJson = redisTemplate.opsForList().range(historyKey, 0, limit - 1);
-            
-            if (historyJson != null) {
-                for (String json : historyJson) {
-                    Map<String, Long> vectorMap = objectMapper.readValue(json, Map.class);
-                    history.add(new VersionVector(vectorMap));
-                }
+            OffHeapHistoryRing ring = historyRing;
+            List<byte[]> entries = ring != null
+                    ? ring.latest(limit)
+                    : clockStore.range(VERSION_HISTORY_KEY + nodeId, limit);
+            for (byte[] entry : entries) {
+                history.add(ClockCodec.decodeVersionVector(entry));
             }
         } catch (Exception e) {
             logger.error("Error getting version history: {}", e.getMessage());
@@ -283,7 +455,7 @@ public class VersionVectorManager {
      */
     public void registerNode(String nodeId) {
         try {
-            redisTemplate.opsForSet().add(NODE_LIST_KEY, nodeId);
+            clockStore.addMember(NODE_LIST_KEY, nodeId);
             logger.debug("Node registered: {}", nodeId);
         } catch (Exception e) {
             logger.error("Error registering node {}: {}", nodeId, e.getMessage());
@@ -295,11 +467,13 @@ public class VersionVectorManager {
      */
     public void unregisterNode(String nodeId) {
         try {
-            redisTemplate.opsForSet().remove(NODE_LIST_KEY, nodeId);
-            String vectorKey = VERSION_VECTOR_KEY + nodeId;
-            String historyKey = VERSION_HISTORY_KEY + nodeId;
-            redisTemplate.delete(vectorKey);
-            redisTemplate.delete(historyKey);
+            clockStore.removeMember(NODE_LIST_KEY, nodeId);
+            clockStore.delete(VERSION_VECTOR_KEY + nodeId);
+            clockStore.delete(VERSION_HISTORY_KEY + nodeId);
+            if (nodeId.equals(this.nodeId)) {
+                clearHistoryRings();
+            }
+            peerCache.invalidate(nodeId);
             logger.info("Node unregistered: {}", nodeId);
         } catch (Exception e) {
             logger.error("Error unregistering node {}: {}", nodeId, e.getMessage());
@@ -307,74 +481,207 @@ public class VersionVectorManager {
     }
     
     /**
-     * 从Redis恢复版本向量状态
+     * 从存储恢复版本向量和版本历史，版本向量与恢复前已合并的向量取逐项最大值
      */
-    private void recoverVectorFromRedis() {
+    void recover() {
         try {
-            String vectorKey = VERSION_VECTOR_KEY + nodeId;
-            String vectorJson = redisTemplate.opsForValue().get(vectorKey);
+            byte[] vectorBytes = clockStore.getValue(VERSION_VECTOR_KEY + nodeId);
             
-            if (vectorJson != null) {
-                Map<String, Long> vectorMap = objectMapper.readValue(vectorJson, Map.class);
-                currentVector = new VersionVector(vectorMap);
-                logger.info("Recovered version vector for node {}: {}", nodeId, currentVector);
+            if (vectorBytes != null) {
+                VersionVector recovered = ClockCodec.decodeVersionVector(vectorBytes);
+                
+                // 写后持久化可能丢失本节点最近的版本，向前跳过安全边界
+                long ownVersion = recovered.getVersion(nodeId);
+                if (ownVersion > 0 && clockPersister != null) {
+                    recovered = recovered.set(nodeId, ownVersion + clockPersister.getSafetyMargin());
+                }
+                
+                lock.writeLock().lock();
+                try {
+                    currentVector = currentVector.merge(recovered);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("Recovered version vector for node {}: {}", nodeId, recovered);
             }
         } catch (Exception e) {
-            logger.error("Error recovering version vector from Redis: {}", e.getMessage());
+            logger.error("Error recovering version vector from store: {}", e.getMessage());
+        }
+        
+        if (awaitingRecovery) {
+            // 恢复前的修改只保存在内存中，此时一并落盘
+            awaitingRecovery = false;
+            persistVector();
+        }
+        
+        if (historyRingEnabled) {
+            initializeHistoryRings();
         }
     }
     
     /**
-     * 持久化版本向量到Redis
+     * 持久化版本向量到存储
      */
-    private void persistVectorToRedis() {
+    private void persistVector() {
+        if (awaitingRecovery) {
+            // 尚未恢复时写入会覆盖存储中本节点上次运行的版本向量
+            return;
+        }
+        if (clockPersister != null) {
+            // 合并写入，落盘时读取最新状态
+            clockPersister.markDirty(VERSION_VECTOR_KEY + nodeId, this::writeVersionVector);
+            return;
+        }
+        
         try {
-            String vectorKey = VERSION_VECTOR_KEY + nodeId;
-            String vectorJson = objectMapper.writeValueAsString(currentVector.getVector());
-            redisTemplate.opsForValue().set(vectorKey, vectorJson);
-        } catch (JsonProcessingException e) {
-            logger.error("Error persisting version vector to Redis: {}", e.getMessage());
+            writeVersionVector();
+        } catch (Exception e) {
+            logger.error("Error persisting version vector to store: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入当前版本向量到存储（二进制编码）
+     */
+    private void writeVersionVector() {
+        clockStore.setValue(VERSION_VECTOR_KEY + nodeId, ClockCodec.encode(getCurrentVector()));
+    }
+    
+    /**
+     * 按因果稳定前沿截断版本历史
+     * 每次 increment 在历史头部写入一条，本节点版本号不超过 stableVersion 的记录已被所有节点看到，
+     * 只保留其后的记录（至少保留最新一条）
+     */
+    public void truncateHistory(long stableVersion) {
+        long unstable = getCurrentVector().getVersion(nodeId) - stableVersion;
+        long keep = Math.max(1L, unstable);
+        if (keep >= HISTORY_LIMIT) {
+            return;
+        }
+        try {
+            OffHeapHistoryRing ring = historyRing;
+            if (ring != null) {
+                // 先溢写剩余的记录，存储中的列表才能按同样的条数截断
+                ring.retainLatest((int) keep);
+                spillHistory();
+            }
+            clockStore.trim(VERSION_HISTORY_KEY + nodeId, (int) keep);
+            logger.debug("Version history truncated for node {}: stable={}, kept={}", nodeId, stableVersion, keep);
+        } catch (Exception e) {
+            logger.error("Error truncating version history: {}", e.getMessage());
         }
     }
     
     /**
      * 保存版本历史
+     * 最多保留最近100条记录，已稳定的部分由 truncateHistory 截断
      */
     private void saveVersionHistory() {
         try {
-            String historyKey = VERSION_HISTORY_KEY + nodeId;
-            String vectorJson = objectMapper.writeValueAsString(currentVector.getVector());
-            
-            // 添加到历史列表头部
-            redisTemplate.opsForList().leftPush(historyKey, vectorJson);
-            
-            // 限制历史记录数量
-            redisTemplate.opsForList().trim(historyKey, 0, 99); // 保留最近100条记录
-        } catch (JsonProcessingException e) {
+            byte[] entry = ClockCodec.encode(currentVector);
+            OffHeapHistoryRing ring = historyRing;
+            if (ring != null) {
+                ring.append(entry);
+            } else {
+                clockStore.pushBounded(VERSION_HISTORY_KEY + nodeId, entry, HISTORY_LIMIT);
+            }
+        } catch (Exception e) {
             logger.error("Error saving version history: {}", e.getMessage());
         }
     }
     
     /**
-     * 保存合并历史
+     * 保存合并历史，最多保留最近50条记录
      */
     private void saveMergeHistory(VersionVector oldVector, VersionVector otherVector) {
         try {
-            String mergeKey = "version:merge:" + nodeId;
-            Map<String, Object> mergeInfo = new ConcurrentHashMap<>();
-            mergeInfo.put("timestamp", System.currentTimeMillis());
-            mergeInfo.put("oldVector", oldVector.getVector());
-            mergeInfo.put("otherVector", otherVector.getVector());
-            mergeInfo.put("newVector", currentVector.getVector());
-            
-            String mergeJson = objectMapper.writeValueAsString(mergeInfo);
-            redisTemplate.opsForList().leftPush(mergeKey, mergeJson);
-            redisTemplate.opsForList().trim(mergeKey, 0, 49); // 保留最近50条合并记录
-        } catch (JsonProcessingException e) {
+            byte[] entry = encodeMergeRecord(System.currentTimeMillis(), oldVector, otherVector, currentVector);
+            OffHeapHistoryRing ring = mergeRing;
+            if (ring != null) {
+                ring.append(entry);
+            } else {
+                clockStore.pushBounded(MERGE_HISTORY_KEY + nodeId, entry, MERGE_HISTORY_LIMIT);
+            }
+        } catch (Exception e) {
             logger.error("Error saving merge history: {}", e.getMessage());
         }
     }
     
+    /**
+     * 合并记录：timestamp(long) | 三个长度前缀的二进制版本向量（合并前、对方、合并后）
+     */
+    private static byte[] encodeMergeRecord(long timestamp, VersionVector oldVector,
+                                            VersionVector otherVector, VersionVector newVector) {
+        byte[] oldBytes = ClockCodec.encode(oldVector);
+        byte[] otherBytes = ClockCodec.encode(otherVector);
+        byte[] newBytes = ClockCodec.encode(newVector);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 12 + oldBytes.length + otherBytes.length + newBytes.length);
+        buffer.putLong(timestamp);
+        buffer.putInt(oldBytes.length).put(oldBytes);
+        buffer.putInt(otherBytes.length).put(otherBytes);
+        buffer.putInt(newBytes.length).put(newBytes);
+        return buffer.array();
+    }
+    
+    /**
+     * 创建历史环形缓冲区，并从存储预热版本历史
+     */
+    private void initializeHistoryRings() {
+        historyRing = new OffHeapHistoryRing("version", historyRingCapacity, HISTORY_LIMIT, meterRegistry);
+        mergeRing = new OffHeapHistoryRing("merge", historyRingCapacity, MERGE_HISTORY_LIMIT, meterRegistry);
+        try {
+            List<byte[]> stored = new ArrayList<>(clockStore.range(VERSION_HISTORY_KEY + nodeId, HISTORY_LIMIT));
+            Collections.reverse(stored);
+            historyRing.load(stored);
+        } catch (Exception e) {
+            logger.error("Error loading version history into ring buffer: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 把环形缓冲区中尚未溢写的历史记录批量写入存储，每种历史一次写入
+     */
+    @Scheduled(fixedDelayString = "${dts.timestamp.vector.history.spill-interval:200}")
+    public void spillHistory() {
+        synchronized (spillLock) {
+            spill(historyRing, VERSION_HISTORY_KEY + nodeId, HISTORY_LIMIT);
+            spill(mergeRing, MERGE_HISTORY_KEY + nodeId, MERGE_HISTORY_LIMIT);
+        }
+    }
+    
+    private void spill(OffHeapHistoryRing ring, String key, int maxLength) {
+        if (ring == null) {
+            return;
+        }
+        OffHeapHistoryRing.Batch batch = ring.pending();
+        if (batch.entries.isEmpty()) {
+            return;
+        }
+        try {
+            clockStore.pushAllBounded(key, batch.entries, maxLength);
+            ring.markSpilled(batch.endSequence);
+            logger.debug("Spilled {} history entries to {}", batch.entries.size(), key);
+        } catch (Exception e) {
+            logger.error("Error spilling history to {}: {}", key, e.getMessage());
+        }
+    }
+    
+    private void clearHistoryRings() {
+        synchronized (spillLock) {
+            if (historyRing != null) {
+                historyRing.clear();
+            }
+            if (mergeRing != null) {
+                mergeRing.clear();
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        spillHistory();
+    }
+    
     /**
      * 重置版本向量（主要用于测试）
      */
@@ -382,13 +689,13 @@ public class VersionVectorManager {
         lock.writeLock().lock();
         try {
             currentVector = new VersionVector();
+            peerCache.clear();
+            clearHistoryRings();
             try {
-                String vectorKey = VERSION_VECTOR_KEY + nodeId;
-                String historyKey = VERSION_HISTORY_KEY + nodeId;
-                redisTemplate.delete(vectorKey);
-                redisTemplate.delete(historyKey);
+                clockStore.delete(VERSION_VECTOR_KEY + nodeId);
+                clockStore.delete(VERSION_HISTORY_KEY + nodeId);
             } catch (Exception e) {
-                logger.error("Error resetting version vector in Redis: {}", e.getMessage());
+                logger.error("Error resetting version vector in store: {}", e.getMessage());
             }
             logger.info("Version vector reset for node: {}", nodeId);
         } finally {
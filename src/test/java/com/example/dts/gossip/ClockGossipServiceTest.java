@@ -0,0 +1,211 @@
+package com.example.dts.gossip;
+
+import com.example.dts.timestamp.LamportClockManager;
+import com.example.dts.timestamp.VectorClockManager;
+import com.example.dts.timestamp.VersionVectorManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 时钟Gossip服务测试
+ * 在本机用系统分配的端口启动多个实例
+ * 
+ * @author DTS Team
+ */
+class ClockGossipServiceTest {
+    
+    private final List<ClockGossipService> services = new ArrayList<>();
+    
+    @AfterEach
+    void tearDown() {
+        services.forEach(ClockGossipService::shutdown);
+    }
+    
+    @Test
+    void testPushPullPropagatesAllClocks() throws Exception {
+        // Given
+        Node nodeA = new Node("node-a", "");
+        Node nodeB = new Node("node-b", "127.0.0.1:" + nodeA.gossip.getLocalPort());
+        for (int i = 0; i < 5; i++) {
+            nodeA.lamport.tick();
+        }
+        nodeA.vector.tick();
+        nodeB.version.increment();
+        
+        // When
+        nodeB.gossip.gossipRound();
+        
+        // Then
+        awaitTrue(() -> nodeB.lamport.getCurrentTime() > 5
+                && nodeB.vector.getCurrentClock().getValue("node-a") == 1
+                && nodeA.version.getCurrentVector().getVersion("node-b") == 1);
+        assertEquals(6L, nodeB.lamport.getCurrentTime());
+        assertEquals(1L, nodeB.vector.getCurrentClock().getValue("node-a"));
+        assertEquals(1L, nodeA.version.getCurrentVector().getVersion("node-b"));
+        assertTrue(nodeA.gossip.getMembers().contains(
+                new InetSocketAddress("127.0.0.1", nodeB.gossip.getLocalPort())));
+    }
+    
+    @Test
+    void testGossipDoesNotAdvanceClocksWithoutNews() throws Exception {
+        // Given
+        Node nodeA = new Node("node-a", "");
+        Node nodeB = new Node("node-b", "127.0.0.1:" + nodeA.gossip.getLocalPort());
+        nodeA.vector.tick();
+        nodeB.gossip.gossipRound();
+        awaitTrue(() -> nodeB.vector.getCurrentClock().getValue("node-a") == 1);
+        long lamportA = nodeA.lamport.getCurrentTime();
+        long lamportB = nodeB.lamport.getCurrentTime();
+        
+        // When
+        for (int i = 0; i < 3; i++) {
+            nodeA.gossip.gossipRound();
+            nodeB.gossip.gossipRound();
+        }
+        Thread.sleep(200);
+        
+        // Then
+        assertEquals(lamportA, nodeA.lamport.getCurrentTime());
+        assertEquals(lamportB, nodeB.lamport.getCurrentTime());
+        assertEquals(0L, nodeA.vector.getCurrentClock().getValue("node-b"));
+        assertEquals(0L, nodeB.vector.getCurrentClock().getValue("node-b"));
+    }
+    
+    @Test
+    void testSeedPointingToSelfIsDropped() throws Exception {
+        // Given
+        int port;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Node self = new Node("node-a", "127.0.0.1:" + port, port);
+        assertEquals(1, self.gossip.getMembers().size());
+        
+        // When
+        self.gossip.gossipRound();
+        
+        // Then
+        awaitTrue(() -> self.gossip.getMembers().isEmpty());
+    }
+    
+    @Test
+    void testMessagesWithWrongSecretAreDropped() throws Exception {
+        // Given
+        Node nodeA = new Node("node-a", "", 0, "secret-a", 64);
+        Node nodeB = new Node("node-b", "127.0.0.1:" + nodeA.gossip.getLocalPort(), 0, "secret-b", 64);
+        Node nodeC = new Node("node-c", "127.0.0.1:" + nodeA.gossip.getLocalPort(), 0, "secret-a", 64);
+        nodeB.vector.tick();
+        nodeC.vector.tick();
+        
+        // When
+        nodeB.gossip.gossipRound();
+        nodeC.gossip.gossipRound();
+        
+        // Then: 只有签名正确的节点被合并并加入成员列表
+        awaitTrue(() -> nodeA.vector.getCurrentClock().getValue("node-c") == 1);
+        awaitTrue(() -> (Long) nodeA.gossip.getStatistics().get("rejectedMessages") == 1L);
+        awaitTrue(() -> nodeA.gossip.getMembers().size() == 1);
+        assertEquals(0L, nodeA.vector.getCurrentClock().getValue("node-b"));
+        assertTrue(nodeA.gossip.getMembers().contains(
+                new InetSocketAddress("127.0.0.1", nodeC.gossip.getLocalPort())));
+    }
+    
+    @Test
+    void testMembershipIsBounded() throws Exception {
+        // Given
+        Node nodeA = new Node("node-a", "", 0, "", 1);
+        Node nodeB = new Node("node-b", "127.0.0.1:" + nodeA.gossip.getLocalPort());
+        Node nodeC = new Node("node-c", "127.0.0.1:" + nodeA.gossip.getLocalPort());
+        nodeB.vector.tick();
+        nodeC.vector.tick();
+        
+        // When
+        nodeB.gossip.gossipRound();
+        awaitTrue(() -> nodeA.gossip.getMembers().size() == 1);
+        nodeC.gossip.gossipRound();
+        
+        // Then: 超出上限的发送方仍被合并，但不加入成员列表，也不会收到回复
+        awaitTrue(() -> nodeA.vector.getCurrentClock().getValue("node-c") == 1);
+        assertEquals(1, nodeA.gossip.getMembers().size());
+        assertTrue(nodeA.gossip.getMembers().contains(
+                new InetSocketAddress("127.0.0.1", nodeB.gossip.getLocalPort())));
+        Thread.sleep(200);
+        assertEquals(0L, nodeC.vector.getCurrentClock().getValue("node-b"));
+    }
+    
+    @Test
+    void testUnsignedGossipRefusesNonLoopbackBind() {
+        // Given 未配置 secret，监听所有地址
+        ClockGossipService gossip = new ClockGossipService(mock(LamportClockManager.class),
+                mock(VectorClockManager.class), mock(VersionVectorManager.class));
+        ReflectionTestUtils.setField(gossip, "port", 0);
+        ReflectionTestUtils.setField(gossip, "seeds", "");
+        ReflectionTestUtils.setField(gossip, "bindAddress", "");
+        
+        // When / Then
+        assertThrows(IllegalStateException.class, gossip::initialize);
+    }
+    
+    private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "condition not met before timeout");
+    }
+    
+    /**
+     * 一个本地节点：三个时钟管理器加一个Gossip实例
+     */
+    private class Node {
+        final LamportClockManager lamport;
+        final VectorClockManager vector;
+        final VersionVectorManager version;
+        final ClockGossipService gossip;
+        
+        Node(String nodeId, String seeds) throws Exception {
+            this(nodeId, seeds, 0);
+        }
+        
+        Node(String nodeId, String seeds, int port) throws Exception {
+            this(nodeId, seeds, port, "", 64);
+        }
+        
+        @SuppressWarnings("unchecked")
+        Node(String nodeId, String seeds, int port, String secret, int maxMembers) throws Exception {
+            RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class, RETURNS_DEEP_STUBS);
+            lamport = new LamportClockManager(redisTemplate);
+            ReflectionTestUtils.setField(lamport, "nodeId", nodeId);
+            ReflectionTestUtils.setField(lamport, "persistenceEnabled", false);
+            vector = new VectorClockManager(redisTemplate);
+            ReflectionTestUtils.setField(vector, "nodeId", nodeId);
+            ReflectionTestUtils.setField(vector, "maxEntries", 1000);
+            ReflectionTestUtils.setField(vector, "gcThreshold", 0.8);
+            version = new VersionVectorManager(redisTemplate);
+            ReflectionTestUtils.setField(version, "nodeId", nodeId);
+            ReflectionTestUtils.setField(version, "maxNodes", 100);
+            
+            gossip = new ClockGossipService(lamport, vector, version);
+            ReflectionTestUtils.setField(gossip, "port", port);
+            ReflectionTestUtils.setField(gossip, "bindAddress", "127.0.0.1");
+            ReflectionTestUtils.setField(gossip, "seeds", seeds);
+            ReflectionTestUtils.setField(gossip, "fanout", 3);
+            ReflectionTestUtils.setField(gossip, "secret", secret);
+            ReflectionTestUtils.setField(gossip, "maxMembers", maxMembers);
+            gossip.initialize();
+            services.add(gossip);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dts.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 布隆时钟单元测试
+ *
+ * @author DTS Team
+ */
+class BloomClockTest {
+
+    @Test
+    void testCausalOrderAcrossMerge() {
+        // Given
+        BloomClock empty = BloomClock.withFalsePositiveRate(1000, 0.01);
+        BloomClock a = empty.event("node1", 1).event("node1", 2);
+        BloomClock b = empty.event("node2", 1);
+
+        // When b 收到 a 的时钟后产生事件
+        BloomClock received = b.merge(a).event("node2", 2);
+
+        // Then
+        assertTrue(a.happensBefore(received));
+        assertTrue(received.happensAfter(b));
+        assertEquals(VectorClock.ClockRelation.CONCURRENT, a.compareTo(b));
+        assertTrue(received.definitelyNotBefore(a));
+        assertEquals(VectorClock.ClockRelation.EQUAL, a.compareTo(empty.event("node1", 1).event("node1", 2)));
+    }
+
+    @Test
+    void testSizeIsIndependentOfNodeCount() {
+        // Given
+        BloomClock clock = BloomClock.create(256, 3);
+
+        // When
+        for (int node = 0; node < 5000; node++) {
+            clock = clock.event("producer-" + node, 1);
+        }
+
+        // Then
+        assertEquals(256, clock.getCellCount());
+        assertEquals(5000, clock.getEventCount());
+    }
+
+    @Test
+    void testFalsePositiveProbabilityReported() {
+        // Given
+        BloomClock empty = BloomClock.withFalsePositiveRate(100, 0.01);
+        BloomClock small = empty.event("node1", 1);
+        BloomClock large = small;
+        for (int i = 0; i < 50; i++) {
+            large = large.event("node2", i);
+        }
+
+        // When
+        BloomClock.Comparison before = small.compareWithProbability(large);
+        BloomClock.Comparison concurrent = small.event("node3", 1).compareWithProbability(empty.event("node4", 1));
+
+        // Then
+        assertEquals(VectorClock.ClockRelation.BEFORE, before.getRelation());
+        assertTrue(before.getFalsePositiveProbability() > 0.0);
+        assertTrue(before.getFalsePositiveProbability() < 0.5);
+        assertEquals(VectorClock.ClockRelation.CONCURRENT, concurrent.getRelation());
+        assertEquals(0.0, concurrent.getFalsePositiveProbability());
+    }
+
+    @Test
+    void testIncompatibleSizesRejected() {
+        // Given
+        BloomClock a = BloomClock.create(64, 2);
+        BloomClock b = BloomClock.create(128, 2);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> a.compareTo(b));
+        assertThrows(IllegalArgumentException.class, () -> a.merge(b));
+    }
+
+    @Test
+    void testCodecRoundTrip() {
+        // Given
+        BloomClock clock = BloomClock.create(64, 3).event("node1", 1).event("node2", 7);
+
+        // When
+        BloomClock decoded = ClockCodec.decodeBloomClock(clock.encode());
+
+        // Then
+        assertEquals(clock, decoded);
+        assertThrows(IllegalArgumentException.class, () -> ClockCodec.decodeVectorClock(clock.encode()));
+        assertThrows(IllegalArgumentException.class, () -> ClockCodec.decodeIntervalTreeClock(clock.encode()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.dts.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时钟二进制编解码测试
+ * 
+ * @author DTS Team
+ */
+class ClockCodecTest {
+    
+    @Test
+    void testRoundTripPreservesEntries() {
+        // Given
+        VectorClock clock = new VectorClock(entries("node-1", 300L, "node-2", 0L, "node-3", Long.MAX_VALUE));
+        
+        // When
+        VectorClock decoded = ClockCodec.decodeVectorClock(ClockCodec.encode(clock));
+        
+        // Then
+        assertEquals(clock, decoded);
+        assertEquals(3, decoded.size());
+        assertTrue(decoded.getNodeIds().contains("node-2"));
+    }
+    
+    @Test
+    void testBinaryIsSmallerThanJson() throws Exception {
+        // Given
+        Map<String, Long> entries = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            entries.put("node-" + i, 1_000_000L + i);
+        }
+        VersionVector vector = new VersionVector(entries);
+        
+        // When
+        byte[] binary = ClockCodec.encode(vector);
+        byte[] json = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsBytes(entries);
+        
+        // Then
+        assertTrue(binary.length < json.length * 3 / 4,
+                "binary=" + binary.length + " json=" + json.length);
+        assertEquals(vector, ClockCodec.decodeVersionVector(binary));
+    }
+    
+    @Test
+    void testReadsLegacyJson() {
+        // Given
+        byte[] json = " {\"node-1\":3,\"node-2\":12345678901}".getBytes(StandardCharsets.UTF_8);
+        
+        // When
+        VectorClock clock = ClockCodec.decodeVectorClock(json);
+        
+        // Then
+        assertEquals(3L, clock.getValue("node-1"));
+        assertEquals(12345678901L, clock.getValue("node-2"));
+        assertEquals(clock, ClockCodec.decodeVectorClock("{\"node-1\":3,\"node-2\":12345678901}"));
+    }
+    
+    @Test
+    void testMalformedPayloadsAreRejected() {
+        // Given
+        byte[] valid = ClockCodec.encode(new VectorClock(entries("node-1", 300L, "node-2", 1L, "node-3", 2L)));
+        
+        // Then
+        assertThrows(IllegalArgumentException.class,
+                () -> ClockCodec.decodeVectorClock(Arrays.copyOf(valid, valid.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClockCodec.decodeVectorClock(Arrays.copyOf(valid, valid.length + 1)));
+        byte[] futureVersion = valid.clone();
+        futureVersion[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> ClockCodec.decodeVectorClock(futureVersion));
+        byte[] unknownFlags = valid.clone();
+        unknownFlags[1] = 1;
+        assertThrows(IllegalArgumentException.class, () -> ClockCodec.decodeVectorClock(unknownFlags));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClockCodec.decodeVectorClock("{not json".getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    private static Map<String, Long> entries(String node1, long value1, String node2, long value2,
+                                             String node3, long value3) {
+        Map<String, Long> entries = new HashMap<>();
+        entries.put(node1, value1);
+        entries.put(node2, value2);
+        entries.put(node3, value3);
+        return entries;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.dts.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 区间树时钟单元测试
+ *
+ * @author DTS Team
+ */
+class IntervalTreeClockTest {
+
+    @Test
+    void testForkEventJoinCausality() {
+        // Given
+        IntervalTreeClock[] forked = IntervalTreeClock.seed().fork();
+        IntervalTreeClock a = forked[0].event();
+        IntervalTreeClock b = forked[1].event();
+
+        // When a 发送消息给 b
+        IntervalTreeClock message = a.peek();
+        IntervalTreeClock received = b.receive(message);
+
+        // Then
+        assertEquals(VectorClock.ClockRelation.CONCURRENT, a.compareTo(b));
+        assertTrue(message.isAnonymous());
+        assertEquals(VectorClock.ClockRelation.EQUAL, message.compareTo(a));
+        assertTrue(a.happensBefore(received));
+        assertTrue(b.happensBefore(received));
+        assertEquals(VectorClock.ClockRelation.AFTER, received.compareTo(a));
+    }
+
+    @Test
+    void testAnonymousClockCannotRecordEvents() {
+        // Given
+        IntervalTreeClock anonymous = IntervalTreeClock.seed().event().peek();
+
+        // When & Then
+        assertThrows(IllegalStateException.class, anonymous::event);
+    }
+
+    @Test
+    void testJoinRejectsOverlappingIds() {
+        // Given
+        IntervalTreeClock seed = IntervalTreeClock.seed();
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> seed.join(seed));
+    }
+
+    @Test
+    void testSizeTracksActiveReplicasUnderChurn() {
+        // Given 常驻3个副本
+        IntervalTreeClock[] first = IntervalTreeClock.seed().fork();
+        IntervalTreeClock[] second = first[1].fork();
+        IntervalTreeClock stable = first[0];
+        List<IntervalTreeClock> replicas = new ArrayList<>();
+        replicas.add(second[0]);
+        replicas.add(second[1]);
+
+        // When 反复扩容一个副本、产生事件、再缩容交还区间
+        for (int round = 0; round < 200; round++) {
+            IntervalTreeClock[] scaled = stable.fork();
+            IntervalTreeClock temporary = scaled[1].event().event();
+            for (int i = 0; i < replicas.size(); i++) {
+                replicas.set(i, replicas.get(i).receive(temporary.peek()));
+            }
+            stable = scaled[0].join(temporary).event();
+        }
+
+        // Then 身份树收缩回原样，大小不随历史副本数增长
+        assertTrue(first[0].happensBefore(stable));
+        assertTrue(stable.size() < 16, "size: " + stable.size());
+        for (IntervalTreeClock replica : replicas) {
+            assertTrue(replica.size() < 16, "size: " + replica.size());
+            assertTrue(replica.happensBefore(replica.merge(stable).event()));
+        }
+    }
+
+    @Test
+    void testCodecRoundTrip() {
+        // Given
+        IntervalTreeClock[] forked = IntervalTreeClock.seed().fork();
+        IntervalTreeClock a = forked[0].event().event();
+        IntervalTreeClock b = forked[1].fork()[1].event().receive(a.peek());
+
+        // When
+        IntervalTreeClock decodedA = ClockCodec.decodeIntervalTreeClock(a.encode());
+        IntervalTreeClock decodedB = ClockCodec.decodeIntervalTreeClock(b.encode());
+
+        // Then
+        assertEquals(a, decodedA);
+        assertEquals(b, decodedB);
+        assertEquals(a.compareTo(b), decodedA.compareTo(decodedB));
+        assertTrue(b.encode().length < 16);
+    }
+
+    @Test
+    void testCodecRejectsVectorClockPayload() {
+        // Given
+        byte[] vectorPayload = new VectorClock().tick("node1").encode();
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> ClockCodec.decodeIntervalTreeClock(vectorPayload));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClockCodec.decodeVectorClock(IntervalTreeClock.seed().encode()));
+    }
+
+    @Test
+    void testTrackerInterfaceIsShared() {
+        // Given
+        VectorClock clock = new VectorClock().tick("node1");
+        IntervalTreeClock itc = IntervalTreeClock.seed().event();
+
+        // Then
+        assertTrue(isAfter(clock.tick("node1"), clock));
+        assertTrue(isAfter(itc.event(), itc));
+    }
+
+    private static <T extends CausalityTracker<T>> boolean isAfter(T later, T earlier) {
+        return later.happensAfter(earlier) && later.merge(earlier).compareTo(later) == VectorClock.ClockRelation.EQUAL;
+    }
+}
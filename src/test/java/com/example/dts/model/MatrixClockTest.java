@@ -0,0 +1,81 @@
+package com.example.dts.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 矩阵时钟单元测试
+ *
+ * @author DTS Team
+ */
+class MatrixClockTest {
+
+    @Test
+    void testStableFrontierIsEntrywiseMinimumOfMemberRows() {
+        // Given
+        MatrixClock matrix = new MatrixClock();
+        matrix.observe("node1", clock("node1", 5L, "node2", 3L, "node3", 1L));
+        matrix.observe("node2", clock("node1", 4L, "node2", 6L));
+        matrix.observe("node2", clock("node1", 2L, "node2", 7L));
+
+        // When
+        VectorClock frontier = matrix.stableFrontier(Arrays.asList("node1", "node2"));
+
+        // Then 行只增不减，node3 不在所有行中
+        assertEquals(4L, frontier.getValue("node1"));
+        assertEquals(3L, frontier.getValue("node2"));
+        assertFalse(frontier.getNodeIds().contains("node3"));
+    }
+
+    @Test
+    void testFrontierIsEmptyWhenMemberRowMissing() {
+        // Given
+        MatrixClock matrix = new MatrixClock();
+        matrix.observe("node1", clock("node1", 5L));
+
+        // When
+        VectorClock frontier = matrix.stableFrontier(Arrays.asList("node1", "node2"));
+
+        // Then
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void testIsStableUsesOriginEntry() {
+        // Given
+        VectorClock frontier = clock("node1", 4L, "node2", 3L);
+
+        // Then
+        assertTrue(MatrixClock.isStable("node1", clock("node1", 4L, "node2", 9L), frontier));
+        assertFalse(MatrixClock.isStable("node2", clock("node1", 1L, "node2", 4L), frontier));
+        assertTrue(MatrixClock.isStable("node3", new VectorClock(), frontier));
+    }
+
+    @Test
+    void testRetainRowsDropsDepartedNodes() {
+        // Given
+        MatrixClock matrix = new MatrixClock();
+        matrix.observe("node1", clock("node1", 1L));
+        matrix.observe("departed", clock("departed", 1L));
+
+        // When
+        matrix.retainRows(Arrays.asList("node1"));
+
+        // Then
+        assertEquals(1, matrix.getNodeIds().size());
+        assertTrue(matrix.getRow("departed").isEmpty());
+    }
+
+    private static VectorClock clock(Object... entries) {
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], (Long) entries[i + 1]);
+        }
+        return new VectorClock(map);
+    }
+}
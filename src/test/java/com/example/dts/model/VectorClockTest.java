@@ -2,6 +2,7 @@ package com.example.dts.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -330,4 +331,142 @@ class VectorClockTest {
         assertTrue(str.contains("3"));
         assertTrue(str.contains("2"));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testMergeTakesMaxWithoutTick() {
+        // Given
+        Map<String, Long> clock1Data = new HashMap<>();
+        clock1Data.put("node1", 3L);
+        clock1Data.put("node2", 1L);
+        Map<String, Long> clock2Data = new HashMap<>();
+        clock2Data.put("node2", 4L);
+        clock2Data.put("node3", 2L);
+        
+        // When
+        VectorClock merged = new VectorClock(clock1Data).merge(new VectorClock(clock2Data));
+        
+        // Then
+        assertEquals(3L, merged.getValue("node1"));
+        assertEquals(4L, merged.getValue("node2"));
+        assertEquals(2L, merged.getValue("node3"));
+        assertEquals(3, merged.size());
+    }
+    
+    @Test
+    void testZeroEntryIsKeptButComparesAsAbsent() {
+        // Given
+        VectorClock withZero = new VectorClock();
+        withZero.setValue("node1", 0L);
+        VectorClock empty = new VectorClock();
+        
+        // Then
+        assertEquals(1, withZero.size());
+        assertTrue(withZero.getNodeIds().contains("node1"));
+        assertNotEquals(withZero, empty);
+        assertEquals(VectorClock.ClockRelation.EQUAL, withZero.compareTo(empty));
+    }
+    
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void testUntypedJsonMapWithIntegerValues() {
+        // Given 未指定类型反序列化的JSON得到 Integer 值
+        Map untyped = new HashMap();
+        untyped.put("node1", 7);
+        
+        // When
+        VectorClock clock = new VectorClock((Map<String, Long>) untyped);
+        
+        // Then
+        assertEquals(7L, clock.getValue("node1"));
+    }
+    
+    @Test
+    void testCompareUsesTailOfLongerClock() {
+        // Given 后注册的节点下标更大，只有一方的数组覆盖该下标
+        VectorClock shorter = new VectorClock().tick("node1");
+        VectorClock longer = shorter.tick("node-tail-compare");
+        
+        // Then
+        assertEquals(VectorClock.ClockRelation.BEFORE, shorter.compareTo(longer));
+        assertEquals(VectorClock.ClockRelation.AFTER, longer.compareTo(shorter));
+        assertEquals(VectorClock.ClockRelation.CONCURRENT, shorter.tick("node1").compareTo(longer));
+    }
+    
+    @Test
+    void testCompareAll() {
+        // Given
+        VectorClock base = new VectorClock().tick("node1").tick("node2");
+        java.util.List<VectorClock> others = java.util.Arrays.asList(
+                new VectorClock(base),
+                base.tick("node1"),
+                new VectorClock().tick("node1"),
+                new VectorClock().tick("node3"));
+        
+        // When
+        VectorClock.ClockRelation[] relations = VectorClock.compareAll(base, others);
+        
+        // Then
+        assertArrayEquals(new VectorClock.ClockRelation[] {
+                VectorClock.ClockRelation.EQUAL,
+                VectorClock.ClockRelation.BEFORE,
+                VectorClock.ClockRelation.AFTER,
+                VectorClock.ClockRelation.CONCURRENT
+        }, relations);
+        for (int i = 0; i < others.size(); i++) {
+            assertEquals(base.compareTo(others.get(i)), relations[i]);
+        }
+    }
+    
+    @Test
+    void testDiffContainsOnlyChangedEntries() {
+        // Given
+        VectorClock base = new VectorClock().tick("node1").tick("node2");
+        VectorClock current = base.tick("node2").tick("node3");
+        
+        // When
+        VectorClock delta = current.diff(base);
+        
+        // Then
+        assertEquals(2, delta.size());
+        assertEquals(2L, delta.getValue("node2"));
+        assertEquals(1L, delta.getValue("node3"));
+        assertEquals(current, base.merge(delta));
+        assertTrue(current.diff(current).isEmpty());
+    }
+    
+    @Test
+    void testTransientNodeIdsDoNotGrowLongLivedClock() {
+        // Given 长期存活的时钟只有两个条目
+        VectorClock longLived = new VectorClock().tick("node1").tick("node2");
+        
+        // When 大量只出现一次的节点ID（如滚动更新的Pod）经过解码、合并和比较
+        for (int i = 0; i < 10000; i++) {
+            VectorClock transientClock = new VectorClock().tick("pod-" + i);
+            ClockCodec.decodeVectorClock(ClockCodec.encode(transientClock)).compareTo(longLived);
+            transientClock.merge(longLived);
+        }
+        longLived = longLived.tick("node1").sync(new VectorClock().tick("node2"), "node1");
+        
+        // Then 时钟的存储只与自身条目数有关
+        assertEquals(2, longLived.entries().nodeIds.length);
+        assertEquals(2, longLived.entries().values.length);
+        assertEquals(3L, longLived.getValue("node1"));
+        assertEquals(0L, longLived.getValue("pod-0"));
+    }
+    
+    @Test
+    void testSharedNodeIdsAreNotModifiedByMerge() {
+        // Given b 的节点是 a 的子集，合并沿用 a 的节点ID数组
+        VectorClock a = new VectorClock().tick("node1").tick("node3");
+        VectorClock b = new VectorClock(new HashMap<>(Collections.singletonMap("node3", 5L)));
+        
+        // When
+        VectorClock merged = a.merge(b);
+        
+        // Then
+        assertSame(a.entries().nodeIds, merged.entries().nodeIds);
+        assertEquals(1L, a.getValue("node3"));
+        assertEquals(5L, merged.getValue("node3"));
+        assertEquals(VectorClock.ClockRelation.BEFORE, a.compareTo(merged));
+    }
+}
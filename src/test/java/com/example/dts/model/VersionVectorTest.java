@@ -0,0 +1,92 @@
+package com.example.dts.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 版本向量单元测试
+ * 
+ * @author DTS Team
+ */
+class VersionVectorTest {
+    
+    @Test
+    void testIncrementAndSetReturnNewVectors() {
+        // Given
+        VersionVector vector = new VersionVector();
+        
+        // When
+        VersionVector incremented = vector.increment("node1").increment("node1");
+        VersionVector set = incremented.set("node2", 5L);
+        
+        // Then
+        assertTrue(vector.isEmpty());
+        assertEquals(2L, incremented.getVersion("node1"));
+        assertEquals(0L, incremented.getVersion("node2"));
+        assertEquals(5L, set.getVersion("node2"));
+        assertEquals(7L, set.getSum());
+        assertEquals(5L, set.getMaxVersion());
+    }
+    
+    @Test
+    void testMergeAndCompare() {
+        // Given
+        VersionVector vector1 = vector("node1", 3L, "node2", 1L);
+        VersionVector vector2 = vector("node1", 1L, "node2", 4L);
+        
+        // When
+        VersionVector merged = vector1.merge(vector2);
+        
+        // Then
+        assertEquals(VersionVector.VectorRelation.CONFLICT, vector1.compareTo(vector2));
+        assertTrue(vector1.hasConflict(vector2));
+        assertEquals(VersionVector.VectorRelation.NEWER, merged.compareTo(vector1));
+        assertEquals(VersionVector.VectorRelation.OLDER, vector2.compareTo(merged));
+        assertFalse(merged.hasConflict(vector1));
+        assertEquals(VersionVector.VectorRelation.EQUAL, merged.compareTo(new VersionVector(merged)));
+    }
+    
+    @Test
+    void testEqualsAndHashCodeAcrossConstructionPaths() {
+        // Given
+        VersionVector built = new VersionVector().set("node2", 4L).set("node1", 2L);
+        VersionVector parsed = vector("node1", 2L, "node2", 4L);
+        
+        // Then
+        assertEquals(built, parsed);
+        assertEquals(built.hashCode(), parsed.hashCode());
+        assertEquals(parsed.getVector().hashCode(), parsed.hashCode());
+        assertNotEquals(built, built.set("node3", 0L));
+    }
+    
+    @Test
+    void testCompareAll() {
+        // Given
+        VersionVector base = vector("node1", 2L, "node2", 2L);
+        java.util.List<VersionVector> others = java.util.Arrays.asList(
+                vector("node1", 1L, "node2", 2L),
+                vector("node1", 2L, "node2", 3L),
+                vector("node1", 3L, "node2", 1L));
+        
+        // When
+        VersionVector.VectorRelation[] relations = VersionVector.compareAll(base, others);
+        
+        // Then
+        assertArrayEquals(new VersionVector.VectorRelation[] {
+                VersionVector.VectorRelation.NEWER,
+                VersionVector.VectorRelation.OLDER,
+                VersionVector.VectorRelation.CONFLICT
+        }, relations);
+    }
+    
+    private static VersionVector vector(String node1, long version1, String node2, long version2) {
+        Map<String, Long> entries = new HashMap<>();
+        entries.put(node1, version1);
+        entries.put(node2, version2);
+        return new VersionVector(entries);
+    }
+}
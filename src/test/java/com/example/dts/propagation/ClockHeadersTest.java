@@ -0,0 +1,76 @@
+package com.example.dts.propagation;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.timestamp.TotalOrderTimestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时钟传播头编解码测试
+ * 
+ * @author DTS Team
+ */
+class ClockHeadersTest {
+    
+    @Test
+    void testVectorRoundTrip() {
+        // Given
+        Map<String, Long> entries = new HashMap<>();
+        entries.put("node-1", 12L);
+        entries.put("node-2", 9L);
+        entries.put("node-3", 0L);
+        VectorClock clock = new VectorClock(entries);
+        
+        // When
+        String header = ClockHeaders.formatVector(clock);
+        VectorClock parsed = ClockHeaders.parseVector(header);
+        
+        // Then
+        assertFalse(header.contains("node-3"));
+        assertEquals(12L, parsed.getValue("node-1"));
+        assertEquals(9L, parsed.getValue("node-2"));
+        assertEquals(2, parsed.size());
+    }
+    
+    @Test
+    void testParseEmptyHeader() {
+        assertTrue(ClockHeaders.parseVector("").isEmpty());
+        assertTrue(ClockHeaders.parseVector(null).isEmpty());
+    }
+    
+    @Test
+    void testParseMalformedHeader() {
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector("node-1"));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector("node-1=abc"));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector("=5"));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector("node-1=-1"));
+    }
+    
+    @Test
+    void testParseRejectsOutOfRangeAndOversizedHeaders() {
+        // Given
+        StringBuilder tooManyEntries = new StringBuilder();
+        for (int i = 0; i <= ClockHeaders.MAX_VECTOR_ENTRIES; i++) {
+            tooManyEntries.append("node-").append(i).append("=1,");
+        }
+        StringBuilder longNodeId = new StringBuilder();
+        for (int i = 0; i <= ClockHeaders.MAX_NODE_ID_LENGTH; i++) {
+            longNodeId.append('n');
+        }
+        
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseClock(String.valueOf(Long.MAX_VALUE)));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseClock("-1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClockHeaders.parseClock(String.valueOf(TotalOrderTimestamp.MAX_LAMPORT + 1)));
+        assertEquals(TotalOrderTimestamp.MAX_LAMPORT,
+                ClockHeaders.parseClock(" " + TotalOrderTimestamp.MAX_LAMPORT + " "));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector(tooManyEntries.toString()));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector(longNodeId + "=1"));
+        assertThrows(IllegalArgumentException.class, () -> ClockHeaders.parseVector("node-1=" + Long.MAX_VALUE));
+    }
+}
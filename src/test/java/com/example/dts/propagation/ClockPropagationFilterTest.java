@@ -0,0 +1,183 @@
+package com.example.dts.propagation;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.timestamp.LogicalClock;
+import com.example.dts.timestamp.TotalOrderTimestamp;
+import com.example.dts.timestamp.VectorClockManager;
+import feign.RequestTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 时钟传播过滤器和Feign拦截器测试
+ * 
+ * @author DTS Team
+ */
+@ExtendWith(MockitoExtension.class)
+class ClockPropagationFilterTest {
+    
+    @Mock
+    private LogicalClock logicalClock;
+    
+    @Mock
+    private VectorClockManager vectorClockManager;
+    
+    private ClockPropagationFilter filter;
+    
+    @BeforeEach
+    void setUp() {
+        filter = new ClockPropagationFilter(logicalClock, vectorClockManager);
+        // MockHttpServletRequest 的默认来源地址
+        filter.setTrustedPeers("127.0.0.1");
+        lenient().when(vectorClockManager.getCurrentClock())
+                .thenReturn(new VectorClock(Collections.singletonMap("node-1", 4L)));
+    }
+    
+    @Test
+    void testIncomingHeadersSyncClocks() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/transaction/at");
+        request.addHeader(ClockHeaders.LOGICAL_CLOCK, "42");
+        request.addHeader(ClockHeaders.VECTOR_CLOCK, "node-2=7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(logicalClock.getCurrentTime()).thenReturn(43L);
+        
+        // When
+        filter.doFilter(request, response, new MockFilterChain());
+        
+        // Then
+        verify(logicalClock).sync(42L);
+        ArgumentCaptor<VectorClock> captor = ArgumentCaptor.forClass(VectorClock.class);
+        verify(vectorClockManager).sync(captor.capture());
+        assertEquals(7L, captor.getValue().getValue("node-2"));
+        assertEquals("43", response.getHeader(ClockHeaders.LOGICAL_CLOCK));
+        assertEquals("node-1=4", response.getHeader(ClockHeaders.VECTOR_CLOCK));
+    }
+    
+    @Test
+    void testMalformedHeadersDoNotFailRequest() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        request.addHeader(ClockHeaders.LOGICAL_CLOCK, "not-a-number");
+        request.addHeader(ClockHeaders.VECTOR_CLOCK, "node-2");
+        MockFilterChain chain = new MockFilterChain();
+        
+        // When
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        
+        // Then
+        verify(logicalClock, never()).sync(anyLong());
+        verify(vectorClockManager, never()).sync(any());
+        assertNotNull(chain.getRequest());
+    }
+    
+    @Test
+    void testOverflowingClockHeaderIsRejected() throws Exception {
+        // Given 同步时 +1 会溢出为负数的值
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        request.addHeader(ClockHeaders.LOGICAL_CLOCK, String.valueOf(Long.MAX_VALUE));
+        request.addHeader(ClockHeaders.VECTOR_CLOCK, "node-2=" + Long.MAX_VALUE);
+        
+        // When
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        
+        // Then
+        verify(logicalClock, never()).sync(anyLong());
+        verify(vectorClockManager, never()).sync(any());
+    }
+    
+    @Test
+    void testHeadersFromUntrustedPeerAreIgnored() throws Exception {
+        // Given
+        filter.setTrustedPeers("10.0.0.0/8, 192.168.1.5");
+        MockHttpServletRequest untrusted = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        untrusted.setRemoteAddr("172.16.0.1");
+        untrusted.addHeader(ClockHeaders.LOGICAL_CLOCK, "42");
+        untrusted.addHeader(ClockHeaders.VECTOR_CLOCK, "node-2=7");
+        MockHttpServletRequest trusted = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        trusted.setRemoteAddr("10.1.2.3");
+        trusted.addHeader(ClockHeaders.LOGICAL_CLOCK, "42");
+        
+        // When
+        filter.doFilter(untrusted, new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(trusted, new MockHttpServletResponse(), new MockFilterChain());
+        
+        // Then
+        verify(logicalClock, times(1)).sync(42L);
+        verify(vectorClockManager, never()).sync(any());
+    }
+    
+    @Test
+    void testNoTrustedPeersSyncsFromNobody() throws Exception {
+        // Given 未配置 trusted-peers
+        filter.setTrustedPeers("");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        request.addHeader(ClockHeaders.LOGICAL_CLOCK, "42");
+        request.addHeader(ClockHeaders.VECTOR_CLOCK, "node-2=7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(logicalClock.getCurrentTime()).thenReturn(5L);
+        
+        // When
+        filter.doFilter(request, response, new MockFilterChain());
+        
+        // Then 不同步，但仍带回本节点的时钟
+        verify(logicalClock, never()).sync(anyLong());
+        verify(vectorClockManager, never()).sync(any());
+        assertEquals("5", response.getHeader(ClockHeaders.LOGICAL_CLOCK));
+    }
+    
+    @Test
+    void testForwardJumpIsCapped() throws Exception {
+        // Given 可信对端的头部把时钟推进到接近全序时间戳上限
+        ReflectionTestUtils.setField(filter, "maxForwardJump", 1000L);
+        when(logicalClock.getCurrentTime()).thenReturn(100L);
+        MockHttpServletRequest tooFar = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        tooFar.addHeader(ClockHeaders.LOGICAL_CLOCK, String.valueOf(TotalOrderTimestamp.MAX_LAMPORT));
+        tooFar.addHeader(ClockHeaders.VECTOR_CLOCK, "node-1=5,node-2=1001");
+        MockHttpServletRequest withinBound = new MockHttpServletRequest("GET", "/v1/timestamp/status");
+        withinBound.addHeader(ClockHeaders.LOGICAL_CLOCK, "1100");
+        withinBound.addHeader(ClockHeaders.VECTOR_CLOCK, "node-1=1004");
+        
+        // When
+        filter.doFilter(tooFar, new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(withinBound, new MockHttpServletResponse(), new MockFilterChain());
+        
+        // Then
+        verify(logicalClock, times(1)).sync(anyLong());
+        verify(logicalClock).sync(1100L);
+        ArgumentCaptor<VectorClock> captor = ArgumentCaptor.forClass(VectorClock.class);
+        verify(vectorClockManager, times(1)).sync(captor.capture());
+        assertEquals(1004L, captor.getValue().getValue("node-1"));
+    }
+    
+    @Test
+    void testFeignInterceptorStampsSendEvent() {
+        // Given
+        ClockPropagationFeignInterceptor interceptor =
+                new ClockPropagationFeignInterceptor(logicalClock, vectorClockManager);
+        when(logicalClock.tick()).thenReturn(11L);
+        when(vectorClockManager.tick()).thenReturn(new VectorClock(Collections.singletonMap("node-1", 5L)));
+        RequestTemplate template = new RequestTemplate();
+        
+        // When
+        interceptor.apply(template);
+        
+        // Then
+        assertEquals(Collections.singletonList("11"), template.headers().get(ClockHeaders.LOGICAL_CLOCK));
+        assertEquals(Collections.singletonList("node-1=5"), template.headers().get(ClockHeaders.VECTOR_CLOCK));
+    }
+}
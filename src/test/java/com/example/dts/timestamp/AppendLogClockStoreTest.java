@@ -0,0 +1,204 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VectorClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 追加日志时钟存储单元测试
+ *
+ * @author DTS Team
+ */
+class AppendLogClockStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStateRecoveredAfterReopen() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock-store.log");
+        try (AppendLogClockStore store = open(path, 1L << 20)) {
+            store.advanceCounters(Arrays.asList("lamport:clock:node1", "lamport:global"), 42L);
+            store.advanceCounters(Collections.singletonList("lamport:global"), 10L);
+            store.replaceEntries("vector:clock:node1", entries("node1", 3L, "node2", 5L));
+            store.updateEntries("vector:clock:node1", entries("node1", 4L), Collections.singletonList("node2"));
+            store.pushBounded("version:history:node1", new byte[]{1}, 2);
+            store.pushBounded("version:history:node1", new byte[]{2}, 2);
+            store.pushBounded("version:history:node1", new byte[]{3}, 2);
+            store.addMember("vector:nodes", "node1");
+        }
+
+        // When
+        try (AppendLogClockStore reopened = open(path, 1L << 20)) {
+            // Then
+            assertEquals(42L, reopened.getCounter("lamport:global"));
+            assertEquals(entries("node1", 4L), reopened.getEntries("vector:clock:node1"));
+            List<byte[]> history = reopened.range("version:history:node1", 10);
+            assertEquals(2, history.size());
+            assertArrayEquals(new byte[]{3}, history.get(0));
+            assertArrayEquals(new byte[]{2}, history.get(1));
+            assertTrue(reopened.members("vector:nodes").contains("node1"));
+        }
+    }
+
+    @Test
+    void testTornTailTruncatedOnReplay() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock-store.log");
+        try (AppendLogClockStore store = open(path, 1L << 20)) {
+            store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 7L);
+            store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 8L);
+        }
+        long intact = Files.size(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // 模拟崩溃时最后一条记录只写入了一半
+            file.setLength(intact - 3);
+        }
+
+        // When
+        try (AppendLogClockStore reopened = open(path, 1L << 20)) {
+            reopened.advanceCounters(Collections.singletonList("lamport:clock:node1"), 9L);
+        }
+
+        // Then 撕裂的记录被丢弃，之后追加的记录可以正常重放
+        try (AppendLogClockStore reopened = open(path, 1L << 20)) {
+            assertEquals(9L, reopened.getCounter("lamport:clock:node1"));
+        }
+        assertEquals(intact, Files.size(path));
+    }
+
+    @Test
+    void testCompactionKeepsStateAndBoundsLogSize() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock-store.log");
+        try (AppendLogClockStore store = open(path, 4096)) {
+            // When
+            for (long i = 1; i <= 2000; i++) {
+                store.advanceCounters(Collections.singletonList("lamport:clock:node1"), i);
+                store.pushBounded("version:history:node1", new byte[]{(byte) i}, 3);
+            }
+
+            // Then
+            assertTrue(Files.size(path) < 8192);
+        }
+        try (AppendLogClockStore reopened = open(path, 4096)) {
+            assertEquals(2000L, reopened.getCounter("lamport:clock:node1"));
+            List<byte[]> history = reopened.range("version:history:node1", 10);
+            assertEquals(3, history.size());
+            assertArrayEquals(new byte[]{(byte) 2000}, history.get(0));
+            assertArrayEquals(new byte[]{(byte) 1998}, history.get(2));
+        }
+    }
+
+    @Test
+    void testPeriodicSnapshotKeepsReplayIndependentOfHistory() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock-store.log");
+        try (AppendLogClockStore store = open(path, 1L << 30)) {
+            for (long i = 1; i <= 5000; i++) {
+                store.advanceCounters(Collections.singletonList("lamport:clock:node1"), i);
+            }
+
+            // When
+            store.snapshot();
+            store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 5001L);
+        }
+
+        // Then 快照加一条变更
+        assertTrue(Files.size(path) < 256);
+        try (AppendLogClockStore reopened = open(path, 1L << 30)) {
+            assertEquals(5001L, reopened.getCounter("lamport:clock:node1"));
+        }
+    }
+
+    @Test
+    void testFailedAppendLeavesMemoryUnchanged() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock-store.log");
+        AppendLogClockStore store = open(path, 1L << 20);
+        store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 7L);
+        ((FileChannel) ReflectionTestUtils.getField(store, "channel")).close();
+
+        // When
+        assertThrows(UncheckedIOException.class,
+                () -> store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 8L));
+
+        // Then 日志中没有的修改也不出现在内存中
+        assertEquals(7L, store.getCounter("lamport:clock:node1"));
+    }
+
+    @Test
+    void testFailedCompactionKeepsStoreWritable() throws IOException {
+        // Given 压缩文件的位置被目录占用，压缩无法写入
+        Path path = tempDir.resolve("clock-store.log");
+        Files.createDirectory(tempDir.resolve("clock-store.log.compact"));
+        try (AppendLogClockStore store = open(path, 1L << 20)) {
+            store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 7L);
+
+            // When
+            assertThrows(UncheckedIOException.class, store::compact);
+            store.advanceCounters(Collections.singletonList("lamport:clock:node1"), 8L);
+        }
+
+        // Then
+        try (AppendLogClockStore reopened = open(path, 1L << 20)) {
+            assertEquals(8L, reopened.getCounter("lamport:clock:node1"));
+        }
+    }
+
+    @Test
+    void testVectorClockManagerRunsWithoutRedis() {
+        // Given
+        InProcessClockStore store = new InProcessClockStore();
+        VectorClockManager first = vectorClockManager(store);
+        first.initialize();
+        first.tick();
+        first.tick();
+        VectorClock peer = new VectorClock();
+        peer.setValue("node2", 5L);
+        first.merge(peer);
+
+        // When
+        VectorClockManager second = vectorClockManager(store);
+        second.initialize();
+
+        // Then
+        assertEquals(first.getCurrentClock(), second.getCurrentClock());
+        assertEquals(store.getEntries("vector:clock:test-node"), second.getNodeClock("test-node").getClock());
+    }
+
+    private static AppendLogClockStore open(Path path, long compactThreshold) throws IOException {
+        return new AppendLogClockStore(path.toString(), "os", 100L, compactThreshold);
+    }
+
+    private static VectorClockManager vectorClockManager(ClockStore store) {
+        VectorClockManager manager = new VectorClockManager(store, null, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(manager, "nodeId", "test-node");
+        return manager;
+    }
+
+    private static Map<String, Long> entries(Object... pairs) {
+        Map<String, Long> entries = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            entries.put((String) pairs[i], (Long) pairs[i + 1]);
+        }
+        return entries;
+    }
+}
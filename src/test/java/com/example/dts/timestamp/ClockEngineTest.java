@@ -0,0 +1,215 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.ClockCodec;
+import com.example.dts.model.VectorClock;
+import com.example.dts.model.VersionVector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 统一时钟引擎单元测试
+ *
+ * @author DTS Team
+ */
+class ClockEngineTest {
+
+    private static final List<String> CLOCK_KEYS =
+            Arrays.asList("lamport:clock:node1", "vector:clock:node1", "version:vector:node1");
+
+    private final CountingClockStore store = new CountingClockStore();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClockWriteBehindPersister persister = new ClockWriteBehindPersister(meterRegistry, store);
+    private LamportClockManager lamport;
+    private ClockEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+        if (lamport != null) {
+            lamport.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentEventsGetConsistentCut() throws Exception {
+        // Given
+        engine = engine(false);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ClockEngine.Snapshot>> ticks = new ArrayList<>();
+
+        // When 本地事件与对端同步并发
+        for (int i = 0; i < 2000; i++) {
+            ticks.add(executor.submit(engine::tick));
+            long peerTime = i;
+            executor.submit(() -> engine.sync("node2", peerTime,
+                    new VectorClock(Collections.singletonMap("node2", peerTime)), null,
+                    new VersionVector(Collections.singletonMap("node2", peerTime)), null));
+        }
+        List<ClockEngine.Snapshot> snapshots = new ArrayList<>();
+        for (Future<ClockEngine.Snapshot> tick : ticks) {
+            snapshots.add(tick.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Then 按Lamport时间排序后，三个时钟的推进顺序一致（同步也会推进本节点的向量时钟条目）
+        snapshots.sort((a, b) -> Long.compare(a.getLamportTime(), b.getLamportTime()));
+        long previousVectorTime = 0L;
+        for (int i = 0; i < snapshots.size(); i++) {
+            ClockEngine.Snapshot snapshot = snapshots.get(i);
+            long vectorTime = snapshot.getVectorClock().getValue("node1");
+            assertTrue(vectorTime > previousVectorTime);
+            assertEquals(i + 1L, snapshot.getVersionVector().getVersion("node1"));
+            previousVectorTime = vectorTime;
+        }
+    }
+
+    @Test
+    void testAllClocksFlushedInOneBatch() {
+        // Given
+        engine = engine(false);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            engine.tick();
+        }
+        persister.flush();
+
+        // Then
+        assertEquals(1, store.batchKeys().size());
+        assertEquals(10L, store.getCounter("lamport:clock:node1"));
+        assertEquals(10L, store.getEntries("vector:clock:node1").get("node1").longValue());
+        assertEquals(10L, ClockCodec.decodeVersionVector(store.getValue("version:vector:node1")).getVersion("node1"));
+    }
+
+    @Test
+    void testWriterThreadCoalescesConcurrentEvents() throws Exception {
+        // Given 每批模拟一次网络往返
+        store.roundTripMillis = 2;
+        engine = engine(true);
+        int events = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ClockEngine.Snapshot>> ticks = new ArrayList<>();
+
+        // When 不依赖周期刷新，只由写线程落盘
+        for (int i = 0; i < events; i++) {
+            ticks.add(executor.submit(engine::tick));
+        }
+        for (Future<ClockEngine.Snapshot> tick : ticks) {
+            tick.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Long.valueOf(events).equals(store.getCounter("lamport:clock:node1"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then 批次数远少于事件数，且每批都包含三个时钟
+        assertEquals(Long.valueOf(events), store.getCounter("lamport:clock:node1"));
+        List<Set<String>> batches = store.batchKeys();
+        assertTrue(batches.size() < events / 10, "batches: " + batches.size());
+        for (Set<String> keys : batches) {
+            assertTrue(keys.containsAll(CLOCK_KEYS), "batch keys: " + keys);
+        }
+    }
+
+    private ClockEngine engine(boolean eagerFlush) {
+        lamport = new LamportClockManager(store, persister);
+        ReflectionTestUtils.setField(lamport, "nodeId", "node1");
+        ReflectionTestUtils.setField(lamport, "persistenceEnabled", true);
+        VectorClockManager vector = new VectorClockManager(store, persister, meterRegistry);
+        ReflectionTestUtils.setField(vector, "nodeId", "node1");
+        VersionVectorManager version = new VersionVectorManager(store, persister, meterRegistry);
+        ReflectionTestUtils.setField(version, "nodeId", "node1");
+        lamport.initialize();
+        vector.initialize();
+        version.initialize();
+
+        ClockEngine clockEngine = new ClockEngine(lamport, vector, version, persister, meterRegistry);
+        ReflectionTestUtils.setField(clockEngine, "eagerFlush", eagerFlush);
+        clockEngine.start();
+        return clockEngine;
+    }
+
+    /**
+     * 记录每批写入的键
+     */
+    private static class CountingClockStore extends InProcessClockStore {
+
+        private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<Set<String>> currentBatch = new ThreadLocal<>();
+        private volatile long roundTripMillis;
+
+        @Override
+        public void writeBatch(Runnable writes) {
+            Set<String> keys = new HashSet<>();
+            currentBatch.set(keys);
+            try {
+                super.writeBatch(writes);
+                if (roundTripMillis > 0) {
+                    Thread.sleep(roundTripMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                currentBatch.remove();
+            }
+            batches.add(keys);
+        }
+
+        @Override
+        public long advanceCounters(List<String> keys, long value) {
+            keys.forEach(this::record);
+            return super.advanceCounters(keys, value);
+        }
+
+        @Override
+        public void setValue(String key, byte[] value) {
+            record(key);
+            super.setValue(key, value);
+        }
+
+        @Override
+        public void updateEntries(String key, Map<String, Long> changed, Collection<String> removed) {
+            record(key);
+            super.updateEntries(key, changed, removed);
+        }
+
+        @Override
+        public void replaceEntries(String key, Map<String, Long> replacement) {
+            record(key);
+            super.replaceEntries(key, replacement);
+        }
+
+        List<Set<String>> batchKeys() {
+            return batches;
+        }
+
+        private void record(String key) {
+            Set<String> keys = currentBatch.get();
+            if (keys != null) {
+                keys.add(key);
+            }
+        }
+    }
+}
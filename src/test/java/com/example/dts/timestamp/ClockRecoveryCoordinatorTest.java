@@ -0,0 +1,112 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VectorClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时钟并行恢复协调器单元测试
+ *
+ * @author DTS Team
+ */
+class ClockRecoveryCoordinatorTest {
+
+    private InProcessClockStore store;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        store = new InProcessClockStore();
+        meterRegistry = new SimpleMeterRegistry();
+
+        // 上一次运行留下的状态
+        LamportClockManager lamport = lamport(false);
+        VectorClockManager vector = vector(false);
+        VersionVectorManager version = version(false);
+        lamport.initialize();
+        vector.initialize();
+        version.initialize();
+        for (int i = 0; i < 5; i++) {
+            lamport.tick();
+            vector.tick();
+            version.increment();
+        }
+        version.shutdown();
+        lamport.shutdown();
+    }
+
+    @Test
+    void testManagersRecoveredInParallelAndTimed() {
+        // Given
+        LamportClockManager lamport = lamport(true);
+        VectorClockManager vector = vector(true);
+        VersionVectorManager version = version(true);
+        lamport.initialize();
+        vector.initialize();
+        version.initialize();
+        assertEquals(0L, lamport.getCurrentTime());
+
+        // When
+        new ClockRecoveryCoordinator(lamport, vector, version, meterRegistry).recover();
+
+        // Then
+        assertEquals(5L, lamport.getCurrentTime());
+        assertEquals(5L, vector.getCurrentClock().getValue("node1"));
+        assertEquals(5L, version.getCurrentVector().getVersion("node1"));
+        assertEquals(5, version.getVersionHistory(10).size());
+        for (String clock : new String[]{"lamport", "vector", "version", "all"}) {
+            assertEquals(1L, meterRegistry.get("dts.clock.recovery.duration").tag("clock", clock).timer().count());
+        }
+        lamport.shutdown();
+    }
+
+    @Test
+    void testRecoveryKeepsClocksObservedBeforeRecovery() {
+        // Given 恢复前已经收到对端时钟
+        LamportClockManager lamport = lamport(true);
+        VectorClockManager vector = vector(true);
+        VersionVectorManager version = version(true);
+        lamport.initialize();
+        vector.initialize();
+        version.initialize();
+        lamport.sync(42L);
+        VectorClock peer = new VectorClock();
+        peer.setValue("node2", 7L);
+        vector.merge(peer);
+
+        // When
+        new ClockRecoveryCoordinator(lamport, vector, version, meterRegistry).recover();
+
+        // Then
+        assertEquals(43L, lamport.getCurrentTime());
+        assertEquals(5L, vector.getCurrentClock().getValue("node1"));
+        assertEquals(7L, vector.getCurrentClock().getValue("node2"));
+        lamport.shutdown();
+    }
+
+    private LamportClockManager lamport(boolean parallelRecovery) {
+        LamportClockManager manager = new LamportClockManager(store, null);
+        ReflectionTestUtils.setField(manager, "nodeId", "node1");
+        ReflectionTestUtils.setField(manager, "persistenceEnabled", true);
+        ReflectionTestUtils.setField(manager, "parallelRecovery", parallelRecovery);
+        return manager;
+    }
+
+    private VectorClockManager vector(boolean parallelRecovery) {
+        VectorClockManager manager = new VectorClockManager(store, null, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(manager, "nodeId", "node1");
+        ReflectionTestUtils.setField(manager, "parallelRecovery", parallelRecovery);
+        return manager;
+    }
+
+    private VersionVectorManager version(boolean parallelRecovery) {
+        VersionVectorManager manager = new VersionVectorManager(store, null, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(manager, "nodeId", "node1");
+        ReflectionTestUtils.setField(manager, "parallelRecovery", parallelRecovery);
+        return manager;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.ClockCodec;
+import com.example.dts.model.VectorClock;
+import com.example.dts.model.VersionVector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 时钟快照读取单元测试
+ *
+ * @author DTS Team
+ */
+@ExtendWith(MockitoExtension.class)
+class ClockSnapshotReaderTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisScriptingCommands scriptingCommands;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+    }
+
+    @Test
+    void testVectorClocksReadInOneRoundTrip() {
+        // Given 哈希、旧的二进制格式和不存在的键
+        List<Object> raw = Arrays.asList(
+                bytes("node1"), Arrays.asList(bytes("node1"), bytes("3"), bytes("node2"), bytes("1")),
+                bytes("node2"), ClockCodec.encode(new VectorClock().tick("node2")),
+                bytes("node3"), bytes(""));
+        when(scriptingCommands.evalSha(anyString(), eq(ReturnType.MULTI), eq(0), any(byte[].class), any(byte[].class)))
+                .thenReturn(raw);
+        VectorClockManager manager = new VectorClockManager(redisTemplate);
+
+        // When
+        Map<String, VectorClock> clocks = manager.getAllNodeClocks();
+
+        // Then
+        assertEquals(2, clocks.size());
+        assertEquals(3L, clocks.get("node1").getValue("node1"));
+        assertEquals(1L, clocks.get("node1").getValue("node2"));
+        assertEquals(1L, clocks.get("node2").getValue("node2"));
+        verify(redisTemplate, never()).opsForSet();
+    }
+
+    @Test
+    void testLargeSnapshotParsedInParallel() {
+        // Given
+        int nodeCount = ClockSnapshotReader.PARALLEL_THRESHOLD * 3;
+        List<Object> raw = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            raw.add(bytes("node" + i));
+            raw.add(ClockCodec.encode(new VersionVector().increment("node" + i)));
+        }
+        when(scriptingCommands.evalSha(anyString(), eq(ReturnType.MULTI), eq(0), any(byte[].class), any(byte[].class)))
+                .thenReturn(raw);
+        VersionVectorManager manager = new VersionVectorManager(redisTemplate);
+
+        // When
+        Map<String, VersionVector> vectors = manager.getAllNodeVectors();
+
+        // Then
+        assertEquals(nodeCount, vectors.size());
+        for (int i = 0; i < nodeCount; i++) {
+            assertEquals(1L, vectors.get("node" + i).getVersion("node" + i));
+        }
+    }
+
+    @Test
+    void testScriptBodySentWhenNotCached() {
+        // Given
+        when(scriptingCommands.evalSha(anyString(), eq(ReturnType.MULTI), eq(0), any(byte[].class), any(byte[].class)))
+                .thenThrow(new RedisSystemException("NOSCRIPT No matching script", null));
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.MULTI), eq(0), any(byte[].class), any(byte[].class)))
+                .thenReturn(Arrays.asList(bytes("node1"), Arrays.asList(bytes("node1"), bytes("7"))));
+
+        // When
+        Map<String, VectorClock> clocks = new VectorClockManager(redisTemplate).getAllNodeClocks();
+
+        // Then
+        assertEquals(7L, clocks.get("node1").getValue("node1"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
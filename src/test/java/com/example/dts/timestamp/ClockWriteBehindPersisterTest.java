@@ -0,0 +1,152 @@
+package com.example.dts.timestamp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时钟写后持久化器单元测试
+ * 
+ * @author DTS Team
+ */
+class ClockWriteBehindPersisterTest {
+    
+    private ClockWriteBehindPersister persister;
+    
+    @BeforeEach
+    void setUp() {
+        // 落盘线程不执行提前落盘请求，只由阈值强制落盘
+        persister = new ClockWriteBehindPersister(new SimpleMeterRegistry(), null, runnable -> { });
+        ReflectionTestUtils.setField(persister, "dirtyThreshold", 100);
+    }
+    
+    @Test
+    void testCoalescesWritesUntilFlush() {
+        // Given
+        AtomicInteger writes = new AtomicInteger();
+        AtomicLong persisted = new AtomicLong();
+        AtomicLong clock = new AtomicLong();
+        
+        // When
+        for (int i = 0; i < 50; i++) {
+            clock.incrementAndGet();
+            persister.markDirty("lamport:clock:test", () -> {
+                writes.incrementAndGet();
+                persisted.set(clock.get());
+            });
+        }
+        
+        // Then
+        assertEquals(0, writes.get());
+        persister.flush();
+        assertEquals(1, writes.get());
+        assertEquals(50L, persisted.get());
+        assertEquals(50.0, persister.getCoalescingRatio(), 0.001);
+    }
+    
+    @Test
+    void testThresholdForcesFlush() {
+        // Given
+        AtomicInteger writes = new AtomicInteger();
+        
+        // When
+        for (int i = 0; i < 250; i++) {
+            persister.markDirty("vector:clock:test", writes::incrementAndGet);
+        }
+        
+        // Then: 每100次脏写强制落盘一次
+        assertEquals(2, writes.get());
+        assertEquals(1, persister.getStatistics().get("dirtyKeys"));
+    }
+    
+    @Test
+    void testFailedWriteIsRetried() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+        persister.markDirty("version:vector:test", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RuntimeException("Redis error");
+            }
+        });
+        
+        // When
+        persister.flush();
+        persister.flush();
+        
+        // Then
+        assertEquals(2, attempts.get());
+        assertEquals(0, persister.getStatistics().get("dirtyKeys"));
+    }
+    
+    @Test
+    void testEarlyFlushRunsOnFlushThread() throws InterruptedException {
+        // Given
+        ExecutorService flushThread = Executors.newSingleThreadExecutor();
+        ClockWriteBehindPersister asyncPersister =
+                new ClockWriteBehindPersister(new SimpleMeterRegistry(), null, flushThread);
+        ReflectionTestUtils.setField(asyncPersister, "dirtyThreshold", 100);
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> writerThread = new AtomicReference<>();
+        
+        // When 脏写达到阈值的一半
+        for (int i = 0; i < 50; i++) {
+            asyncPersister.markDirty("lamport:clock:test", () -> writerThread.set(Thread.currentThread()));
+        }
+        flushThread.shutdown();
+        assertTrue(flushThread.awaitTermination(5, TimeUnit.SECONDS));
+        
+        // Then 调用线程没有做I/O
+        assertNotNull(writerThread.get());
+        assertNotSame(caller, writerThread.get());
+        assertEquals(0, asyncPersister.getStatistics().get("dirtyKeys"));
+    }
+    
+    @Test
+    void testFailedFlushKeepsPendingCount() {
+        // Given 第一次强制落盘失败，失败前有一次新的写入
+        AtomicInteger attempts = new AtomicInteger();
+        Runnable[] writer = new Runnable[1];
+        writer[0] = () -> {
+            if (attempts.incrementAndGet() == 1) {
+                persister.markDirty("vector:clock:test", writer[0]);
+                throw new RuntimeException("Redis error");
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            persister.markDirty("vector:clock:test", writer[0]);
+        }
+        assertEquals(1, attempts.get());
+        
+        // When
+        persister.markDirty("vector:clock:test", writer[0]);
+        
+        // Then 失败的100次写入与新写入合并计数，仍超过阈值，立即重试落盘
+        assertEquals(2, attempts.get());
+        assertEquals(0, persister.getStatistics().get("dirtyKeys"));
+    }
+    
+    @Test
+    void testWriteThroughWhenDisabled() {
+        // Given
+        ReflectionTestUtils.setField(persister, "writeBehindEnabled", false);
+        AtomicInteger writes = new AtomicInteger();
+        
+        // When
+        persister.markDirty("lamport:clock:test", writes::incrementAndGet);
+        persister.markDirty("lamport:clock:test", writes::incrementAndGet);
+        
+        // Then
+        assertEquals(2, writes.get());
+        assertEquals(0L, persister.getSafetyMargin());
+    }
+}
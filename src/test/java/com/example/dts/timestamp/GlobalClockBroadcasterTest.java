@@ -0,0 +1,129 @@
+package com.example.dts.timestamp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 全局时钟广播器单元测试
+ * 使用进程内的发布订阅替身模拟Redis频道
+ * 
+ * @author DTS Team
+ */
+class GlobalClockBroadcasterTest {
+    
+    private final List<MessageListener> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger publishedMessages = new AtomicInteger();
+    
+    private RedisTemplate<String, String> redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private RedisMessageListenerContainer listenerContainer;
+    private VectorClockManager vectorClockManager;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        listenerContainer = mock(RedisMessageListenerContainer.class);
+        vectorClockManager = mock(VectorClockManager.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        
+        // 进程内频道：订阅者注册到列表，发布时同步投递给所有订阅者
+        doAnswer(invocation -> subscribers.add(invocation.getArgument(0)))
+                .when(listenerContainer).addMessageListener(any(MessageListener.class), any(Topic.class));
+        doAnswer(invocation -> {
+            publishedMessages.incrementAndGet();
+            byte[] channel = ((String) invocation.getArgument(0)).getBytes(StandardCharsets.UTF_8);
+            byte[] body = ((String) invocation.getArgument(1)).getBytes(StandardCharsets.UTF_8);
+            subscribers.forEach(listener -> listener.onMessage(new DefaultMessage(channel, body), null));
+            return (long) subscribers.size();
+        }).when(redisTemplate).convertAndSend(anyString(), any());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPushedGlobalMaxIsReadLocally() {
+        // Given
+        LamportClockManager nodeA = manager("node-a");
+        LamportClockManager nodeB = manager("node-b");
+        GlobalClockBroadcaster broadcasterA = broadcaster(nodeA);
+        broadcaster(nodeB);
+        clearInvocations(valueOperations);
+        
+        // When
+        for (int i = 0; i < 5; i++) {
+            nodeA.tick();
+        }
+        broadcasterA.publish();
+        
+        // Then
+        assertEquals(5L, nodeB.getGlobalMaxClock());
+        assertEquals(6L, nodeB.syncWithNode("node-a"));
+        verifyNoInteractions(valueOperations);
+        verify(vectorClockManager, atLeastOnce()).markAlive("node-a");
+    }
+    
+    @Test
+    void testPublishIsCoalescedAndSkippedWithoutAdvance() {
+        // Given
+        LamportClockManager nodeA = manager("node-a");
+        GlobalClockBroadcaster broadcasterA = broadcaster(nodeA);
+        
+        // When
+        nodeA.tick();
+        nodeA.tick();
+        nodeA.tick();
+        broadcasterA.publish();
+        broadcasterA.publish();
+        
+        // Then
+        assertEquals(1, publishedMessages.get());
+    }
+    
+    @Test
+    void testMalformedMessageIsIgnored() {
+        // Given
+        LamportClockManager nodeA = manager("node-a");
+        GlobalClockBroadcaster broadcasterA = broadcaster(nodeA);
+        
+        // When
+        broadcasterA.onMessage(new DefaultMessage("lamport:advance".getBytes(StandardCharsets.UTF_8),
+                "garbage".getBytes(StandardCharsets.UTF_8)), null);
+        
+        // Then
+        assertEquals(0L, nodeA.getGlobalMaxClock());
+    }
+    
+    private LamportClockManager manager(String nodeId) {
+        LamportClockManager manager = new LamportClockManager(redisTemplate);
+        ReflectionTestUtils.setField(manager, "nodeId", nodeId);
+        ReflectionTestUtils.setField(manager, "persistenceEnabled", false);
+        ReflectionTestUtils.setField(manager, "pushEnabled", true);
+        manager.initialize();
+        return manager;
+    }
+    
+    private GlobalClockBroadcaster broadcaster(LamportClockManager manager) {
+        GlobalClockBroadcaster broadcaster = new GlobalClockBroadcaster(redisTemplate, listenerContainer, manager,
+                                                                      vectorClockManager);
+        broadcaster.initialize();
+        return broadcaster;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.dts.timestamp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 混合逻辑时钟管理器单元测试
+ * 
+ * @author DTS Team
+ */
+class HybridLogicalClockManagerTest {
+    
+    private static final long NOW = 1700000000000L;
+    
+    private final AtomicLong wallClock = new AtomicLong(NOW);
+    private HybridLogicalClockManager hlcManager;
+    
+    @BeforeEach
+    void setUp() {
+        hlcManager = new HybridLogicalClockManager(wallClock::get);
+        ReflectionTestUtils.setField(hlcManager, "nodeId", "test-node");
+        ReflectionTestUtils.setField(hlcManager, "maxDrift", 500L);
+    }
+    
+    @Test
+    void testTickFollowsPhysicalTime() {
+        // When
+        long time = hlcManager.tick();
+        
+        // Then
+        assertEquals(NOW, HybridLogicalClockManager.physicalOf(time));
+        assertEquals(0L, HybridLogicalClockManager.logicalOf(time));
+    }
+    
+    @Test
+    void testTickWithinSameMillisecondIncrementsLogical() {
+        // When
+        long first = hlcManager.tick();
+        long second = hlcManager.tick();
+        
+        // Then
+        assertEquals(first + 1, second);
+        assertEquals(NOW, HybridLogicalClockManager.physicalOf(second));
+        assertEquals(1L, HybridLogicalClockManager.logicalOf(second));
+    }
+    
+    @Test
+    void testTickNUpToDriftCapacity() {
+        // Given 64 * 500 个逻辑时间
+        int capacity = hlcManager.getMaxTickCount();
+        assertEquals((HybridLogicalClockManager.MAX_LOGICAL + 1) * 500L, capacity);
+        
+        // When
+        long[] range = hlcManager.tickN(capacity);
+        
+        // Then
+        assertEquals(capacity, range[1] - range[0] + 1);
+        assertTrue(HybridLogicalClockManager.physicalOf(range[1]) - NOW <= 500L);
+    }
+    
+    @Test
+    void testTickNBeyondDriftCapacityIsRejected() {
+        // When
+        long before = hlcManager.getCurrentTime();
+        
+        // Then 校验失败，时钟不变
+        assertThrows(IllegalArgumentException.class, () -> hlcManager.tickN(hlcManager.getMaxTickCount() + 1));
+        assertEquals(before, hlcManager.getCurrentTime());
+    }
+    
+    @Test
+    void testMonotonicWhenWallClockGoesBackwards() {
+        // Given
+        long before = hlcManager.tick();
+        wallClock.addAndGet(-100);
+        
+        // When
+        long after = hlcManager.tick();
+        
+        // Then
+        assertTrue(after > before);
+    }
+    
+    @Test
+    void testSyncTakesMaxOfReceived() {
+        // Given
+        long received = HybridLogicalClockManager.encode(NOW + 100, 3);
+        
+        // When
+        long synced = hlcManager.sync(received);
+        
+        // Then
+        assertEquals(received + 1, synced);
+    }
+    
+    @Test
+    void testSyncRejectsTimestampBeyondDrift() {
+        // Given
+        long received = HybridLogicalClockManager.encode(NOW + 10000, 0);
+        
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> hlcManager.sync(received));
+        assertEquals(0L, hlcManager.getCurrentTime());
+    }
+    
+    @Test
+    void testTickNOverflowIsBoundedByDrift() {
+        // Given: 每毫秒64个逻辑值，500ms漂移约能容纳32000个
+        long[] range = hlcManager.tickN(1000);
+        
+        // Then
+        assertEquals(999L, range[1] - range[0]);
+        assertTrue(HybridLogicalClockManager.physicalOf(range[1]) > NOW);
+        assertThrows(IllegalStateException.class, () -> hlcManager.tickN(31500));
+    }
+    
+    @Test
+    void testRejectedTickLeavesClockUnchanged() {
+        // Given
+        long before = hlcManager.tickN(20000)[1];
+        
+        // When: 单次数量在上限内，但与已分配的合计超过漂移上界
+        assertThrows(IllegalStateException.class, () -> hlcManager.tickN(20000));
+        
+        // Then: 时钟没有跳到未来，之后的滴答正常
+        assertEquals(before, hlcManager.getCurrentTime());
+        assertEquals(before + 1, hlcManager.tick());
+    }
+    
+    @Test
+    void testFitsInTotalOrderLamportField() {
+        // When
+        long time = hlcManager.tick();
+        long packed = TotalOrderTimestamp.pack(time, 7);
+        
+        // Then
+        assertEquals(time, TotalOrderTimestamp.lamportOf(packed));
+    }
+    
+    @Test
+    void testPhysicalRangeBounds() {
+        // Given
+        long time = hlcManager.tick();
+        
+        // Then
+        assertTrue(hlcManager.supportsPhysicalRange());
+        assertTrue(time >= hlcManager.lowerBoundOf(NOW));
+        assertTrue(time <= hlcManager.upperBoundOf(NOW));
+        assertTrue(time > hlcManager.upperBoundOf(NOW - 1));
+    }
+    
+    @Test
+    void testDescribeExposesPhysicalAndLogical() {
+        // When
+        Map<String, Object> description = hlcManager.describe(HybridLogicalClockManager.encode(NOW, 5));
+        
+        // Then
+        assertEquals("hlc", description.get("mode"));
+        assertEquals(NOW, description.get("physicalTime"));
+        assertEquals(5L, description.get("logical"));
+    }
+}
@@ -9,9 +9,13 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -32,7 +36,7 @@ class LamportClockManagerTest {
     
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         
         lamportClockManager = new LamportClockManager(redisTemplate);
         ReflectionTestUtils.setField(lamportClockManager, "nodeId", "test-node");
@@ -64,6 +68,26 @@ class LamportClockManagerTest {
         }
     }
     
+    @Test
+    void testTickN() {
+        // Given
+        lamportClockManager.tick(); // current = 1
+        
+        // When
+        long[] range = lamportClockManager.tickN(100);
+        
+        // Then
+        assertEquals(2L, range[0]);
+        assertEquals(101L, range[1]);
+        assertEquals(101L, lamportClockManager.getCurrentTime());
+        assertEquals(102L, lamportClockManager.tick());
+    }
+    
+    @Test
+    void testTickNRejectsNonPositiveCount() {
+        assertThrows(IllegalArgumentException.class, () -> lamportClockManager.tickN(0));
+    }
+    
     @Test
     void testSync() {
         // Given
@@ -260,4 +284,161 @@ class LamportClockManagerTest {
         assertTrue(lamportClockManager.getCurrentTime() > 0);
         assertTrue(maxSyncedTime.get() > 0);
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testConcurrentTickAndSyncMonotonic() throws InterruptedException {
+        // Given
+        int threadCount = 8;
+        int opsPerThread = 1000;
+        java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(threadCount);
+        java.util.concurrent.atomic.AtomicBoolean monotonic = new java.util.concurrent.atomic.AtomicBoolean(true);
+        
+        // When
+        for (int i = 0; i < threadCount; i++) {
+            final boolean syncer = i % 2 == 0;
+            new Thread(() -> {
+                long last = 0;
+                for (int j = 0; j < opsPerThread; j++) {
+                    long time = syncer ? lamportClockManager.sync(j * 3L) : lamportClockManager.tick();
+                    if (time <= last) {
+                        monotonic.set(false);
+                    }
+                    last = time;
+                }
+                latch.countDown();
+            }).start();
+        }
+        
+        latch.await();
+        
+        // Then
+        assertTrue(monotonic.get());
+        assertTrue(lamportClockManager.getCurrentTime() >= threadCount * opsPerThread);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPersistSkipsStaleValues() {
+        // Given
+        ReflectionTestUtils.setField(lamportClockManager, "persistenceEnabled", true);
+        
+        // When
+        lamportClockManager.sync(10L);
+        lamportClockManager.setCurrentTime(5L);
+        lamportClockManager.tick();
+        
+        // Then: 第二次写入的值(6)小于已持久化的值(11)，不应再访问Redis
+        verify(redisTemplate, times(1)).execute(any(org.springframework.data.redis.core.script.RedisScript.class),
+                anyList(), any());
+    }
+    
+    @Test
+    void testRecoverySkipsWriteBehindSafetyMargin() {
+        // Given
+        ClockWriteBehindPersister persister = new ClockWriteBehindPersister(
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
+        ReflectionTestUtils.setField(persister, "dirtyThreshold", 100);
+        LamportClockManager manager = new LamportClockManager(new RedisClockStore(redisTemplate), persister);
+        ReflectionTestUtils.setField(manager, "nodeId", "test-node");
+        ReflectionTestUtils.setField(manager, "persistenceEnabled", true);
+        when(valueOperations.get("lamport:clock:test-node")).thenReturn("40");
+        
+        // When
+        manager.initialize();
+        
+        // Then: 未落盘的滴答不超过安全边界，恢复后的时间必然大于崩溃前发出的任何时间
+        assertEquals(140L, manager.getCurrentTime());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLeaseHandsOutTimestampsWithoutRedisWrites() {
+        // Given
+        LamportClockManager manager = new LamportClockManager(new RedisClockStore(redisTemplate), new ClockWriteBehindPersister(
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(manager, "nodeId", "test-node");
+        ReflectionTestUtils.setField(manager, "persistenceEnabled", true);
+        ReflectionTestUtils.setField(manager, "leaseEnabled", true);
+        when(redisTemplate.execute(any(org.springframework.data.redis.core.script.RedisScript.class),
+                eq(java.util.Collections.singletonList("lamport:lease:test-node")), anyString()))
+                .thenAnswer(invocation -> Long.parseLong(invocation.getArgument(2)));
+        
+        // When: 区间大小为1000，前400次滴答都落在第一个租约区间内且未触发预取
+        for (int i = 1; i <= 400; i++) {
+            assertEquals(i, manager.tick());
+        }
+        
+        // Then
+        assertEquals(1001L, manager.getLeaseHighWater());
+        verify(redisTemplate, times(1)).execute(any(org.springframework.data.redis.core.script.RedisScript.class),
+                anyList(), any());
+        manager.shutdown();
+    }
+    
+    @Test
+    void testTickFailsWhenLeaseCannotBeExtended() {
+        // Given
+        ClockStore failingStore = new InProcessClockStore() {
+            @Override
+            public long advanceCounters(List<String> keys, long value) {
+                throw new IllegalStateException("Redis unavailable");
+            }
+        };
+        LamportClockManager manager = new LamportClockManager(failingStore, null);
+        ReflectionTestUtils.setField(manager, "nodeId", "test-node");
+        ReflectionTestUtils.setField(manager, "persistenceEnabled", true);
+        ReflectionTestUtils.setField(manager, "leaseEnabled", true);
+        
+        // When & Then: 超出租约的时间戳不能发出
+        assertThrows(IllegalStateException.class, manager::tick);
+        assertThrows(IllegalStateException.class, manager::tick);
+        assertEquals(0L, manager.getLeaseHighWater());
+        manager.shutdown();
+    }
+    
+    @Test
+    void testRecoveryResumesFromLeaseHighWater() {
+        // Given
+        ReflectionTestUtils.setField(lamportClockManager, "persistenceEnabled", true);
+        ReflectionTestUtils.setField(lamportClockManager, "leaseEnabled", true);
+        when(valueOperations.get("lamport:lease:test-node")).thenReturn("5000");
+        
+        // When
+        lamportClockManager.initialize();
+        
+        // Then
+        assertEquals(5000L, lamportClockManager.getCurrentTime());
+        assertEquals(5000L, lamportClockManager.getLeaseHighWater());
+    }
+    
+    @Test
+    void testMappedFileRecoveryWithoutRedis(@org.junit.jupiter.api.io.TempDir java.nio.file.Path tempDir) {
+        // Given
+        String path = tempDir.resolve("lamport.dat").toString();
+        LamportClockManager first = mappedFileManager(path);
+        first.initialize();
+        first.tick();
+        first.sync(41L);
+        first.shutdown();
+        
+        // When
+        LamportClockManager second = mappedFileManager(path);
+        second.initialize();
+        
+        // Then
+        assertEquals(42L, second.getCurrentTime());
+        assertEquals(43L, second.tick());
+        verifyNoInteractions(redisTemplate);
+        second.shutdown();
+    }
+    
+    private LamportClockManager mappedFileManager(String path) {
+        LamportClockManager manager = new LamportClockManager(redisTemplate);
+        ReflectionTestUtils.setField(manager, "nodeId", "test-node");
+        ReflectionTestUtils.setField(manager, "persistenceEnabled", true);
+        ReflectionTestUtils.setField(manager, "persistenceMode", "mmap");
+        ReflectionTestUtils.setField(manager, "mmapPath", path);
+        ReflectionTestUtils.setField(manager, "mmapForcePolicy", "os");
+        return manager;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.dts.timestamp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内存映射时钟文件单元测试
+ * 
+ * @author DTS Team
+ */
+class MappedClockFileTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testNewFileStartsAtZero() throws IOException {
+        try (MappedClockFile file = new MappedClockFile(tempDir.resolve("clock.dat"), 
+                MappedClockFile.ForcePolicy.OS, 100)) {
+            assertEquals(0L, file.getHighWater());
+        }
+    }
+    
+    @Test
+    void testHighWaterSurvivesReopen() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock.dat");
+        try (MappedClockFile file = new MappedClockFile(path, MappedClockFile.ForcePolicy.ALWAYS, 100)) {
+            file.write(10L);
+            file.write(25L);
+            file.write(20L); // 忽略回退
+        }
+        
+        // When & Then
+        try (MappedClockFile file = new MappedClockFile(path, MappedClockFile.ForcePolicy.INTERVAL, 10)) {
+            assertEquals(25L, file.getHighWater());
+        }
+    }
+    
+    @Test
+    void testTornSlotFallsBackToOtherSlot() throws IOException {
+        // Given: 两次写入分别落在槽位A(10)和槽位B(25)
+        Path path = tempDir.resolve("clock.dat");
+        try (MappedClockFile file = new MappedClockFile(path, MappedClockFile.ForcePolicy.ALWAYS, 100)) {
+            file.write(10L);
+            file.write(25L);
+        }
+        
+        // When: 破坏槽位B的校验值
+        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
+            raf.seek(8 + 16 + 8);
+            raf.writeLong(12345L);
+        }
+        
+        // Then
+        try (MappedClockFile file = new MappedClockFile(path, MappedClockFile.ForcePolicy.OS, 100)) {
+            assertEquals(10L, file.getHighWater());
+            file.write(11L);
+        }
+        try (MappedClockFile file = new MappedClockFile(path, MappedClockFile.ForcePolicy.OS, 100)) {
+            assertEquals(11L, file.getHighWater());
+        }
+    }
+    
+    @Test
+    void testUnforcedWritesCoveredByReservation() throws IOException {
+        // Given
+        Path path = tempDir.resolve("clock.dat");
+        MappedClockFile file = new MappedClockFile(path, MappedClockFile.ForcePolicy.OS, 100);
+        
+        // When: 未关闭（模拟崩溃）
+        for (long time = 1; time <= 5000; time++) {
+            file.write(time);
+        }
+        
+        // Then: 文件中的值覆盖所有已发出的时间
+        try (MappedClockFile crashed = new MappedClockFile(path, MappedClockFile.ForcePolicy.OS, 100)) {
+            assertTrue(crashed.getHighWater() >= 5000L);
+            assertEquals(file.getReservedHighWater(), crashed.getHighWater());
+        }
+        
+        // 正常关闭后恢复到实际高水位
+        file.close();
+        try (MappedClockFile reopened = new MappedClockFile(path, MappedClockFile.ForcePolicy.OS, 100)) {
+            assertEquals(5000L, reopened.getHighWater());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VectorClock;
+import com.example.dts.model.VersionVector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 矩阵时钟管理器单元测试
+ *
+ * @author DTS Team
+ */
+@ExtendWith(MockitoExtension.class)
+class MatrixClockManagerTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ListOperations<String, String> listOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    private final Set<String> members = new HashSet<>(Arrays.asList("node1", "node2"));
+
+    private VectorClockManager vectorClockManager;
+    private VersionVectorManager versionVectorManager;
+    private MatrixClockManager matrixClockManager;
+
+    @BeforeEach
+    void setUp() {
+        vectorClockManager = new VectorClockManager(redisTemplate);
+        versionVectorManager = new VersionVectorManager(redisTemplate);
+        ReflectionTestUtils.setField(vectorClockManager, "nodeId", "node1");
+        ReflectionTestUtils.setField(versionVectorManager, "nodeId", "node1");
+
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(setOperations.members("vector:nodes")).thenReturn(members);
+
+        matrixClockManager = new MatrixClockManager(vectorClockManager, versionVectorManager,
+                                                    new NodeIndexRegistry(new InProcessClockStore()));
+        ReflectionTestUtils.setField(matrixClockManager, "nodeId", "node1");
+        ReflectionTestUtils.setField(matrixClockManager, "enabled", true);
+        matrixClockManager.initialize();
+    }
+
+    @Test
+    void testFrontierAdvancesOnlyAfterPeerReportsKnowledge() {
+        // Given 本节点产生两个事件，node2 的事件被同步进来
+        vectorClockManager.tick();
+        vectorClockManager.tick();
+        vectorClockManager.applyDelta("node2", clock("node2", 1L), null);
+
+        // When node2 的行尚未包含 node1 的事件
+        VectorClock before = matrixClockManager.getStableClockFrontier();
+        vectorClockManager.applyDelta("node2", clock("node1", 2L, "node2", 2L),
+                                      vectorClockManager.getDeltaBase("node2"));
+        VectorClock after = matrixClockManager.getStableClockFrontier();
+
+        // Then
+        assertEquals(0L, before.getValue("node1"));
+        assertEquals(1L, before.getValue("node2"));
+        assertEquals(2L, after.getValue("node1"));
+        assertEquals(2L, after.getValue("node2"));
+    }
+
+    @Test
+    void testMemberWithoutRowKeepsFrontierEmpty() {
+        // Given node3 已注册，但还没有产生被合并的事件
+        members.add("node3");
+        vectorClockManager.tick();
+
+        // When node2 已看到 node1 的全部事件
+        vectorClockManager.applyDelta("node2", clock("node1", 1L, "node2", 1L), null);
+
+        // Then node3 看到了什么未知，不能删除任何记录
+        assertTrue(matrixClockManager.getStableClockFrontier().isEmpty());
+    }
+
+    @Test
+    void testFrontierEmptyWhenMembersCannotBeRead() {
+        // Given
+        vectorClockManager.tick();
+        vectorClockManager.applyDelta("node2", clock("node1", 1L, "node2", 1L), null);
+        when(setOperations.members("vector:nodes")).thenThrow(new RedisConnectionFailureException("down"));
+
+        // When
+        VectorClock frontier = matrixClockManager.getStableClockFrontier();
+
+        // Then
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void testVersionHistoryTruncatedToUnstableEntries() {
+        // Given
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        for (int i = 0; i < 5; i++) {
+            versionVectorManager.increment();
+        }
+        Map<String, Long> peerVector = new HashMap<>();
+        peerVector.put("node1", 3L);
+        peerVector.put("node2", 1L);
+        versionVectorManager.applyDelta("node2", new VersionVector(peerVector), null);
+
+        // When
+        matrixClockManager.applyStableFrontier();
+
+        // Then node1 的前3个版本已稳定，保留其后的2条
+        verify(listOperations).trim(eq("version:history:node1"), eq(0L), eq(1L));
+    }
+
+    private static VectorClock clock(Object... entries) {
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], (Long) entries[i + 1]);
+        }
+        return new VectorClock(map);
+    }
+}
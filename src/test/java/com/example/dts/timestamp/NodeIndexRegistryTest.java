@@ -0,0 +1,88 @@
+package com.example.dts.timestamp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 节点索引注册表单元测试（进程内存储，不依赖Redis）
+ *
+ * @author DTS Team
+ */
+class NodeIndexRegistryTest {
+
+    private final InProcessClockStore store = new InProcessClockStore();
+
+    @Test
+    void testIndexesAssignedWithoutRedis() {
+        // Given
+        NodeIndexRegistry registry = registry("node1", -1);
+
+        // When
+        Set<Integer> indexes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            indexes.add(registry.getIndex("node" + i));
+        }
+
+        // Then 索引唯一且稳定，另一个注册表实例读到相同的分配
+        assertEquals(100, indexes.size());
+        assertEquals(registry.getIndex("node42"), registry("node2", -1).getIndex("node42"));
+    }
+
+    @Test
+    void testPinnedIndexIsRegisteredAndCollisionRejected() {
+        // Given 固定索引登记后，自动分配跳过该索引
+        NodeIndexRegistry pinned = registry("node1", 3);
+        assertEquals(3, pinned.getLocalIndex());
+        NodeIndexRegistry other = registry("node2", -1);
+
+        // When
+        Set<Integer> assigned = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            assigned.add(other.getIndex("peer" + i));
+        }
+
+        // Then
+        assertFalse(assigned.contains(3));
+        assertEquals(4, assigned.size());
+        assertEquals(3, registry("node9", -1).getIndex("node1"));
+        assertThrows(IllegalStateException.class, () -> registry("node2", 3).getLocalIndex());
+    }
+
+    @Test
+    void testDepartedNodeIndexIsReclaimedAndReused() {
+        // Given
+        NodeIndexRegistry registry = registry("node1", -1);
+        List<String> reclaimed = new ArrayList<>();
+        registry.addReclaimListener(reclaimed::add);
+        registry.getLocalIndex();
+        int departed = registry.getIndex("old-pod");
+        store.updateEntries("node:index" + NodeIndexRegistry.SEEN_SUFFIX,
+                Collections.singletonMap("old-pod", 0L), Collections.emptyList());
+
+        // When
+        registry.heartbeat();
+        registry.reclaim();
+
+        // Then 本节点仍在心跳，索引保留；下线节点的索引被新节点复用
+        assertFalse(store.getEntries("node:index").containsKey("old-pod"));
+        assertEquals(Collections.singletonList("old-pod"), reclaimed);
+        assertEquals(departed, registry.getIndex("new-pod"));
+        assertEquals(0, registry.getLocalIndex());
+    }
+
+    private NodeIndexRegistry registry(String nodeId, int configuredIndex) {
+        NodeIndexRegistry registry = new NodeIndexRegistry(store);
+        ReflectionTestUtils.setField(registry, "nodeId", nodeId);
+        ReflectionTestUtils.setField(registry, "configuredIndex", configuredIndex);
+        ReflectionTestUtils.setField(registry, "reclaimAfter", 60000L);
+        return registry;
+    }
+}
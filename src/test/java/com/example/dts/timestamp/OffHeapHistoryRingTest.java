@@ -0,0 +1,121 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VersionVector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 堆外历史环形缓冲区单元测试
+ *
+ * @author DTS Team
+ */
+class OffHeapHistoryRingTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testLatestEntriesNewestFirstAcrossWrap() {
+        // Given 容量只够同时保存3条10字节的记录
+        OffHeapHistoryRing ring = new OffHeapHistoryRing("version", 32, 8, meterRegistry);
+
+        // When
+        for (int i = 1; i <= 7; i++) {
+            ring.append(entry(i, 10));
+        }
+
+        // Then
+        List<byte[]> latest = ring.latest(10);
+        assertEquals(3, latest.size());
+        assertArrayEquals(entry(7, 10), latest.get(0));
+        assertArrayEquals(entry(6, 10), latest.get(1));
+        assertArrayEquals(entry(5, 10), latest.get(2));
+    }
+
+    @Test
+    void testPendingSpilledOnceAndOverwrittenCounted() {
+        // Given
+        OffHeapHistoryRing ring = new OffHeapHistoryRing("version", 1024, 3, meterRegistry);
+        ring.append(entry(1, 4));
+        ring.append(entry(2, 4));
+        OffHeapHistoryRing.Batch first = ring.pending();
+        ring.markSpilled(first.endSequence);
+
+        // When 未溢写的第3条在溢写前被覆盖
+        ring.append(entry(3, 4));
+        ring.append(entry(4, 4));
+        ring.append(entry(5, 4));
+        ring.append(entry(6, 4));
+        OffHeapHistoryRing.Batch second = ring.pending();
+
+        // Then
+        assertEquals(2, first.entries.size());
+        assertEquals(3, second.entries.size());
+        assertArrayEquals(entry(4, 4), second.entries.get(0));
+        assertEquals(1.0, meterRegistry.get("dts.clock.history.dropped").counter().count());
+        ring.markSpilled(second.endSequence);
+        assertEquals(0, ring.pending().entries.size());
+    }
+
+    @Test
+    void testVersionHistoryServedFromMemoryAndSpilledInBatch() {
+        // Given
+        InProcessClockStore store = new InProcessClockStore();
+        VersionVectorManager manager = new VersionVectorManager(store, null, meterRegistry);
+        ReflectionTestUtils.setField(manager, "nodeId", "node1");
+        manager.initialize();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            manager.increment();
+        }
+        List<VersionVector> history = manager.getVersionHistory(3);
+
+        // Then 历史尚未写入存储
+        assertEquals(3, history.size());
+        assertEquals(5L, history.get(0).getVersion("node1"));
+        assertEquals(3L, history.get(2).getVersion("node1"));
+        assertTrue(store.range("version:history:node1", 10).isEmpty());
+
+        manager.spillHistory();
+        assertEquals(5, store.range("version:history:node1", 10).size());
+    }
+
+    @Test
+    void testHistoryReloadedFromStoreAfterRestart() {
+        // Given
+        InProcessClockStore store = new InProcessClockStore();
+        VersionVectorManager first = new VersionVectorManager(store, null, meterRegistry);
+        ReflectionTestUtils.setField(first, "nodeId", "node1");
+        first.initialize();
+        first.increment();
+        first.increment();
+        first.shutdown();
+
+        // When
+        VersionVectorManager second = new VersionVectorManager(store, null, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(second, "nodeId", "node1");
+        second.initialize();
+
+        // Then
+        List<VersionVector> history = second.getVersionHistory(10);
+        assertEquals(2, history.size());
+        assertEquals(2L, history.get(0).getVersion("node1"));
+    }
+
+    private static byte[] entry(int marker, int length) {
+        byte[] entry = new byte[length];
+        java.util.Arrays.fill(entry, (byte) marker);
+        return entry;
+    }
+}
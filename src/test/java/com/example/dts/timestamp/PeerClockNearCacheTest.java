@@ -0,0 +1,146 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VectorClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 对端时钟近缓存单元测试
+ *
+ * @author DTS Team
+ */
+class PeerClockNearCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PeerClockNearCache<VectorClock> cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PeerClockNearCache<>("vector", VectorClock::new, VectorClock::isEmpty, meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void testRepeatedLookupServedFromMemory() {
+        // Given
+        cache.configure(true, PeerClockNearCache.MODE_INVALIDATION, 16, 0L);
+
+        // When
+        VectorClock first = cache.get("node2", this::load);
+        first.setValue("node2", 100L);
+        VectorClock second = cache.get("node2", this::load);
+
+        // Then 调用方修改返回值不影响缓存
+        assertEquals(1, loads.get());
+        assertEquals(1L, second.getValue("node2"));
+        assertEquals(1.0, counter("dts.clock.nearcache.hits"));
+        assertEquals(1.0, counter("dts.clock.nearcache.misses"));
+    }
+
+    @Test
+    void testInvalidationForcesReload() {
+        // Given
+        cache.configure(true, PeerClockNearCache.MODE_INVALIDATION, 16, 0L);
+        cache.get("node2", this::load);
+
+        // When
+        cache.invalidate("node2");
+        VectorClock reloaded = cache.get("node2", this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals(2L, reloaded.getValue("node2"));
+        assertEquals(1.0, counter("dts.clock.nearcache.invalidations"));
+    }
+
+    @Test
+    void testInvalidationDuringLoadIsNotCached() {
+        // Given
+        cache.configure(true, PeerClockNearCache.MODE_INVALIDATION, 16, 0L);
+
+        // When 加载过程中收到失效通知
+        cache.get("node2", nodeId -> {
+            VectorClock loaded = load(nodeId);
+            cache.invalidate(nodeId);
+            return loaded;
+        });
+        cache.get("node2", this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testBoundedStalenessExpiresEntries() throws InterruptedException {
+        // Given
+        cache.configure(true, PeerClockNearCache.MODE_BOUNDED_STALENESS, 16, 5L);
+        cache.get("node2", this::load);
+
+        // When
+        Thread.sleep(20);
+        cache.get("node2", this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        // Given
+        cache.configure(true, PeerClockNearCache.MODE_INVALIDATION, 2, 0L);
+        cache.get("node1", this::load);
+        cache.get("node2", this::load);
+        cache.get("node1", this::load);
+
+        // When
+        cache.get("node3", this::load);
+
+        // Then node2 最久未使用被淘汰
+        assertEquals(2, cache.size());
+        assertEquals(1.0, counter("dts.clock.nearcache.evictions"));
+        cache.get("node1", this::load);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testKeyspaceNotificationInvalidatesManagerCache() {
+        // Given
+        VectorClockManager vectorClockManager = mock(VectorClockManager.class);
+        VersionVectorManager versionVectorManager = mock(VersionVectorManager.class);
+        PeerClockCacheInvalidator invalidator = new PeerClockCacheInvalidator(null, null,
+                vectorClockManager, versionVectorManager);
+
+        // When
+        invalidator.onMessage(new DefaultMessage(bytes("__keyspace@0__:vector:clock:node2"), bytes("hset")), null);
+        invalidator.onMessage(new DefaultMessage(bytes("__keyspace@0__:version:vector:node3"), bytes("set")), null);
+
+        // Then
+        verify(vectorClockManager).invalidateCachedClock("node2");
+        verify(versionVectorManager).invalidateCachedVector("node3");
+    }
+
+    private VectorClock load(String nodeId) {
+        VectorClock clock = new VectorClock();
+        clock.setValue(nodeId, loads.incrementAndGet());
+        return clock;
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.ClockCodec;
+import com.example.dts.model.VectorClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量同步基准跟踪单元测试
+ * 用两个跟踪器分别模拟发送方和接收方
+ *
+ * @author DTS Team
+ */
+class PeerDeltaTrackerTest {
+
+    private PeerDeltaTracker<VectorClock> sender;
+    private PeerDeltaTracker<VectorClock> receiver;
+
+    @BeforeEach
+    void setUp() {
+        sender = new PeerDeltaTracker<>(new VectorClock(), VectorClock::merge, ClockCodec::digest);
+        receiver = new PeerDeltaTracker<>(new VectorClock(), VectorClock::merge, ClockCodec::digest);
+    }
+
+    @Test
+    void testDeltaRoundTripReconstructsFullClock() {
+        // Given 首次同步没有确认记录，发送完整时钟
+        VectorClock clock = new VectorClock().tick("node-a").tick("node-b");
+        assertNull(sender.acknowledgedDigest("node-r"));
+        receiver.applyReceived("node-s", clock, null);
+        sender.acknowledge("node-r", clock, true);
+
+        // When 之后只发送变化的条目
+        VectorClock next = clock.tick("node-a");
+        VectorClock delta = next.diff(sender.acknowledged("node-r"));
+        VectorClock reconstructed = receiver.applyReceived("node-s", delta,
+                                                           sender.acknowledgedDigest("node-r"));
+        sender.acknowledge("node-r", delta, false);
+
+        // Then
+        assertEquals(1, delta.size());
+        assertEquals(next, reconstructed);
+        assertEquals(ClockCodec.digest(receiver.received("node-s")),
+                     sender.acknowledgedDigest("node-r").longValue());
+    }
+
+    @Test
+    void testDeltaRejectedWhenBaseMismatches() {
+        // Given 接收方丢失了记录（如重启）
+        VectorClock clock = new VectorClock().tick("node-a");
+        sender.acknowledge("node-r", clock, true);
+        VectorClock delta = clock.tick("node-a").diff(sender.acknowledged("node-r"));
+
+        // When & Then
+        assertThrows(IllegalStateException.class,
+                () -> receiver.applyReceived("node-s", delta, sender.acknowledgedDigest("node-r")));
+        assertTrue(receiver.received("node-s").isEmpty());
+
+        // 发送方清除记录后退回完整同步
+        sender.forget("node-r");
+        assertNull(sender.acknowledgedDigest("node-r"));
+    }
+
+    @Test
+    void testDeltaRejectedWhenBasesShareHashCode() {
+        // Given 双方基准不同但 hashCode 相同
+        VectorClock senderBase = clockOf(2L, 2L);
+        VectorClock receiverBase = clockOf(3L, 3L);
+        assertEquals(senderBase.hashCode(), receiverBase.hashCode());
+        sender.acknowledge("node-r", senderBase, true);
+        receiver.applyReceived("node-s", receiverBase, null);
+        VectorClock delta = senderBase.tick("node-a").diff(sender.acknowledged("node-r"));
+
+        // When & Then 摘要基于规范编码，不会误判为同一基准
+        assertThrows(IllegalStateException.class,
+                () -> receiver.applyReceived("node-s", delta, sender.acknowledgedDigest("node-r")));
+        assertEquals(receiverBase, receiver.received("node-s"));
+    }
+
+    private static VectorClock clockOf(long a, long b) {
+        Map<String, Long> entries = new HashMap<>();
+        entries.put("a", a);
+        entries.put("b", b);
+        return new VectorClock(entries);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.dts.timestamp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Redis时钟存储单元测试
+ *
+ * @author DTS Team
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisClockStoreTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisScriptingCommands scriptingCommands;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAdvanceCountersInPipelineSendsScriptBody() {
+        // Given 流水线内的命令在当前线程上执行
+        RedisClockStore store = new RedisClockStore(redisTemplate);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            return null;
+        });
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation ->
+                invocation.getArgument(0, RedisCallback.class).doInRedis(connection));
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        List<String> keys = Arrays.asList("lamport:clock:node1", "lamport:global");
+
+        // When
+        store.writeBatch(() -> assertEquals(42L, store.advanceCounters(keys, 42L)));
+
+        // Then 使用EVAL而不是EVALSHA，Redis重启或SCRIPT FLUSH后不会出现NOSCRIPT
+        verify(scriptingCommands).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2),
+                eq("lamport:clock:node1".getBytes(StandardCharsets.UTF_8)),
+                eq("lamport:global".getBytes(StandardCharsets.UTF_8)),
+                eq("42".getBytes(StandardCharsets.UTF_8)));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAdvanceCountersOutsidePipelineReturnsStoredValue() {
+        // Given 计数器已大于要推进到的值
+        RedisClockStore store = new RedisClockStore(redisTemplate);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString())).thenReturn(50L);
+
+        // When
+        long advanced = store.advanceCounters(Arrays.asList("lamport:clock:node1"), 42L);
+
+        // Then
+        assertEquals(50L, advanced);
+        verify(redisTemplate, never()).execute(any(RedisCallback.class));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.TimestampEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 全序时间戳编码单元测试
+ * 
+ * @author DTS Team
+ */
+class TotalOrderTimestampTest {
+    
+    @Test
+    void testPackAndUnpack() {
+        // When
+        long packed = TotalOrderTimestamp.pack(12345L, 42);
+        
+        // Then
+        assertEquals(12345L, TotalOrderTimestamp.lamportOf(packed));
+        assertEquals(42, TotalOrderTimestamp.nodeIndexOf(packed));
+    }
+    
+    @Test
+    void testOrderIsLamportThenNodeIndex() {
+        // Given
+        long a = TotalOrderTimestamp.pack(10L, 5);
+        long b = TotalOrderTimestamp.pack(10L, 6);
+        long c = TotalOrderTimestamp.pack(11L, 0);
+        
+        // Then
+        assertTrue(TotalOrderTimestamp.compare(a, b) < 0);
+        assertTrue(TotalOrderTimestamp.compare(b, c) < 0);
+        assertEquals(0, TotalOrderTimestamp.compare(a, TotalOrderTimestamp.pack(10L, 5)));
+    }
+    
+    @Test
+    void testMaxValuesStayPositive() {
+        // When
+        long packed = TotalOrderTimestamp.pack(TotalOrderTimestamp.MAX_LAMPORT, TotalOrderTimestamp.MAX_NODE_INDEX);
+        
+        // Then
+        assertEquals(Long.MAX_VALUE, packed);
+        assertTrue(TotalOrderTimestamp.compare(TotalOrderTimestamp.pack(1L, 0), packed) < 0);
+    }
+    
+    @Test
+    void testPackRejectsOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TotalOrderTimestamp.pack(TotalOrderTimestamp.MAX_LAMPORT + 1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> TotalOrderTimestamp.pack(1L, TotalOrderTimestamp.MAX_NODE_INDEX + 1));
+        assertThrows(IllegalArgumentException.class, () -> TotalOrderTimestamp.pack(-1L, 0));
+    }
+    
+    @Test
+    void testRangeBoundsCoverAllNodes() {
+        // Given
+        long packed = TotalOrderTimestamp.pack(7L, 300);
+        
+        // Then
+        assertTrue(packed >= TotalOrderTimestamp.lowerBound(7L));
+        assertTrue(packed <= TotalOrderTimestamp.upperBound(7L));
+        assertTrue(TotalOrderTimestamp.upperBound(6L) < TotalOrderTimestamp.lowerBound(7L));
+    }
+    
+    @Test
+    void testEventComparator() {
+        // Given
+        TimestampEvent first = event("node-b", 5L, TotalOrderTimestamp.pack(5L, 1));
+        TimestampEvent second = event("node-a", 5L, TotalOrderTimestamp.pack(5L, 2));
+        TimestampEvent third = event("node-c", 6L, TotalOrderTimestamp.pack(6L, 0));
+        List<TimestampEvent> events = new ArrayList<>(Arrays.asList(third, second, first));
+        
+        // When
+        events.sort(TotalOrderTimestamp.EVENT_COMPARATOR);
+        
+        // Then
+        assertEquals(Arrays.asList(first, second, third), events);
+    }
+    
+    private TimestampEvent event(String nodeId, long lamport, long totalOrder) {
+        TimestampEvent event = new TimestampEvent(nodeId, lamport, "TEST");
+        event.setTotalOrder(totalOrder);
+        return event;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.dts.timestamp;
+
+import com.example.dts.model.VectorClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 向量时钟管理器单元测试
+ *
+ * @author DTS Team
+ */
+@ExtendWith(MockitoExtension.class)
+class VectorClockManagerTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private static final long IDLE_TIMEOUT = 3600000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private VectorClockManager vectorClockManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        vectorClockManager = new VectorClockManager(new RedisClockStore(redisTemplate), null, meterRegistry);
+        ReflectionTestUtils.setField(vectorClockManager, "nodeId", "test-node");
+        ReflectionTestUtils.setField(vectorClockManager, "maxEntries", 1000);
+        ReflectionTestUtils.setField(vectorClockManager, "gcThreshold", 0.8);
+        ReflectionTestUtils.setField(vectorClockManager, "idleTimeout", IDLE_TIMEOUT);
+        lenient().when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void testTickDoesNotCollectGarbage() {
+        // Given
+        vectorClockManager.merge(clock("retired-node", 5L));
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            vectorClockManager.tick();
+        }
+
+        // Then
+        assertEquals(5L, vectorClockManager.getCurrentClock().getValue("retired-node"));
+        assertEquals(10L, vectorClockManager.getCurrentClock().getValue("test-node"));
+    }
+
+    @Test
+    void testCollectGarbagePrunesDepartedEntriesOnly() {
+        // Given 超过阈值（2 * 0.5）的时钟
+        ReflectionTestUtils.setField(vectorClockManager, "maxEntries", 2);
+        ReflectionTestUtils.setField(vectorClockManager, "gcThreshold", 0.5);
+        vectorClockManager.tick();
+        vectorClockManager.merge(clock("retired-node", 5L, "active-node", 1L));
+        long longAgo = System.currentTimeMillis() - 2 * IDLE_TIMEOUT;
+        vectorClockManager.markAlive("retired-node", longAgo);
+        vectorClockManager.markAlive("active-node", longAgo);
+
+        // When 只有 active-node 最近出现过
+        vectorClockManager.markAlive("active-node");
+        vectorClockManager.collectGarbage();
+
+        // Then
+        VectorClock clock = vectorClockManager.getCurrentClock();
+        assertFalse(clock.getNodeIds().contains("retired-node"));
+        assertEquals(1L, clock.getValue("active-node"));
+        assertEquals(1L, clock.getValue("test-node"));
+        assertEquals(1.0, meterRegistry.get("dts.clock.vector.gc.pruned").counter().count());
+        verify(hashOperations, times(1)).delete(anyString(), any());
+        verify(hashOperations).delete("vector:clock:test-node", "retired-node");
+        assertEquals(1L, meterRegistry.get("dts.clock.vector.gc.pause").timer().count());
+    }
+
+    @Test
+    void testSilentLiveNodeIsNotPruned() {
+        // Given 一小时没有事件、但节点索引心跳仍在的节点
+        ReflectionTestUtils.setField(vectorClockManager, "maxEntries", 1);
+        ReflectionTestUtils.setField(vectorClockManager, "gcThreshold", 0.5);
+        vectorClockManager.merge(clock("quiet-node", 5L));
+        vectorClockManager.markAlive("quiet-node", System.currentTimeMillis() - 2 * IDLE_TIMEOUT);
+        Map<Object, Object> heartbeats = new HashMap<>();
+        heartbeats.put("quiet-node", String.valueOf(System.currentTimeMillis()));
+        when(hashOperations.entries("node:index:seen")).thenReturn(heartbeats);
+
+        // When
+        vectorClockManager.collectGarbage();
+
+        // Then
+        assertEquals(5L, vectorClockManager.getCurrentClock().getValue("quiet-node"));
+        assertEquals(0.0, meterRegistry.get("dts.clock.vector.gc.pruned").counter().count());
+    }
+
+    @Test
+    void testNothingPrunedBelowThreshold() {
+        // Given 默认阈值 1000 * 0.8
+        vectorClockManager.merge(clock("retired-node", 5L));
+        vectorClockManager.markAlive("retired-node", System.currentTimeMillis() - 2 * IDLE_TIMEOUT);
+
+        // When
+        vectorClockManager.collectGarbage();
+
+        // Then
+        assertEquals(5L, vectorClockManager.getCurrentClock().getValue("retired-node"));
+    }
+
+    @Test
+    void testEntryNotSeenSinceStartupGetsFullIdleTimeout() {
+        // Given 恢复或合并得到、本进程尚未收到过消息的节点
+        ReflectionTestUtils.setField(vectorClockManager, "maxEntries", 1);
+        ReflectionTestUtils.setField(vectorClockManager, "gcThreshold", 0.5);
+        vectorClockManager.merge(clock("unknown-node", 5L));
+
+        // When
+        vectorClockManager.collectGarbage();
+
+        // Then
+        assertEquals(5L, vectorClockManager.getCurrentClock().getValue("unknown-node"));
+    }
+
+    @Test
+    void testPrunedEntryReappearsWhenNodeReturns() {
+        // Given
+        ReflectionTestUtils.setField(vectorClockManager, "maxEntries", 1);
+        ReflectionTestUtils.setField(vectorClockManager, "gcThreshold", 0.5);
+        vectorClockManager.merge(clock("flaky-node", 2L));
+        vectorClockManager.markAlive("flaky-node", System.currentTimeMillis() - 2 * IDLE_TIMEOUT);
+        vectorClockManager.collectGarbage();
+        assertTrue(vectorClockManager.getCurrentClock().isEmpty());
+
+        // When
+        vectorClockManager.notifyPeerClock("flaky-node", clock("flaky-node", 3L));
+        vectorClockManager.merge(clock("flaky-node", 3L));
+        vectorClockManager.collectGarbage();
+
+        // Then 重新出现的节点从最近一次出现开始计时
+        assertEquals(3L, vectorClockManager.getCurrentClock().getValue("flaky-node"));
+    }
+
+    @Test
+    void testPersistWritesOnlyChangedFields() {
+        // Given
+        vectorClockManager.merge(clock("node2", 4L, "node3", 7L));
+        verify(hashOperations).putAll("vector:clock:test-node", stringMap("node2", "4", "node3", "7"));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            vectorClockManager.tick();
+        }
+
+        // Then 每次滴答只写入本节点的一个字段
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Object, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations, times(4)).putAll(eq("vector:clock:test-node"), fields.capture());
+        for (Map<Object, Object> written : fields.getAllValues().subList(1, 4)) {
+            assertEquals(1, written.size());
+            assertTrue(written.containsKey("test-node"));
+        }
+        assertEquals("3", fields.getValue().get("test-node"));
+        verify(hashOperations, never()).delete(anyString(), any());
+    }
+
+    @Test
+    void testPrunedEntriesDeletedFromHash() {
+        // Given
+        ReflectionTestUtils.setField(vectorClockManager, "maxEntries", 1);
+        ReflectionTestUtils.setField(vectorClockManager, "gcThreshold", 0.5);
+        vectorClockManager.tick();
+        vectorClockManager.merge(clock("retired-node", 5L));
+        vectorClockManager.markAlive("retired-node", System.currentTimeMillis() - 2 * IDLE_TIMEOUT);
+        clearInvocations(hashOperations, redisTemplate);
+
+        // When
+        vectorClockManager.collectGarbage();
+
+        // Then 只删除被回收的字段，不重写整个哈希
+        verify(hashOperations).delete("vector:clock:test-node", "retired-node");
+        verify(hashOperations, never()).putAll(anyString(), any());
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void testPeerClockReadFromHash() {
+        // Given
+        Map<Object, Object> stored = new HashMap<>();
+        stored.put("node2", "9");
+        stored.put("node3", "2");
+        when(hashOperations.entries("vector:clock:node2")).thenReturn(stored);
+        when(hashOperations.multiGet(eq("vector:clock:node2"), any()))
+                .thenReturn(Arrays.asList((Object) "9", null));
+
+        // When
+        VectorClock full = vectorClockManager.getNodeClock("node2");
+        VectorClock partial = vectorClockManager.getNodeClockEntries("node2", Arrays.asList("node2", "node4"));
+
+        // Then
+        assertEquals(clock("node2", 9L, "node3", 2L), full);
+        assertEquals(clock("node2", 9L), partial);
+        assertTrue(vectorClockManager.getNodeClockEntries("node2", Collections.<String>emptyList()).isEmpty());
+    }
+
+    private static Map<String, String> stringMap(String... entries) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put(entries[i], entries[i + 1]);
+        }
+        return map;
+    }
+
+    private static VectorClock clock(Object... entries) {
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], (Long) entries[i + 1]);
+        }
+        return new VectorClock(map);
+    }
+}